@@ -0,0 +1,92 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.TransactionHistory;
+import com.hotovo.cws.service.TransferEngine;
+import com.hotovo.cws.service.WalletLocks;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Balance changes on the buy and transfer path, with and without the transaction history. Run with <tt>-prof gc</tt> to see the allocation rate per
+ * operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceBenchmark {
+
+	private static final Double AMOUNT = 0.01;
+	private static final Double SAME_PRICE = 1.0;
+	private static final Double PRICE = 30.5;
+	private static final Double INVERSE_PRICE = 1 / 30.5;
+
+	/**
+	 * Transactions retained per wallet, 0 disables the history
+	 */
+	@Param({"0", "1000"})
+	private int historyEntries;
+
+	private TransferEngine transferEngine;
+
+	private Wallet source;
+
+	private Wallet destination;
+
+	@Setup
+	public void setUp() {
+		transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", new LockingWalletExecutor(new WalletLocks(1024)));
+		ReflectionTestUtils.setField(transferEngine, "transactionHistory", new TransactionHistory(historyEntries, Duration.ofDays(30), false));
+		source = wallet(1L);
+		destination = wallet(2L);
+	}
+
+	@Benchmark
+	public void transferSameCurrency() {
+		transferEngine.transfer(source, "BTC", AMOUNT, destination, "BTC", SAME_PRICE);
+		transferEngine.transfer(destination, "BTC", AMOUNT, source, "BTC", SAME_PRICE);
+	}
+
+	@Benchmark
+	public void transferConverted() {
+		transferEngine.transfer(source, "BTC", AMOUNT, destination, "ETH", PRICE);
+		transferEngine.transfer(destination, "ETH", AMOUNT, source, "BTC", INVERSE_PRICE);
+	}
+
+	@Benchmark
+	public Wallet buy() {
+		return transferEngine.credit(source, "BTC", AMOUNT, "LTC", PRICE);
+	}
+
+	private Wallet wallet(Long id) {
+		Set<Currency> currencies = new LinkedHashSet<>();
+		currencies.add(new Currency(1_000_000.0, "BTC"));
+		currencies.add(new Currency(1_000_000.0, "ETH"));
+		currencies.add(new Currency(1_000_000.0, "LTC"));
+		return Wallet.builder()
+				.id(id)
+				.name("wallet " + id)
+				.currencies(currencies)
+				.build();
+	}
+}
@@ -0,0 +1,83 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import com.hotovo.cws.repository.WalletRepository;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.WalletLocks;
+import com.hotovo.cws.service.WalletService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Wallet fixtures shared by the service benchmarks
+ */
+final class BenchmarkWallets {
+
+	private BenchmarkWallets() {
+	}
+
+	static WalletService walletService() {
+		return walletService(new InMemoryWalletRepository());
+	}
+
+	static WalletService walletService(WalletRepository walletRepository) {
+		WalletService walletService = new WalletService();
+		ReflectionTestUtils.setField(walletService, "walletRepository", walletRepository);
+		ReflectionTestUtils.setField(walletService, "walletExecutor", new LockingWalletExecutor(new WalletLocks(1024)));
+		return walletService;
+	}
+
+	/**
+	 * @param count - number of symbols
+	 * @return symbols S00, S01, ...
+	 */
+	static List<String> symbols(int count) {
+		List<String> symbols = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			symbols.add(String.format("S%02d", i));
+		}
+		return symbols;
+	}
+
+	static WalletRequest walletRequest(String name, List<String> symbols) {
+		Set<Currency> currencies = new LinkedHashSet<>();
+		symbols.forEach(symbol -> currencies.add(new Currency(1_000_000.0, symbol)));
+		return new WalletRequest("private " + name, "public " + name, name, currencies);
+	}
+
+	/**
+	 * @return wallet with random keys and balance of every requested symbol
+	 */
+	static Wallet wallet(long id, List<String> symbols) {
+		Set<Currency> currencies = new LinkedHashSet<>();
+		symbols.forEach(symbol -> currencies.add(new Currency(1_000_000.0, symbol)));
+		return Wallet.builder()
+				.id(id)
+				.name("wallet " + id)
+				.privateKey(UUID.randomUUID().toString())
+				.publicKey(UUID.randomUUID().toString())
+				.currencies(currencies)
+				.build();
+	}
+
+	/**
+	 * Create wallets with balance of every requested symbol
+	 *
+	 * @return ids of the created wallets
+	 */
+	static long[] createWallets(WalletService walletService, int walletCount, List<String> symbols) {
+		long[] ids = new long[walletCount];
+		for (int i = 0; i < walletCount; i++) {
+			Wallet wallet = walletService.createWallet(walletRequest("wallet " + i, symbols));
+			ids[i] = wallet.getId();
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,129 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.CurrencyService;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.TransferEngine;
+import com.hotovo.cws.service.WalletLocks;
+import com.hotovo.cws.service.WalletService;
+import com.hotovo.cws.service.price.BatchingPriceLoader;
+import com.hotovo.cws.service.price.PriceCache;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Currency buy and transfer through {@link CurrencyService} with stubbed price source, for growing number of wallets and currencies per wallet. Prices
+ * are served by the price cache, so the benchmark measures the service itself. Reports throughput and latency percentiles, run with <tt>-prof gc</tt> to
+ * see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CurrencyServiceBenchmark {
+
+	private static final Double AMOUNT = 0.0001;
+
+	@Param({"1000", "100000"})
+	private int walletCount;
+
+	@Param({"1", "10"})
+	private int currenciesPerWallet;
+
+	private CurrencyService currencyService;
+
+	private BatchingPriceLoader priceLoader;
+
+	private Wallet[] wallets;
+
+	private List<String> symbols;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		symbols = BenchmarkWallets.symbols(currenciesPerWallet);
+		WalletService walletService = BenchmarkWallets.walletService();
+		long[] ids = BenchmarkWallets.createWallets(walletService, walletCount, symbols);
+		wallets = new Wallet[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			wallets[i] = walletService.getWalletInformation(ids[i]);
+		}
+
+		priceLoader = new StubPriceLoader(symbols);
+		PriceCache priceCache = new PriceCache();
+		ReflectionTestUtils.setField(priceCache, "batchingPriceLoader", priceLoader);
+		ReflectionTestUtils.setField(priceCache, "ttl", Duration.ofHours(1));
+		ReflectionTestUtils.setField(priceCache, "maxStaleness", Duration.ofHours(1));
+		TransferEngine transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", new LockingWalletExecutor(new WalletLocks(1024)));
+		currencyService = new CurrencyService();
+		ReflectionTestUtils.setField(currencyService, "priceCache", priceCache);
+		ReflectionTestUtils.setField(currencyService, "transferEngine", transferEngine);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		priceLoader.shutdown();
+	}
+
+	@Benchmark
+	public Wallet buyCurrency() {
+		int i = nextIndex();
+		return currencyService.buyCurrency("USD", AMOUNT, symbols.get(i % symbols.size()), wallets[i]);
+	}
+
+	@Benchmark
+	public void transferCurrency() {
+		int i = nextIndex();
+		currencyService.transferCurrency(wallets[i], symbols.get(i % symbols.size()), AMOUNT,
+				wallets[(i + 1) % walletCount], symbols.get((i + 1) % symbols.size()));
+	}
+
+	private int nextIndex() {
+		next = next + 1 < walletCount ? next + 1 : 0;
+		return next;
+	}
+
+	/**
+	 * Price source returning fixed prices for every pair of the benchmark symbols without any network call
+	 */
+	private static class StubPriceLoader extends BatchingPriceLoader {
+
+		private final Map<String, Map<String, Double>> prices = new HashMap<>();
+
+		StubPriceLoader(List<String> symbols) {
+			for (int from = 0; from < symbols.size(); from++) {
+				for (int to = 0; to < symbols.size(); to++) {
+					prices.computeIfAbsent(symbols.get(from), key -> new HashMap<>()).put(symbols.get(to), (from + 1.0) / (to + 1.0));
+				}
+				prices.computeIfAbsent("USD", key -> new HashMap<>()).put(symbols.get(from), 1.0 / (from + 1.0));
+			}
+		}
+
+		@Override
+		public CompletableFuture<Map<String, Map<String, Double>>> load(String fsym, String tsym) {
+			return CompletableFuture.completedFuture(prices);
+		}
+	}
+}
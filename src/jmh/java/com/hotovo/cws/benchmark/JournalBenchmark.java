@@ -0,0 +1,79 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.journal.FileWalletJournal;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.WalletLocks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Durable transfer events appended by concurrent threads, every operation waits until its event is written. With fsync the throughput depends on how
+ * many events share one disk sync (group commit).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class JournalBenchmark {
+
+	@Param({"true", "false"})
+	private boolean fsync;
+
+	private Path directory;
+
+	private FileWalletJournal journal;
+
+	private int btc;
+
+	private int eth;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("journal-benchmark");
+		journal = new FileWalletJournal(new InMemoryWalletRepository(), new LockingWalletExecutor(new WalletLocks(1024)),
+				directory.toString(), DataSize.ofMegabytes(64), fsync, 2);
+		journal.open();
+		btc = SymbolTable.intern("BTC");
+		eth = SymbolTable.intern("ETH");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		journal.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public long transferred() {
+		long sequence = journal.transferred(1L, btc, Balances.SCALE, 2L, eth, 20 * Balances.SCALE);
+		journal.awaitDurable(sequence);
+		return sequence;
+	}
+}
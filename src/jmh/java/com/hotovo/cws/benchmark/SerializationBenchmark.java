@@ -0,0 +1,117 @@
+package com.hotovo.cws.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.hotovo.cws.config.BinaryFormatConfiguration;
+import com.hotovo.cws.domain.Wallet;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encoding and decoding of the wallet API responses in JSON and in the binary formats offered by {@link BinaryFormatConfiguration}: one wallet and one
+ * page of the wallet list with its paging metadata. Payload size of every format is logged before the measurement.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	private static final int PAGE_SIZE = 100;
+
+	@Param({"json", "smile", "cbor"})
+	private String format;
+
+	@Param({"wallet", "page"})
+	private String payload;
+
+	@Param({"3"})
+	private int currenciesPerWallet;
+
+	private Object value;
+
+	private byte[] encoded;
+
+	private ObjectWriter writer;
+
+	private ObjectReader reader;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper mapper = mapper(format);
+		List<String> symbols = BenchmarkWallets.symbols(currenciesPerWallet);
+		if (payload.equals("wallet")) {
+			value = BenchmarkWallets.wallet(1, symbols);
+			reader = mapper.readerFor(Wallet.class);
+		} else {
+			List<Wallet> wallets = new ArrayList<>();
+			for (int i = 0; i < PAGE_SIZE; i++) {
+				wallets.add(BenchmarkWallets.wallet(i + 1, symbols));
+			}
+			value = new PageImpl<>(wallets, PageRequest.of(0, PAGE_SIZE), 1_000_000);
+			reader = mapper.readerFor(WalletPage.class);
+		}
+		writer = mapper.writerFor(value.getClass());
+		encoded = writer.writeValueAsBytes(value);
+		log.info("Payload {} in {} encoded to {} bytes", payload, format, encoded.length);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return writer.writeValueAsBytes(value);
+	}
+
+	@Benchmark
+	public Object deserialize() throws IOException {
+		return reader.readValue(encoded);
+	}
+
+	private static ObjectMapper mapper(String format) {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		switch (format) {
+			case "smile":
+				builder.factory(BinaryFormatConfiguration.smileFactory());
+				break;
+			case "cbor":
+				builder.factory(new CBORFactory());
+				break;
+			default:
+				break;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Page of the wallet list as decoded by the client, paging metadata besides the content is skipped
+	 */
+	@Data
+	static class WalletPage {
+
+		private List<Wallet> content;
+
+		private long totalElements;
+	}
+}
@@ -0,0 +1,103 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.journal.FileWalletJournal;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.WalletLocks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Snapshot write and startup restore (snapshot load without journal replay) of all wallets. Every operation handles the whole wallet set, divide the
+ * wallet count by the score for wallets per second. 5M wallets need about 12 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+	@Param({"100000", "1000000"})
+	private int walletCount;
+
+	@Param({"3"})
+	private int currenciesPerWallet;
+
+	private Path directory;
+
+	private InMemoryWalletRepository repository;
+
+	private FileWalletJournal journal;
+
+	private long firstWalletId;
+
+	private int symbolId;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("snapshot-benchmark");
+		repository = new InMemoryWalletRepository();
+		journal = journal(repository);
+		List<String> symbols = BenchmarkWallets.symbols(currenciesPerWallet);
+		for (int i = 0; i < walletCount; i++) {
+			Wallet wallet = BenchmarkWallets.wallet(Wallet.getWalletId().getAndIncrement(), symbols);
+			repository.insert(wallet);
+			journal.created(wallet);
+		}
+		journal.snapshot();
+		firstWalletId = repository.findAll().findFirst().get().getId();
+		symbolId = SymbolTable.intern(symbols.get(0));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		journal.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public void write() throws IOException {
+		journal.credited(firstWalletId, symbolId, 0);
+		journal.snapshot();
+	}
+
+	@Benchmark
+	public long load() throws IOException, InterruptedException {
+		InMemoryWalletRepository restored = new InMemoryWalletRepository(walletCount);
+		FileWalletJournal restoredJournal = journal(restored);
+		restoredJournal.close();
+		return restored.count();
+	}
+
+	private FileWalletJournal journal(InMemoryWalletRepository repository) throws IOException {
+		FileWalletJournal journal = new FileWalletJournal(repository, new LockingWalletExecutor(new WalletLocks(1024)),
+				directory.toString(), DataSize.ofMegabytes(64), false, 2);
+		journal.open();
+		return journal;
+	}
+}
@@ -0,0 +1,82 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.SequencedWalletExecutor;
+import com.hotovo.cws.service.TransferEngine;
+import com.hotovo.cws.service.WalletExecutor;
+import com.hotovo.cws.service.WalletLocks;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Transfers between random wallets executed under the striped wallet locks and by the single sequencer thread. Few wallets make every transfer contend for
+ * the same wallets, many wallets make the transfers mostly independent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class WalletExecutorBenchmark {
+
+	private static final Double AMOUNT = 0.0001;
+	private static final Double PRICE = 1.0;
+
+	@Param({"locking", "sequencer"})
+	private String mode;
+
+	@Param({"2", "16", "10000"})
+	private int walletCount;
+
+	private WalletExecutor walletExecutor;
+
+	private TransferEngine transferEngine;
+
+	private Wallet[] wallets;
+
+	@Setup
+	public void setUp() {
+		walletExecutor = mode.equals("sequencer") ? new SequencedWalletExecutor(65536) : new LockingWalletExecutor(new WalletLocks(1024));
+		transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", walletExecutor);
+		wallets = new Wallet[walletCount];
+		for (int i = 0; i < walletCount; i++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			currencies.add(new Currency(1_000_000_000.0, "BTC"));
+			wallets[i] = Wallet.builder().id(i + 1L).name("wallet " + i).currencies(currencies).build();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		if (walletExecutor instanceof SequencedWalletExecutor) {
+			((SequencedWalletExecutor) walletExecutor).stop();
+		}
+	}
+
+	@Benchmark
+	public void transfer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		transferEngine.transfer(wallets[random.nextInt(walletCount)], "BTC", AMOUNT, wallets[random.nextInt(walletCount)], "BTC", PRICE);
+	}
+}
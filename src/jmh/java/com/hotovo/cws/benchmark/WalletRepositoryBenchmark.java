@@ -0,0 +1,84 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wallet lookup by id for growing number of stored wallets. Indexed lookup should stay flat, the linear scan (former WalletService implementation) is kept
+ * for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class WalletRepositoryBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	private int walletCount;
+
+	private InMemoryWalletRepository repository;
+
+	private Set<Wallet> linearWallets;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		repository = new InMemoryWalletRepository();
+		linearWallets = new LinkedHashSet<>();
+		for (long id = 1; id <= walletCount; id++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			currencies.add(new Currency(100.0, "BTC"));
+			Wallet wallet = Wallet.builder()
+					.id(id)
+					.name("wallet " + id)
+					.privateKey("private " + id)
+					.publicKey("public " + id)
+					.currencies(currencies)
+					.build();
+			repository.insert(wallet);
+			linearWallets.add(wallet);
+		}
+	}
+
+	@Benchmark
+	public Wallet indexedLookup() {
+		return repository.findById(randomId()).orElse(null);
+	}
+
+	@Benchmark
+	public boolean indexedDuplicateCheck() {
+		long id = randomId();
+		return repository.existsByIdentity("wallet " + id, "private " + id, "public " + id);
+	}
+
+	@Benchmark
+	public Wallet linearScanLookup() {
+		Long id = randomId();
+		return linearWallets.stream()
+				.filter(wallet -> wallet.getId().equals(id))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private long randomId() {
+		return ThreadLocalRandom.current().nextLong(1, walletCount + 1);
+	}
+}
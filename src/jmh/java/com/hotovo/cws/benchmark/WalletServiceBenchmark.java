@@ -0,0 +1,88 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.controller.dto.WalletCursorPage;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.WalletService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Wallet CRUD through {@link WalletService} for growing number of wallets and currencies per wallet. Reports throughput and latency percentiles, run
+ * with <tt>-prof gc</tt> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class WalletServiceBenchmark {
+
+	private static final int PAGE_SIZE = 10;
+
+	@Param({"1000", "100000"})
+	private int walletCount;
+
+	@Param({"1", "10"})
+	private int currenciesPerWallet;
+
+	private WalletService walletService;
+
+	private long[] ids;
+
+	private WalletRequest newWallet;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<String> symbols = BenchmarkWallets.symbols(currenciesPerWallet);
+		walletService = BenchmarkWallets.walletService();
+		ids = BenchmarkWallets.createWallets(walletService, walletCount, symbols);
+		newWallet = BenchmarkWallets.walletRequest("new wallet", symbols);
+	}
+
+	@Benchmark
+	public Wallet getWalletInformation() {
+		return walletService.getWalletInformation(ids[nextIndex(walletCount)]);
+	}
+
+	/**
+	 * Created wallet is deleted again, so the number of wallets stays the same during the measurement
+	 */
+	@Benchmark
+	public Wallet createWallet() {
+		Wallet wallet = walletService.createWallet(newWallet);
+		return walletService.deleteWallet(wallet.getId());
+	}
+
+	@Benchmark
+	public Page<Wallet> fetchWallets() {
+		return walletService.fetchWallets(PageRequest.of(nextIndex(walletCount / PAGE_SIZE), PAGE_SIZE));
+	}
+
+	@Benchmark
+	public WalletCursorPage fetchWalletsAfter() {
+		return walletService.fetchWalletsAfter(ids[nextIndex(walletCount)], PAGE_SIZE);
+	}
+
+	private int nextIndex(int bound) {
+		next = next + 1 < bound ? next + 1 : 0;
+		return next;
+	}
+}
@@ -0,0 +1,106 @@
+package com.hotovo.cws.benchmark;
+
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import com.hotovo.cws.repository.ShardedWalletRepository;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.TransferEngine;
+import com.hotovo.cws.service.WalletLocks;
+import com.hotovo.cws.service.WalletService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Wallet create, get and buy with the single and the sharded wallet repository. Run with growing number of threads (<tt>-t 1</tt>, <tt>-t 4</tt>, ...) to
+ * see how the throughput scales with the cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class WalletStoreBenchmark {
+
+	private static final int WALLETS = 100_000;
+	private static final Double AMOUNT = 0.0001;
+	private static final Double PRICE = 30.5;
+
+	@Param({"in-memory", "sharded"})
+	private String repository;
+
+	private WalletService walletService;
+
+	private TransferEngine transferEngine;
+
+	private List<String> symbols;
+
+	private long[] ids;
+
+	private final AtomicInteger threads = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		walletService = BenchmarkWallets.walletService(repository.equals("sharded") ? new ShardedWalletRepository(0) : new InMemoryWalletRepository());
+		transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", new LockingWalletExecutor(new WalletLocks(1024)));
+		symbols = BenchmarkWallets.symbols(3);
+		ids = BenchmarkWallets.createWallets(walletService, WALLETS, symbols);
+	}
+
+	/**
+	 * Created wallet is deleted again, so the number of wallets stays the same during the measurement
+	 */
+	@Benchmark
+	public Wallet createWallet(ThreadState state) {
+		Wallet wallet = walletService.createWallet(BenchmarkWallets.walletRequest(state.nextName(), symbols));
+		return walletService.deleteWallet(wallet.getId());
+	}
+
+	@Benchmark
+	public Wallet getWalletInformation() {
+		return walletService.getWalletInformation(randomId());
+	}
+
+	@Benchmark
+	public Wallet buy() {
+		return transferEngine.credit(walletService.getWalletInformation(randomId()), "USD", AMOUNT, "S01", PRICE);
+	}
+
+	private long randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		private String prefix;
+
+		private long next;
+
+		@Setup
+		public void setUp(WalletStoreBenchmark benchmark) {
+			prefix = "new wallet " + benchmark.threads.incrementAndGet() + " ";
+		}
+
+		String nextName() {
+			return prefix + next++;
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.hotovo.cws.client;
+
+/**
+ * Call to CryptoCompare was rejected without being made, because its circuit is open or too many calls are already in progress
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+	public CallNotPermittedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,201 @@
+package com.hotovo.cws.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Latency aware circuit breaker. Outcomes of the recent calls are kept in a sliding window, the circuit is opened when too many of them failed or were
+ * slower than the slow call threshold. Open circuit rejects all calls for the open duration, then lets a few trial calls through. Circuit is closed when
+ * all trial calls succeed in time and opened again otherwise.
+ * <p>
+ * Every permit is tagged by the generation of the circuit state it was given in. Outcome of the call permitted before the last state change, e.g. a late
+ * result of the call permitted while the circuit was closed arriving when the circuit is half open, is ignored and is not counted as a trial call.
+ * <p>
+ * The window also provides the latency percentiles of the recent successful calls, used to decide when a call is slow enough to be hedged.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, HALF_OPEN, OPEN
+	}
+
+	/**
+	 * Returned by {@link #tryAcquire()} when the call is not permitted
+	 */
+	public static final long NOT_PERMITTED = -1;
+
+	private final String name;
+	private final int minimumCalls;
+	private final int failureRateThreshold;
+	private final long slowCallNanos;
+	private final int slowCallRateThreshold;
+	private final long openNanos;
+	private final int halfOpenCalls;
+
+	/**
+	 * Sliding window of the call durations and failures, guarded by this
+	 */
+	private final long[] durations;
+	private final boolean[] failures;
+	private int next;
+	private int recorded;
+	private int failed;
+	private int slow;
+
+	private State state = State.CLOSED;
+
+	/**
+	 * Incremented by every state change, permits of the previous generations are stale
+	 */
+	private long generation;
+	private long openedAt;
+	private int halfOpenPermits;
+	private int halfOpenSucceeded;
+
+	/**
+	 * @param name - name of the protected service used in the log
+	 * @param windowSize - number of the recent calls the rates are computed from
+	 * @param minimumCalls - minimal number of calls in the window before the circuit can be opened
+	 * @param failureRateThreshold - percentage of failed calls opening the circuit
+	 * @param slowCallThreshold - duration of the call considered slow
+	 * @param slowCallRateThreshold - percentage of slow calls opening the circuit
+	 * @param openDuration - how long the open circuit rejects the calls before trial calls are let through
+	 * @param halfOpenCalls - number of trial calls
+	 */
+	public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold, Duration slowCallThreshold, int slowCallRateThreshold,
+			Duration openDuration, int halfOpenCalls) {
+		if (windowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1) {
+			throw new RuntimeException("Circuit breaker window, minimum calls and half open calls must be positive!");
+		}
+		this.name = name;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallNanos = slowCallThreshold.toNanos();
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.openNanos = openDuration.toNanos();
+		this.halfOpenCalls = halfOpenCalls;
+		this.durations = new long[windowSize];
+		this.failures = new boolean[windowSize];
+	}
+
+	/**
+	 * Ask for permission to make a call. Every permitted call must be reported by {@link #onResult(long, long, boolean)} or {@link #onCancelled(long)}.
+	 *
+	 * @return permit of the call, {@link #NOT_PERMITTED} if the circuit is open
+	 */
+	public synchronized long tryAcquire() {
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openNanos) {
+				return NOT_PERMITTED;
+			}
+			transition(State.HALF_OPEN);
+			halfOpenPermits = halfOpenCalls;
+			halfOpenSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (halfOpenPermits == 0) {
+				return NOT_PERMITTED;
+			}
+			halfOpenPermits--;
+		}
+		return generation;
+	}
+
+	/**
+	 * Report outcome of the permitted call, outcome of the stale permit is ignored
+	 *
+	 * @param permit - permit of the call returned by {@link #tryAcquire()}
+	 * @param durationNanos - duration of the call
+	 * @param failure - true if the call failed
+	 */
+	public synchronized void onResult(long permit, long durationNanos, boolean failure) {
+		if (permit != generation) {
+			// late outcome of a call permitted before the last state change
+			return;
+		}
+		boolean slowCall = durationNanos >= slowCallNanos;
+		if (state == State.HALF_OPEN) {
+			if (failure || slowCall) {
+				open();
+			} else if (++halfOpenSucceeded >= halfOpenCalls) {
+				reset();
+				transition(State.CLOSED);
+			}
+			return;
+		}
+
+		if (recorded == durations.length) {
+			failed -= failures[next] ? 1 : 0;
+			slow -= durations[next] >= slowCallNanos ? 1 : 0;
+		} else {
+			recorded++;
+		}
+		durations[next] = durationNanos;
+		failures[next] = failure;
+		failed += failure ? 1 : 0;
+		slow += slowCall ? 1 : 0;
+		next = (next + 1) % durations.length;
+
+		if (recorded >= minimumCalls && (failed * 100L >= failureRateThreshold * (long) recorded || slow * 100L >= slowCallRateThreshold * (long) recorded)) {
+			log.warn("Circuit of {} opened, {} of {} recent calls failed and {} were slow", name, failed, recorded, slow);
+			open();
+		}
+	}
+
+	/**
+	 * Report the permitted call which was cancelled before its outcome was known
+	 *
+	 * @param permit - permit of the call returned by {@link #tryAcquire()}
+	 */
+	public synchronized void onCancelled(long permit) {
+		if (permit == generation && state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls - halfOpenSucceeded) {
+			halfOpenPermits++;
+		}
+	}
+
+	/**
+	 * @param percentile - percentile between 0 and 1
+	 * @return latency percentile of the successful calls in the window, -1 if there are fewer of them than the minimum calls
+	 */
+	public synchronized long latencyPercentileNanos(double percentile) {
+		long[] succeeded = new long[recorded];
+		int count = 0;
+		for (int i = 0; i < recorded; i++) {
+			if (!failures[i]) {
+				succeeded[count++] = durations[i];
+			}
+		}
+		if (count < minimumCalls) {
+			return -1;
+		}
+		Arrays.sort(succeeded, 0, count);
+		return succeeded[Math.max(0, Math.min(count - 1, (int) Math.ceil(percentile * count) - 1))];
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	private void open() {
+		transition(State.OPEN);
+		openedAt = System.nanoTime();
+		reset();
+	}
+
+	private void reset() {
+		recorded = 0;
+		next = 0;
+		failed = 0;
+		slow = 0;
+	}
+
+	private void transition(State newState) {
+		if (state != newState) {
+			log.info("Circuit of {} changed from {} to {}", name, state, newState);
+			state = newState;
+			generation++;
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package com.hotovo.cws.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotovo.cws.client.CircuitBreaker.State;
+import com.hotovo.cws.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Client of the CryptoCompare.com API (https://min-api.cryptocompare.com/documentation). Latency of every call is recorded by the endpoint and outcome,
+ * failed calls are counted by the exception type.
+ * <p>
+ * Calls are protected so a slow or failing CryptoCompare can not stall the application:
+ * <ul>
+ * <li>circuit breaker stops calling CryptoCompare for a while when too many recent calls failed or were slow</li>
+ * <li>bulkhead bounds the number of calls in progress, calls over the bound are rejected instead of waiting for a connection</li>
+ * <li>price call still running after the configured latency percentile of the recent calls is hedged by a second identical call, the first response
+ * wins and the other call is cancelled</li>
+ * </ul>
+ * Rejected calls fail with {@link CallNotPermittedException}, callers holding a last known price may serve it instead.
+ */
+@Slf4j
+@Component
+public class CryptoCompareClient {
+
+	private static final String PRICE_MULTI = "pricemulti";
+	private static final String COIN_LIST = "coinlist";
+
+	@Autowired
+	private RestTemplate restTemplate;
+
+	@Autowired
+	private CloseableHttpAsyncClient httpAsyncClient;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@Value("${crypto-compare.base-url}")
+	private String ccBaseUrl;
+
+	@Value("${crypto-compare.api-key}")
+	private String apiKey;
+
+	@Value("${crypto-compare.resilience.window-size:100}")
+	private int windowSize;
+
+	@Value("${crypto-compare.resilience.minimum-calls:20}")
+	private int minimumCalls;
+
+	@Value("${crypto-compare.resilience.failure-rate-threshold:50}")
+	private int failureRateThreshold;
+
+	@Value("${crypto-compare.resilience.slow-call-threshold:2s}")
+	private Duration slowCallThreshold;
+
+	@Value("${crypto-compare.resilience.slow-call-rate-threshold:80}")
+	private int slowCallRateThreshold;
+
+	@Value("${crypto-compare.resilience.open-duration:10s}")
+	private Duration openDuration;
+
+	@Value("${crypto-compare.resilience.half-open-calls:3}")
+	private int halfOpenCalls;
+
+	@Value("${crypto-compare.resilience.max-concurrent-calls:20}")
+	private int maxConcurrentCalls;
+
+	@Value("${crypto-compare.resilience.hedge-percentile:0.95}")
+	private double hedgePercentile;
+
+	@Value("${crypto-compare.resilience.hedge-min-delay:50ms}")
+	private Duration hedgeMinDelay;
+
+	private CircuitBreaker circuitBreaker;
+
+	private Semaphore bulkhead;
+
+	private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "crypto-compare-hedge");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@PostConstruct
+	public void init() {
+		circuitBreaker = new CircuitBreaker("CryptoCompare", windowSize, minimumCalls, failureRateThreshold, slowCallThreshold, slowCallRateThreshold,
+				openDuration, halfOpenCalls);
+		bulkhead = new Semaphore(maxConcurrentCalls);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		hedgeScheduler.shutdownNow();
+	}
+
+	/**
+	 * Fetch the currency conversion values for every combination of requested symbols with one call
+	 *
+	 * @param fsyms cryptocurrency symbols of interest e.g. BTC, ETH
+	 * @param tsyms cryptocurrency symbols to convert into e.g. USD, EUR
+	 * @return prices by the symbol of interest and the symbol to convert into, pairs without valid price are missing
+	 * @throws CallNotPermittedException if the call was rejected
+	 */
+	public Map<String, Map<String, Double>> fetchPrices(Collection<String> fsyms, Collection<String> tsyms) {
+		UriComponents uri = priceMultiUri(fsyms, tsyms);
+
+		log.debug("External endpoint call with method {} to {} ", HttpMethod.GET, uri.toString());
+		ResponseEntity<HashMap> responseEntity = guarded(PRICE_MULTI,
+				() -> restTemplate.exchange(uri.toUri(), HttpMethod.GET, createEntityWithAuthHeader(), HashMap.class));
+
+		return toPrices(responseEntity.getBody());
+	}
+
+	/**
+	 * Fetch the currency conversion values for every combination of requested symbols with one non-blocking call. Call running longer than the hedge
+	 * percentile of the recent calls is hedged by a second call when the circuit is closed and the hedge is permitted by the circuit breaker and the
+	 * bulkhead like any other call.
+	 *
+	 * @param fsyms cryptocurrency symbols of interest e.g. BTC, ETH
+	 * @param tsyms cryptocurrency symbols to convert into e.g. USD, EUR
+	 * @return future of prices by the symbol of interest and the symbol to convert into, completed on the I/O thread of the HTTP client, completed
+	 * exceptionally by {@link CallNotPermittedException} if the call was rejected
+	 */
+	public CompletableFuture<Map<String, Map<String, Double>>> fetchPricesAsync(Collection<String> fsyms, Collection<String> tsyms) {
+		UriComponents uri = priceMultiUri(fsyms, tsyms);
+		CompletableFuture<Map<String, Map<String, Double>>> result = new CompletableFuture<>();
+		long permit;
+		try {
+			permit = permit(PRICE_MULTI);
+		} catch (CallNotPermittedException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		AtomicInteger running = new AtomicInteger(1);
+		attempt(uri, permit, result, running);
+		long hedgeDelay = hedgeDelayNanos();
+		hedgeScheduler.schedule(() -> {
+			if (result.isDone() || circuitBreaker.getState() != State.CLOSED) {
+				return;
+			}
+			long hedgePermit;
+			try {
+				hedgePermit = permit(PRICE_MULTI);
+			} catch (CallNotPermittedException e) {
+				log.debug("Call to {} not hedged, {}", PRICE_MULTI, e.getMessage());
+				return;
+			}
+			log.debug("Hedging call to {} still running after {} ms", PRICE_MULTI, TimeUnit.NANOSECONDS.toMillis(hedgeDelay));
+			metricsRegistry.counter("crypto_compare_hedged_requests_total", "CryptoCompare calls hedged by a second call", "endpoint", PRICE_MULTI)
+					.increment();
+			running.incrementAndGet();
+			attempt(uri, hedgePermit, result, running);
+		}, hedgeDelay, TimeUnit.NANOSECONDS);
+		return result;
+	}
+
+	/**
+	 * @return state of the circuit breaker protecting the calls
+	 */
+	public State getCircuitState() {
+		return circuitBreaker.getState();
+	}
+
+	/**
+	 * @return number of calls in progress
+	 */
+	public int getCallsInProgress() {
+		return maxConcurrentCalls - bulkhead.availablePermits();
+	}
+
+	/**
+	 * Make one permitted call, first successful call completes the result and cancels the other one, result fails when all running calls failed
+	 */
+	private void attempt(UriComponents uri, long permit, CompletableFuture<Map<String, Map<String, Double>>> result, AtomicInteger running) {
+		CompletableFuture<Map<String, Map<String, Double>>> call = execute(uri, permit);
+		call.whenComplete((prices, failure) -> {
+			if (failure == null) {
+				result.complete(prices);
+			} else if (running.decrementAndGet() == 0) {
+				result.completeExceptionally(failure);
+			}
+		});
+		result.whenComplete((prices, failure) -> call.cancel(false));
+	}
+
+	private CompletableFuture<Map<String, Map<String, Double>>> execute(UriComponents uri, long permit) {
+		HttpGet request = new HttpGet(uri.toUri());
+		request.addHeader("authorization", "Apikey " + apiKey);
+
+		log.debug("External endpoint call with method {} to {} ", HttpMethod.GET, uri.toString());
+		long start = System.nanoTime();
+		CompletableFuture<Map<String, Map<String, Double>>> result = new CompletableFuture<>();
+		result.whenComplete((prices, failure) -> release(PRICE_MULTI, permit, start, failure));
+		Future<HttpResponse> exchange;
+		try {
+			exchange = httpAsyncClient.execute(request, new FutureCallback<HttpResponse>() {
+				@Override
+				public void completed(HttpResponse response) {
+					try {
+						int status = response.getStatusLine().getStatusCode();
+						if (status != HttpStatus.SC_OK) {
+							throw new RuntimeException("Response with error from external service, status " + status);
+						}
+						result.complete(toPrices(objectMapper.readValue(response.getEntity().getContent(), HashMap.class)));
+					} catch (IOException | RuntimeException e) {
+						result.completeExceptionally(e);
+					}
+				}
+
+				@Override
+				public void failed(Exception e) {
+					result.completeExceptionally(e);
+				}
+
+				@Override
+				public void cancelled() {
+					result.cancel(false);
+				}
+			});
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+		result.whenComplete((prices, failure) -> {
+			if (result.isCancelled()) {
+				exchange.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Fetch symbols of all currencies available on CryptoCompare
+	 *
+	 * @return set of currency symbols, empty if the list is not returned
+	 */
+	public Set<String> fetchCoinSymbols() {
+		UriComponents uri = UriComponentsBuilder
+				.fromHttpUrl(ccBaseUrl.concat("/data/all/coinlist?summary=true"))
+				.build();
+
+		log.debug("External endpoint call with method {} to {} ", HttpMethod.GET, uri.toString());
+		ResponseEntity<HashMap> responseEntity = guarded(COIN_LIST,
+				() -> restTemplate.exchange(uri.toUri(), HttpMethod.GET, createEntityWithAuthHeader(), HashMap.class));
+
+		return Optional.ofNullable(responseEntity.getBody())
+				.map(response -> {
+					log.info("Received available currencies from crypto compare");
+					return response.get("Data");
+				})
+				.filter(o -> o instanceof HashMap)
+				.map(o -> (Set<String>) ((HashMap) o).keySet())
+				.orElse(Collections.emptySet());
+	}
+
+	private <T> T guarded(String endpoint, Supplier<T> call) {
+		long permit = permit(endpoint);
+		long start = System.nanoTime();
+		try {
+			T result = call.get();
+			release(endpoint, permit, start, null);
+			return result;
+		} catch (RuntimeException e) {
+			release(endpoint, permit, start, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Acquire permission of the circuit breaker and a place in the bulkhead, every permitted call must be released with the returned permit
+	 */
+	private long permit(String endpoint) {
+		long permit = circuitBreaker.tryAcquire();
+		if (permit == CircuitBreaker.NOT_PERMITTED) {
+			rejected(endpoint, "circuit_open");
+			throw new CallNotPermittedException("CryptoCompare is not available, circuit is open!");
+		}
+		if (!bulkhead.tryAcquire()) {
+			circuitBreaker.onCancelled(permit);
+			rejected(endpoint, "bulkhead_full");
+			throw new CallNotPermittedException("CryptoCompare is not available, too many calls in progress!");
+		}
+		return permit;
+	}
+
+	private void release(String endpoint, long permit, long start, Throwable failure) {
+		bulkhead.release();
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+		if (cause instanceof CancellationException) {
+			circuitBreaker.onCancelled(permit);
+			return;
+		}
+		circuitBreaker.onResult(permit, System.nanoTime() - start, cause != null);
+		record(endpoint, start, cause);
+	}
+
+	/**
+	 * Hedge delay is the configured percentile of the recent call latencies, the slow call threshold until there are enough calls to compute it
+	 */
+	private long hedgeDelayNanos() {
+		long percentile = circuitBreaker.latencyPercentileNanos(hedgePercentile);
+		return Math.max(hedgeMinDelay.toNanos(), percentile < 0 ? slowCallThreshold.toNanos() : percentile);
+	}
+
+	private void rejected(String endpoint, String reason) {
+		metricsRegistry.counter("crypto_compare_rejected_calls_total", "CryptoCompare calls rejected by the circuit breaker or the bulkhead",
+				"endpoint", endpoint, "reason", reason).increment();
+	}
+
+	private void record(String endpoint, long start, Throwable failure) {
+		metricsRegistry.timer("crypto_compare_requests_seconds", "Latency of the CryptoCompare API calls",
+				"endpoint", endpoint, "outcome", failure == null ? "success" : "error").recordSince(start);
+		if (failure != null) {
+			metricsRegistry.counter("crypto_compare_errors_total", "Failed CryptoCompare API calls",
+					"endpoint", endpoint, "reason", failure.getClass().getSimpleName()).increment();
+		}
+	}
+
+	private UriComponents priceMultiUri(Collection<String> fsyms, Collection<String> tsyms) {
+		Map<String, String> uriParams = new HashMap<>();
+		uriParams.put("fsyms", String.join(",", fsyms));
+		uriParams.put("tsyms", String.join(",", tsyms));
+		return UriComponentsBuilder
+				.fromHttpUrl(ccBaseUrl.concat("/data/pricemulti?fsyms={fsyms}&tsyms={tsyms}"))
+				.buildAndExpand(uriParams);
+	}
+
+	private Map<String, Map<String, Double>> toPrices(Map<?, ?> body) {
+		Map<String, Map<String, Double>> prices = new HashMap<>();
+		Optional.ofNullable(body).ifPresent(response -> response.forEach((fsym, quotes) -> {
+			if (quotes instanceof Map) {
+				((Map<?, ?>) quotes).forEach((tsym, price) -> {
+					if (price instanceof Number) {
+						prices.computeIfAbsent(fsym.toString(), key -> new HashMap<>()).put(tsym.toString(), ((Number) price).doubleValue());
+					}
+				});
+			}
+		}));
+		return prices;
+	}
+
+	private HttpEntity createEntityWithAuthHeader() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("authorization", "Apikey " + apiKey);
+		return new HttpEntity<>(headers);
+	}
+}
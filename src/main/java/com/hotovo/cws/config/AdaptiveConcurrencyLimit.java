@@ -0,0 +1,82 @@
+package com.hotovo.cws.config;
+
+/**
+ * Concurrency limit adapted to the measured latency by the gradient of the long term and the short term average latency. While the recent latency
+ * stays within the tolerance of the long term latency the limit grows by the square root of itself, when the recent latency grows the limit shrinks in
+ * proportion, at most by half at a time. Limit only grows while at least half of it is used, so the limit of the idle service does not drift up. When the
+ * latency drops well below the long term average, the long term average is decayed towards it, so the limit recovers after the latency spike.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	private static final double TOLERANCE = 1.5;
+	private static final double SMOOTHING = 0.2;
+	private static final int SHORT_WINDOW = 10;
+	private static final int LONG_WINDOW = 600;
+
+	private final int minLimit;
+	private final int maxLimit;
+
+	/**
+	 * State of the limit, guarded by this
+	 */
+	private double limit;
+	private int inFlight;
+	private double shortRtt;
+	private double longRtt;
+	private long samples;
+
+	/**
+	 * @param initialLimit - limit before any latency is measured
+	 * @param minLimit - lowest limit
+	 * @param maxLimit - highest limit, limit is fixed when it equals the lowest one
+	 */
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new RuntimeException("Concurrency limit must be positive and its maximum must not be lower than its minimum!");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	/**
+	 * @return true if the request is admitted, every admitted request must be released
+	 */
+	public synchronized boolean tryAcquire() {
+		if (inFlight >= (int) limit) {
+			return false;
+		}
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Release the admitted request and adapt the limit to its latency
+	 *
+	 * @param rttNanos - time the request was processed
+	 */
+	public synchronized void release(long rttNanos) {
+		int used = inFlight--;
+		long rtt = Math.max(1, rttNanos);
+		samples++;
+		shortRtt = samples == 1 ? rtt : shortRtt + (rtt - shortRtt) * 2 / (SHORT_WINDOW + 1);
+		longRtt = samples == 1 ? rtt : longRtt + (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+		if (longRtt > shortRtt * 2) {
+			longRtt *= 0.95;
+		}
+		if (used < limit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+		double newLimit = limit * gradient + Math.sqrt(limit);
+		limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+}
@@ -0,0 +1,172 @@
+package com.hotovo.cws.config;
+
+import com.hotovo.cws.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Admission control of the wallet API. Every endpoint class has its own concurrency limit, so overloaded currency endpoints waiting for prices do not
+ * hold back the endpoints served from the wallet store. Request over the limit of its class is rejected immediately with 503 and <tt>Retry-After</tt>
+ * header instead of waiting in the queue. Limits of the local and priced endpoints adapt to the measured latency, see {@link AdaptiveConcurrencyLimit},
+ * the limit of the long running bulk endpoints is fixed. Asynchronous requests are released when the asynchronous processing completes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.admission.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+	private static final String API = "/api/wallet";
+
+	enum EndpointClass {
+		/**
+		 * Endpoints served from the wallet store: get, list, create, update and delete
+		 */
+		LOCAL,
+		/**
+		 * Endpoints loading prices from CryptoCompare: currency buy, currency transfer and valuation
+		 */
+		PRICED,
+		/**
+		 * Long running streaming endpoints: export, import and transfer batch
+		 */
+		BULK
+	}
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@Value("${wallet.admission.local.initial-limit:100}")
+	private int localInitialLimit;
+
+	@Value("${wallet.admission.local.min-limit:10}")
+	private int localMinLimit;
+
+	@Value("${wallet.admission.local.max-limit:1000}")
+	private int localMaxLimit;
+
+	@Value("${wallet.admission.priced.initial-limit:20}")
+	private int pricedInitialLimit;
+
+	@Value("${wallet.admission.priced.min-limit:4}")
+	private int pricedMinLimit;
+
+	@Value("${wallet.admission.priced.max-limit:200}")
+	private int pricedMaxLimit;
+
+	@Value("${wallet.admission.bulk.limit:4}")
+	private int bulkLimit;
+
+	@Value("${wallet.admission.retry-after:1}")
+	private int retryAfterSeconds;
+
+	private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+
+	@PostConstruct
+	public void init() {
+		limits.put(EndpointClass.LOCAL, new AdaptiveConcurrencyLimit(localInitialLimit, localMinLimit, localMaxLimit));
+		limits.put(EndpointClass.PRICED, new AdaptiveConcurrencyLimit(pricedInitialLimit, pricedMinLimit, pricedMaxLimit));
+		limits.put(EndpointClass.BULK, new AdaptiveConcurrencyLimit(bulkLimit, bulkLimit, bulkLimit));
+		limits.forEach((endpointClass, limit) -> {
+			String label = label(endpointClass);
+			metricsRegistry.gauge("admission_limit", "Concurrency limit of the endpoint class", limit::getLimit, "endpoint_class", label);
+			metricsRegistry.gauge("admission_in_flight", "Requests of the endpoint class in progress", limit::getInFlight, "endpoint_class", label);
+			metricsRegistry.counter("admission_rejected_requests_total", "Requests rejected over the concurrency limit", "endpoint_class", label);
+		});
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		EndpointClass endpointClass = classify(request);
+		if (endpointClass == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+		if (!limit.tryAcquire()) {
+			reject(endpointClass, response);
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean async = false;
+		try {
+			filterChain.doFilter(request, response);
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						limit.release(System.nanoTime() - start);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+				async = true;
+			}
+		} finally {
+			if (!async) {
+				limit.release(System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * @return class of the wallet API endpoint, null for the requests outside of the wallet API
+	 */
+	EndpointClass classify(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (!path.startsWith(API)) {
+			return null;
+		}
+		if (path.endsWith("/export") || path.endsWith("/import") || path.endsWith("/currency-transfer/batch")) {
+			return EndpointClass.BULK;
+		}
+		if (path.endsWith("/currency-buy") || path.endsWith("/currency-transfer") || path.endsWith("/valuation")) {
+			return EndpointClass.PRICED;
+		}
+		return EndpointClass.LOCAL;
+	}
+
+	private void reject(EndpointClass endpointClass, HttpServletResponse response) throws IOException {
+		String label = label(endpointClass);
+		metricsRegistry.counter("admission_rejected_requests_total", "Requests rejected over the concurrency limit", "endpoint_class", label).increment();
+		log.debug("Request of {} endpoints rejected over the limit of {}", label, limits.get(endpointClass).getLimit());
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfterSeconds));
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.getOutputStream().write("Server is overloaded, please retry later!".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String label(EndpointClass endpointClass) {
+		return endpointClass.name().toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,74 @@
+package com.hotovo.cws.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.nio.charset.StandardCharsets;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Compact binary representations of the wallet API requests and responses besides JSON. Client chooses Smile or CBOR by the <tt>Accept</tt> header and
+ * sends binary request bodies with the matching <tt>Content-Type</tt>, JSON stays the default. Binary mappers are built by the same builder as the JSON
+ * mapper, so all formats share the same modules and settings. Smile writer also refers back to the repeated string values, e.g. currency symbols, instead
+ * of writing them again.
+ */
+@Configuration
+public class BinaryFormatConfiguration {
+
+	public static final String SMILE = "application/x-jackson-smile";
+
+	public static final String CBOR = "application/cbor";
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	/**
+	 * @return factory of the Smile parsers and generators used by the wallet API
+	 */
+	public static SmileFactory smileFactory() {
+		return new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+	}
+
+	/**
+	 * Plain text messages, e.g. transfer confirmation or error message, are written as text also to the clients accepting binary format, so their
+	 * <tt>Content-Type</tt> tells the client not to decode them as Smile or CBOR
+	 */
+	@ControllerAdvice
+	static class PlainTextMessageAdvice implements ResponseBodyAdvice<Object> {
+
+		private static final MediaType TEXT = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+		@Override
+		public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+			return StringHttpMessageConverter.class.isAssignableFrom(converterType);
+		}
+
+		@Override
+		public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+				Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+			if (MediaType.valueOf(SMILE).includes(selectedContentType) || MediaType.valueOf(CBOR).includes(selectedContentType)) {
+				response.getHeaders().setContentType(TEXT);
+			}
+			return body;
+		}
+	}
+}
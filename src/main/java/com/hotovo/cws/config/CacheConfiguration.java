@@ -1,17 +1,53 @@
 package com.hotovo.cws.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collections;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
+/**
+ * Bounded Caffeine caches (W-TinyLFU eviction) with statistics. Every cache is configured by Caffeine spec from <tt>cache.specs.&lt;name&gt;</tt>, caches
+ * without own spec use <tt>cache.default-spec</tt>.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
 	@Bean
-	public CacheManager cacheManager() {
-		return new ConcurrentMapCacheManager("wallets","currencies");
+	public CacheManager cacheManager(Environment environment, @Value("${cache.default-spec:maximumSize=10000,expireAfterAccess=1h}") String defaultSpec) {
+		Map<String, String> specs = Binder.get(environment)
+				.bind("cache.specs", Bindable.mapOf(String.class, String.class))
+				.orElseGet(Collections::emptyMap);
+		CaffeineCacheManager cacheManager = new SpecCaffeineCacheManager(specs, defaultSpec);
+		cacheManager.setCacheNames(specs.isEmpty() ? Collections.singleton("wallets") : specs.keySet());
+		return cacheManager;
+	}
+
+	private static class SpecCaffeineCacheManager extends CaffeineCacheManager {
+
+		private final Map<String, String> specs;
+
+		private final String defaultSpec;
+
+		SpecCaffeineCacheManager(Map<String, String> specs, String defaultSpec) {
+			this.specs = specs;
+			this.defaultSpec = defaultSpec;
+		}
+
+		@Override
+		protected Cache<Object, Object> createNativeCaffeineCache(String name) {
+			return Caffeine.from(specs.getOrDefault(name, defaultSpec))
+					.recordStats()
+					.build();
+		}
 	}
 }
@@ -0,0 +1,84 @@
+package com.hotovo.cws.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP clients used for the CryptoCompare integration. Both clients keep a bounded pool of keep-alive connections and every request is bounded by
+ * connect, pool acquire and read timeouts.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+	@Value("${crypto-compare.http.connect-timeout:2s}")
+	private Duration connectTimeout;
+
+	@Value("${crypto-compare.http.read-timeout:5s}")
+	private Duration readTimeout;
+
+	@Value("${crypto-compare.http.pool-acquire-timeout:1s}")
+	private Duration poolAcquireTimeout;
+
+	@Value("${crypto-compare.http.max-connections:50}")
+	private int maxConnections;
+
+	@Value("${crypto-compare.http.keep-alive:30s}")
+	private Duration keepAlive;
+
+	@Bean
+	public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+		return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+	}
+
+	@Bean
+	public CloseableHttpClient httpClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig())
+				.setKeepAliveStrategy((response, context) -> keepAlive.toMillis())
+				.evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * Non-blocking client, responses are processed on the I/O dispatcher threads of the client
+	 */
+	@Bean
+	public CloseableHttpAsyncClient httpAsyncClient() {
+		CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+				.setMaxConnTotal(maxConnections)
+				.setMaxConnPerRoute(maxConnections)
+				.setDefaultRequestConfig(requestConfig())
+				.setKeepAliveStrategy((response, context) -> keepAlive.toMillis())
+				.setDefaultIOReactorConfig(IOReactorConfig.custom()
+						// timeouts are checked once per select interval, keep it well below the read timeout
+						.setSelectInterval(Math.max(10, Math.min(1000, readTimeout.toMillis() / 4)))
+						.build())
+				.build();
+		httpAsyncClient.start();
+		return httpAsyncClient;
+	}
+
+	private RequestConfig requestConfig() {
+		return RequestConfig.custom()
+				.setConnectTimeout((int) connectTimeout.toMillis())
+				.setConnectionRequestTimeout((int) poolAcquireTimeout.toMillis())
+				.setSocketTimeout((int) readTimeout.toMillis())
+				.build();
+	}
+}
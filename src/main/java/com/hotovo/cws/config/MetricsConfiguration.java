@@ -0,0 +1,94 @@
+package com.hotovo.cws.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.hotovo.cws.client.CryptoCompareClient;
+import com.hotovo.cws.metrics.MetricsRegistry;
+import com.hotovo.cws.repository.WalletRepository;
+import com.hotovo.cws.service.IdempotencyStore;
+import com.hotovo.cws.service.SymbolRegistry;
+import com.hotovo.cws.service.TransactionHistory;
+import com.hotovo.cws.service.price.PriceBook;
+import com.hotovo.cws.service.price.PriceCache;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges of the application state read on every export of the metrics: number of stored wallets, known currency symbols, quotes in the price book,
+ * remembered idempotency keys, state of the CryptoCompare circuit and statistics of the caches. Caffeine caches and the price cache are exported with the
+ * same metric names, distinguished by the <tt>cache</tt> label.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+	private static final String CACHE = "cache";
+	private static final String PRICES = "prices";
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private PriceCache priceCache;
+
+	@Autowired(required = false)
+	private PriceBook priceBook;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private SymbolRegistry symbolRegistry;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private CryptoCompareClient cryptoCompareClient;
+
+	@Autowired
+	private TransactionHistory transactionHistory;
+
+	@PostConstruct
+	public void registerGauges() {
+		metricsRegistry.gauge("wallet_store_wallets", "Number of stored wallets", walletRepository::count);
+		metricsRegistry.gauge("currency_symbols", "Number of currency symbols known from CryptoCompare", symbolRegistry::size);
+		metricsRegistry.gauge("idempotency_keys", "Number of remembered idempotency keys", idempotencyStore::size);
+		metricsRegistry.gauge("wallet_history_wallets", "Number of wallets with transaction history", transactionHistory::size);
+		metricsRegistry.gauge("crypto_compare_circuit_state", "State of the CryptoCompare circuit, 0 closed, 1 half open, 2 open",
+				() -> cryptoCompareClient.getCircuitState().ordinal());
+		metricsRegistry.gauge("crypto_compare_calls_in_progress", "Number of CryptoCompare calls in progress", cryptoCompareClient::getCallsInProgress);
+		if (priceBook != null) {
+			metricsRegistry.gauge("price_book_quotes", "Number of symbols quoted in the price book", priceBook::size);
+		}
+
+		for (String name : cacheManager.getCacheNames()) {
+			org.springframework.cache.Cache cache = cacheManager.getCache(name);
+			if (cache instanceof CaffeineCache) {
+				Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+				metricsRegistry.counter("cache_hits_total", "Cache lookups with cached value", () -> nativeCache.stats().hitCount(), CACHE, name);
+				metricsRegistry.counter("cache_misses_total", "Cache lookups without cached value", () -> nativeCache.stats().missCount(), CACHE, name);
+				metricsRegistry.gauge("cache_hit_ratio", "Ratio of the cache lookups with cached value", () -> nativeCache.stats().hitRate(), CACHE, name);
+				metricsRegistry.gauge("cache_size", "Estimated number of cached entries", nativeCache::estimatedSize, CACHE, name);
+			}
+		}
+
+		metricsRegistry.counter("cache_hits_total", "Cache lookups with cached value", () -> priceCache.getStats().getHits(), CACHE, PRICES);
+		metricsRegistry.counter("cache_misses_total", "Cache lookups without cached value", () -> priceCache.getStats().getMisses(), CACHE, PRICES);
+		metricsRegistry.gauge("cache_hit_ratio", "Ratio of the cache lookups with cached value", this::priceHitRatio, CACHE, PRICES);
+		metricsRegistry.gauge("cache_size", "Estimated number of cached entries", () -> priceCache.getStats().getSize(), CACHE, PRICES);
+		metricsRegistry.counter("price_cache_stale_hits_total", "Prices returned after failed load within max staleness",
+				() -> priceCache.getStats().getStaleHits());
+		metricsRegistry.counter("price_cache_load_failures_total", "Failed loads of the prices", () -> priceCache.getStats().getLoadFailures());
+	}
+
+	private double priceHitRatio() {
+		PriceCache.Stats stats = priceCache.getStats();
+		long lookups = stats.getHits() + stats.getMisses();
+		return lookups == 0 ? 1.0 : (double) stats.getHits() / lookups;
+	}
+}
@@ -0,0 +1,65 @@
+package com.hotovo.cws.config;
+
+import com.hotovo.cws.metrics.MetricsRegistry;
+import java.io.IOException;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records latency of every HTTP request by the method, the matched endpoint pattern and the response status. Asynchronous requests are recorded when the
+ * asynchronous processing completes, not when the request thread returns.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long start = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						record(request, response, start);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			} else {
+				record(request, response, start);
+			}
+		}
+	}
+
+	private void record(HttpServletRequest request, HttpServletResponse response, long start) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		metricsRegistry.timer("http_server_requests_seconds", "Latency of the HTTP requests",
+				"method", request.getMethod(),
+				"uri", pattern != null ? pattern.toString() : "UNKNOWN",
+				"status", Integer.toString(response.getStatus())).recordSince(start);
+	}
+}
@@ -0,0 +1,54 @@
+package com.hotovo.cws.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hotovo.cws.controller.dto.CacheStatistics;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(value = "/api/cache")
+public class CacheController {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@ApiOperation(value = "R-get-cache-stats",
+			notes = "Get size, hit rate, eviction count and load time of every application cache",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponse(code = 200, message = "Cache statistics by cache name")
+	@GetMapping(value = "/stats")
+	public Map<String, CacheStatistics> getCacheStatistics() {
+		Map<String, CacheStatistics> statistics = new TreeMap<>();
+		for (String name : cacheManager.getCacheNames()) {
+			org.springframework.cache.Cache cache = cacheManager.getCache(name);
+			if (cache instanceof CaffeineCache) {
+				statistics.put(name, toStatistics(((CaffeineCache) cache).getNativeCache()));
+			}
+		}
+		return statistics;
+	}
+
+	private CacheStatistics toStatistics(Cache<Object, Object> cache) {
+		CacheStats stats = cache.stats();
+		return CacheStatistics.builder()
+				.size(cache.estimatedSize())
+				.hitCount(stats.hitCount())
+				.missCount(stats.missCount())
+				.hitRate(stats.hitRate())
+				.evictionCount(stats.evictionCount())
+				.loadCount(stats.loadCount())
+				.averageLoadPenaltyNanos(stats.averageLoadPenalty())
+				.totalLoadTimeNanos(stats.totalLoadTime())
+				.build();
+	}
+}
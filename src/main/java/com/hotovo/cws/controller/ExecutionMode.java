@@ -0,0 +1,17 @@
+package com.hotovo.cws.controller;
+
+/**
+ * Execution of the currency buy and transfer requests, configured by <tt>wallet.execution-mode</tt>
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Request is processed by the servlet thread, which waits for the price
+	 */
+	BLOCKING,
+
+	/**
+	 * Servlet thread is released while the price is loaded, request is completed by the thread completing the price
+	 */
+	ASYNC
+}
@@ -0,0 +1,32 @@
+package com.hotovo.cws.controller;
+
+import com.hotovo.cws.metrics.MetricsRegistry;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(value = "/actuator")
+public class MetricsController {
+
+	private static final String PROMETHEUS_TEXT = "text/plain;version=0.0.4;charset=utf-8";
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@ApiOperation(value = "R-get-metrics",
+			notes = "Get request latencies, CryptoCompare call latencies and errors, cache hit ratios, transfer failures and wallet store size "
+					+ "in the Prometheus text format",
+			produces = PROMETHEUS_TEXT)
+	@ApiResponse(code = 200, message = "Metrics in the Prometheus text format")
+	@GetMapping(value = "/prometheus", produces = PROMETHEUS_TEXT)
+	public String getMetrics() throws IOException {
+		StringBuilder metrics = new StringBuilder(16 * 1024);
+		metricsRegistry.writeTo(metrics);
+		return metrics.toString();
+	}
+}
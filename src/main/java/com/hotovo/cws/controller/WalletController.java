@@ -1,21 +1,48 @@
 package com.hotovo.cws.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.hotovo.cws.controller.dto.CurrencyBuyRequest;
 import com.hotovo.cws.controller.dto.CurrencyTransferRequest;
+import com.hotovo.cws.controller.dto.PortfolioValuation;
+import com.hotovo.cws.controller.dto.TransactionHistoryPage;
+import com.hotovo.cws.controller.dto.TransferBatchMode;
+import com.hotovo.cws.controller.dto.TransferResult;
+import com.hotovo.cws.controller.dto.WalletCursorPage;
+import com.hotovo.cws.controller.dto.WalletImportResult;
 import com.hotovo.cws.controller.dto.WalletRequest;
 import com.hotovo.cws.domain.Currency;
 import com.hotovo.cws.domain.Wallet;
 import com.hotovo.cws.service.CurrencyService;
+import com.hotovo.cws.service.IdempotencyKeyException;
+import com.hotovo.cws.service.IdempotencyStore;
+import com.hotovo.cws.service.PortfolioService;
 import com.hotovo.cws.service.WalletService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -29,21 +56,42 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @RestController
 @RequestMapping(value = "/api/wallet")
 public class WalletController {
 
+	private static final String NDJSON = "application/x-ndjson";
+
+	private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
 	@Autowired
 	private WalletService walletService;
 
 	@Autowired
 	private CurrencyService currencyService;
 
+	@Autowired
+	private PortfolioService portfolioService;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Value("${wallet.execution-mode:blocking}")
+	private ExecutionMode executionMode;
+
+	@Value("${wallet.transfer-batch.max-size:100000}")
+	private int maxBatchSize;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@ApiOperation(value = "R-get-wallet",
 			notes = "Get a wallet by its id",
 			produces = MediaType.APPLICATION_JSON_VALUE)
@@ -75,7 +123,7 @@ public class WalletController {
 					.filter(currency -> currencyService.isCurrencyValid(currency.getSymbol()))
 					.collect(Collectors.toSet());
 			wallet.setCurrencies(validCurrencies);
-			log.info("wallet request currencies{}", validCurrencies.toString());
+			log.debug("wallet request currencies{}", validCurrencies.toString());
 			return ResponseEntity.ok(walletService.createWallet(wallet));
 		} catch (Exception e) {
 			return ResponseEntity.badRequest().body(e.getMessage());
@@ -118,47 +166,146 @@ public class WalletController {
 
 	@ApiOperation(value = "R-currency-buy",
 			notes = "Transfer specified amount of particular currency on the wallet specified by id.\n"
-					+ "User can also specify destination currency, conversion will be done based on the real-time data from https://www.cryptocompare.com/",
+					+ "User can also specify destination currency, conversion will be done based on the real-time data from https://www.cryptocompare.com/\n"
+					+ "Request repeated with the same Idempotency-Key header is not executed again, response of the first request is returned",
 			produces = MediaType.APPLICATION_JSON_VALUE)
 	@ApiResponses(value = {
 			@ApiResponse(code = 200, message = "Wallet with the currency changes", response = Wallet.class),
 			@ApiResponse(code = 404, message = "Price for currency not found or not valid"),
-			@ApiResponse(code = 400, message = "Request not valid please check requested parameters")})
+			@ApiResponse(code = 400, message = "Request not valid please check requested parameters"),
+			@ApiResponse(code = 422, message = "Idempotency key already used for a different request")})
 	@PostMapping(value = "/{id}/currency-buy")
-	public ResponseEntity buyCurrency(@Valid @RequestBody CurrencyBuyRequest request) {
+	public CompletableFuture<ResponseEntity> buyCurrency(@Valid @RequestBody CurrencyBuyRequest request,
+			@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 		log.debug("Request for CURRENCY BUY wallet with id {} currency {} amount {} destCurrency {}",
 				request.getId(), request.getCurrency(), request.getAmount(), request.getDestCurrency());
+		return idempotent("currency-buy", idempotencyKey, request, () -> buy(request));
+	}
+
+	private CompletableFuture<ResponseEntity> buy(CurrencyBuyRequest request) {
 		try {
 			Wallet sourceWallet = walletService.getWalletInformation(request.getId());
-			return ResponseEntity.ok(currencyService.buyCurrency(request.getCurrency(), request.getAmount(), request.getDestCurrency(), sourceWallet));
+			if (executionMode == ExecutionMode.ASYNC) {
+				return currencyService.buyCurrencyAsync(request.getCurrency(), request.getAmount(), request.getDestCurrency(), sourceWallet)
+						.<ResponseEntity>thenApply(ResponseEntity::ok)
+						.exceptionally(this::notFound);
+			}
+			return CompletableFuture.completedFuture(
+					ResponseEntity.ok(currencyService.buyCurrency(request.getCurrency(), request.getAmount(), request.getDestCurrency(), sourceWallet)));
 		} catch (Exception e) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+			return CompletableFuture.completedFuture(notFound(e));
 		}
 	}
 
 	@ApiOperation(value = "R-currency-transfer",
 			notes = "Transfer specified amount of particular currency between source and destination wallet specified by their id's.\n"
-					+ "User can also specify destination currency, conversion will be done based on the real-time data from https://www.cryptocompare.com/",
+					+ "User can also specify destination currency, conversion will be done based on the real-time data from https://www.cryptocompare.com/\n"
+					+ "Request repeated with the same Idempotency-Key header is not executed again, response of the first request is returned",
 			produces = MediaType.APPLICATION_JSON_VALUE)
 	@ApiResponses(value = {
 			@ApiResponse(code = 200, message = "Currency transfer success"),
 			@ApiResponse(code = 404, message = "Source or destination not found, or price for currency not found or not valid"),
-			@ApiResponse(code = 400, message = "Request not valid or currency transfer failed")})
+			@ApiResponse(code = 400, message = "Request not valid or currency transfer failed"),
+			@ApiResponse(code = 422, message = "Idempotency key already used for a different request")})
 	@PostMapping(value = "/currency-transfer")
-	public ResponseEntity transferCurrency(@Valid @RequestBody CurrencyTransferRequest request) {
+	public CompletableFuture<ResponseEntity> transferCurrency(@Valid @RequestBody CurrencyTransferRequest request,
+			@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
 		log.debug("Request for CURRENCY TRANSFER from wallet with id {} currency {} amount {} \n"
 						+ "to destination wallet with id {} currency {}", request.getSrcId(), request.getSrcCurrency(), request.getSrcAmount(), request.getDestId(),
 				request.getDestCurrency());
 
+		return idempotent("currency-transfer", idempotencyKey, request, () -> transfer(request));
+	}
+
+	private CompletableFuture<ResponseEntity> transfer(CurrencyTransferRequest request) {
 		try {
 			Wallet sourceWallet = walletService.getWalletInformation(request.getSrcId());
 			Wallet destinationWallet = walletService.getWalletInformation(request.getDestId());
 
+			if (executionMode == ExecutionMode.ASYNC) {
+				return currencyService.transferCurrencyAsync(sourceWallet, request.getSrcCurrency(), request.getSrcAmount(), destinationWallet,
+						request.getDestCurrency())
+						.<ResponseEntity>thenApply(ignored -> ResponseEntity.ok("Currency transfer success"))
+						.exceptionally(this::notFound);
+			}
 			currencyService.transferCurrency(sourceWallet, request.getSrcCurrency(), request.getSrcAmount(), destinationWallet, request.getDestCurrency());
-			return ResponseEntity.ok("Currency transfer success");
+			return CompletableFuture.completedFuture(ResponseEntity.ok("Currency transfer success"));
 		} catch (Exception e) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+			return CompletableFuture.completedFuture(notFound(e));
+		}
+	}
+
+	@ApiOperation(value = "R-currency-transfer-batch",
+			notes = "Transfer currencies for the list of transfers in one request. Price of every distinct currency pair is loaded once for the whole batch.\n"
+					+ "Mode PER_ITEM applies every transfer on its own, mode ALL_OR_NOTHING applies either all transfers or none of them.\n"
+					+ "Results are streamed as newline delimited JSON, one line per transfer in the order of the request",
+			produces = NDJSON)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Results of the transfers", response = TransferResult.class, responseContainer = "List"),
+			@ApiResponse(code = 400, message = "Request not valid please check requested parameters")})
+	@PostMapping(value = "/currency-transfer/batch", produces = {NDJSON, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<StreamingResponseBody> transferCurrencies(
+			@RequestParam(value = "mode", required = false, defaultValue = "PER_ITEM") TransferBatchMode mode,
+			@RequestBody List<CurrencyTransferRequest> requests) {
+		log.debug("Request for CURRENCY TRANSFER BATCH of {} transfers in mode {}", requests.size(), mode);
+		if (requests.isEmpty() || requests.size() > maxBatchSize) {
+			byte[] message = ("Transfer batch must contain from 1 to " + maxBatchSize + " transfers!").getBytes(StandardCharsets.UTF_8);
+			return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+		}
+		ObjectWriter writer = objectMapper.writerFor(TransferResult.class);
+		StreamingResponseBody body = out -> currencyService.transferCurrencies(requests, mode, result -> {
+			try {
+				out.write(writer.writeValueAsBytes(result));
+				out.write('\n');
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+	}
+
+	@ApiOperation(value = "R-export-wallets",
+			notes = "Export all wallets ordered by id as newline delimited JSON, one wallet per line. Wallets are written while they are read",
+			produces = NDJSON)
+	@ApiResponse(code = 200, message = "All wallets", response = Wallet.class, responseContainer = "List")
+	@GetMapping(value = "/export", produces = {NDJSON, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<StreamingResponseBody> exportWallets() {
+		log.debug("Request for EXPORT of all wallets");
+		ObjectWriter writer = objectMapper.writerFor(Wallet.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		StreamingResponseBody body = out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+				generator.setRootValueSeparator(null);
+				walletService.exportWallets(wallet -> {
+					try {
+						writer.writeValue(generator, wallet);
+						generator.writeRaw('\n');
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+	}
+
+	@ApiOperation(value = "R-import-wallets",
+			notes = "Import wallets from newline delimited JSON in the format of the export, one wallet per line. Every wallet gets new id, "
+					+ "wallets already existing are skipped and invalid currencies are left out",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Number of imported, duplicate and invalid wallets", response = WalletImportResult.class),
+			@ApiResponse(code = 400, message = "Import stopped on malformed line, wallets before the line are imported", response = WalletImportResult.class)})
+	@PostMapping(value = "/import", consumes = {NDJSON, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity importWallets(InputStream in) {
+		log.debug("Request for IMPORT of wallets");
+		try (MappingIterator<WalletRequest> requests = objectMapper.readerFor(WalletRequest.class)
+				.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+				.readValues(in)) {
+			WalletImportResult result = walletService.importWallets(requests);
+			return result.getError() == null ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+		} catch (Exception e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
 		}
 	}
 
@@ -173,4 +320,186 @@ public class WalletController {
 		return walletService.fetchWallets(pageable);
 	}
 
+	@ApiOperation(value = "R-get-wallets-after",
+			notes = "Get wallet entries ordered by id with cursor paging, the cursor is id of the last wallet of the previous page (empty for the first page).\n"
+					+ "Cost of the page does not depend on its position",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Wallet entries with the cursor of the next page", response = WalletCursorPage.class),
+			@ApiResponse(code = 400, message = "Request not valid please check requested parameters")})
+	@GetMapping(value = "/list", params = "after")
+	public ResponseEntity getWalletsAfter(@RequestParam(value = "after", required = false) Long after,
+			@RequestParam(value = "size", required = false, defaultValue = "10") Integer size) {
+		try {
+			return ResponseEntity.ok(walletService.fetchWalletsAfter(after, size));
+		} catch (Exception e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@ApiOperation(value = "R-get-wallet-history",
+			notes = "Get transactions of the wallet within the time range, the newest first, with cursor paging. The cursor is sequence of the last transaction "
+					+ "of the previous page (empty for the first page). Time range is given by ISO-8601 instants, <tt>from</tt> inclusive and <tt>to</tt> "
+					+ "exclusive, both optional. History is kept in memory, transactions before the last restart of the service are not returned",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Transactions with the cursor of the next page", response = TransactionHistoryPage.class),
+			@ApiResponse(code = 404, message = "Wallet not found"),
+			@ApiResponse(code = 400, message = "Request not valid please check requested parameters")})
+	@GetMapping(value = "/{id}/history")
+	public ResponseEntity getWalletHistory(@PathVariable("id") @NotNull Long id,
+			@RequestParam(value = "from", required = false) Instant from,
+			@RequestParam(value = "to", required = false) Instant to,
+			@RequestParam(value = "before", required = false) Long before,
+			@RequestParam(value = "size", required = false, defaultValue = "50") Integer size) {
+		log.debug("Request for HISTORY of wallet with id {} from {} to {}", id, from, to);
+		if (size < 1) {
+			return ResponseEntity.badRequest().body("Page size must not be less than one!");
+		}
+		try {
+			return ResponseEntity.ok(walletService.fetchHistory(id, from, to, before, size));
+		} catch (Exception e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+		}
+	}
+
+	@ApiOperation(value = "R-get-wallet-valuation",
+			notes = "Get value of the wallet in the target currency, conversion is done based on the real-time data from https://www.cryptocompare.com/",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Value of the wallet", response = PortfolioValuation.class),
+			@ApiResponse(code = 404, message = "Wallet not found"),
+			@ApiResponse(code = 400, message = "Target currency not valid")})
+	@GetMapping(value = "/{id}/valuation")
+	public ResponseEntity getWalletValuation(@PathVariable("id") @NotNull Long id,
+			@RequestParam(value = "currency", required = false, defaultValue = "USD") String currency) {
+		log.debug("Request for VALUATION of wallet with id {} in {}", id, currency);
+		return valuation(currency, () -> portfolioService.valueWallets(Collections.singletonList(id), currency));
+	}
+
+	@ApiOperation(value = "R-wallets-valuation",
+			notes = "Get value of every requested wallet and their total in the target currency. Price of every distinct currency is loaded once",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Value of every wallet and their total", response = PortfolioValuation.class),
+			@ApiResponse(code = 404, message = "Wallet not found"),
+			@ApiResponse(code = 400, message = "Target currency not valid")})
+	@PostMapping(value = "/valuation")
+	public ResponseEntity getWalletsValuation(@RequestBody @NotNull List<Long> ids,
+			@RequestParam(value = "currency", required = false, defaultValue = "USD") String currency) {
+		log.debug("Request for VALUATION of {} wallets in {}", ids.size(), currency);
+		return valuation(currency, () -> portfolioService.valueWallets(ids, currency));
+	}
+
+	@ApiOperation(value = "R-store-valuation",
+			notes = "Get total value of all wallets in the target currency. Price of every distinct currency is loaded once",
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Total value of all wallets", response = PortfolioValuation.class),
+			@ApiResponse(code = 400, message = "Target currency not valid")})
+	@GetMapping(value = "/valuation")
+	public ResponseEntity getStoreValuation(@RequestParam(value = "currency", required = false, defaultValue = "USD") String currency) {
+		log.debug("Request for VALUATION of all wallets in {}", currency);
+		return valuation(currency, () -> portfolioService.valueAll(currency));
+	}
+
+	private ResponseEntity valuation(String currency, Supplier<PortfolioValuation> valuation) {
+		try {
+			if (!currencyService.isCurrencyValid(currency)) {
+				return ResponseEntity.badRequest().body("Currency " + currency + " is not valid!");
+			}
+		} catch (Exception e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		try {
+			return ResponseEntity.ok(valuation.get());
+		} catch (Exception e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+		}
+	}
+
+	/**
+	 * Execute the request unless it was already executed with the same idempotency key, the response of the first execution is returned instead. Only
+	 * successful responses are remembered, request which failed is executed again when it is repeated. Response body other than text is serialized to
+	 * format independent tokens when the request is executed, so the repeated response does not show later changes of the wallet and its format is
+	 * negotiated for every request. Request is compared to the first request with the key by the hash of its JSON serialization.
+	 */
+	private CompletableFuture<ResponseEntity> idempotent(String operation, String idempotencyKey, Object request,
+			Supplier<CompletableFuture<ResponseEntity>> execution) {
+		if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+			return execution.get();
+		}
+		byte[] serializedRequest;
+		try {
+			serializedRequest = objectMapper.writeValueAsBytes(request);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return idempotencyStore.execute(operation + ":" + idempotencyKey, serializedRequest, () -> execution.get().thenApply(this::stored))
+				.thenApply(StoredResponse::toResponse)
+				.exceptionally(e -> {
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof IdempotencyKeyException) {
+						return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(cause.getMessage());
+					}
+					if (cause instanceof FailedResponseException) {
+						return ((FailedResponseException) cause).response;
+					}
+					return notFound(cause);
+				});
+	}
+
+	private StoredResponse stored(ResponseEntity response) {
+		if (!response.getStatusCode().is2xxSuccessful()) {
+			throw new FailedResponseException(response);
+		}
+		Object body = response.getBody();
+		if (body == null || body instanceof String) {
+			return new StoredResponse(response.getStatusCodeValue(), body);
+		}
+		try (TokenBuffer tokens = new TokenBuffer(objectMapper, false)) {
+			objectMapper.writeValue(tokens, body);
+			return new StoredResponse(response.getStatusCodeValue(), tokens);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ResponseEntity notFound(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(cause.getMessage());
+	}
+
+	/**
+	 * Successful response remembered by its idempotency key, only the status and the body are kept: text body as it is, other bodies as Jackson tokens
+	 * written by the message converter negotiated for the request
+	 */
+	private static final class StoredResponse {
+
+		private final int status;
+
+		private final Object body;
+
+		StoredResponse(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		ResponseEntity toResponse() {
+			return ResponseEntity.status(status).body(body);
+		}
+	}
+
+	/**
+	 * Request failed with the response, the failure is not remembered by the idempotency store
+	 */
+	private static final class FailedResponseException extends RuntimeException {
+
+		private final transient ResponseEntity response;
+
+		FailedResponseException(ResponseEntity response) {
+			super("Request failed with status " + response.getStatusCodeValue(), null, false, false);
+			this.response = response;
+		}
+	}
 }
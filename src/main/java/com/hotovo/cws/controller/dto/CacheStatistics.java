@@ -0,0 +1,26 @@
+package com.hotovo.cws.controller.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class CacheStatistics {
+
+	private final long size;
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final double hitRate;
+
+	private final long evictionCount;
+
+	private final long loadCount;
+
+	private final double averageLoadPenaltyNanos;
+
+	private final long totalLoadTimeNanos;
+
+}
@@ -0,0 +1,37 @@
+package com.hotovo.cws.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.util.List;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Total value of the wallets in the target currency
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class PortfolioValuation {
+
+	/**
+	 * Currency of the values
+	 */
+	private final String currency;
+
+	private final double total;
+
+	private final long walletCount;
+
+	/**
+	 * Value of every wallet, <tt>null</tt> when the whole store is valued
+	 */
+	private final List<WalletValuation> wallets;
+
+	/**
+	 * Currencies without price in the target currency, their balances are not included in the values
+	 */
+	private final Set<String> unpricedCurrencies;
+
+}
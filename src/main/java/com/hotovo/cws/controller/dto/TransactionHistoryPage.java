@@ -0,0 +1,21 @@
+package com.hotovo.cws.controller.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TransactionHistoryPage {
+
+	/**
+	 * Transactions of the page, the newest first
+	 */
+	private final List<WalletTransaction> content;
+
+	/**
+	 * Cursor of the next page, <tt>null</tt> if this is the last page
+	 */
+	private final Long nextCursor;
+
+}
@@ -0,0 +1,17 @@
+package com.hotovo.cws.controller.dto;
+
+/**
+ * Semantics of a transfer batch, selected per request
+ */
+public enum TransferBatchMode {
+
+	/**
+	 * Every transfer is applied on its own, failed transfers do not affect the others
+	 */
+	PER_ITEM,
+
+	/**
+	 * Either all transfers are applied or none of them
+	 */
+	ALL_OR_NOTHING
+}
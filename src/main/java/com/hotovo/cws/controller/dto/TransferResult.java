@@ -0,0 +1,39 @@
+package com.hotovo.cws.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of one transfer of a batch
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class TransferResult {
+
+	/**
+	 * Index of the transfer in the batch
+	 */
+	private final int index;
+
+	private final Status status;
+
+	/**
+	 * Reason of the failure, <tt>null</tt> for applied transfer
+	 */
+	private final String message;
+
+	public enum Status {
+
+		APPLIED,
+
+		FAILED,
+
+		/**
+		 * Transfer was not applied because other transfer of all-or-nothing batch failed
+		 */
+		ABORTED
+	}
+}
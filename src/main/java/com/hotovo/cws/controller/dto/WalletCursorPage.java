@@ -0,0 +1,19 @@
+package com.hotovo.cws.controller.dto;
+
+import com.hotovo.cws.domain.Wallet;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class WalletCursorPage {
+
+	private final List<Wallet> content;
+
+	/**
+	 * Cursor of the next page, <tt>null</tt> if this is the last page
+	 */
+	private final Long nextCursor;
+
+}
@@ -0,0 +1,26 @@
+package com.hotovo.cws.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class WalletImportResult {
+
+	private final long imported;
+
+	/**
+	 * Wallets not imported because wallet with the same name, private and public key already exists
+	 */
+	private final long duplicates;
+
+	/**
+	 * Wallets not imported because the name, private or public key is missing
+	 */
+	private final long invalid;
+
+	/**
+	 * Reason why the import stopped before the end of the input, <tt>null</tt> if the whole input was imported
+	 */
+	private final String error;
+}
@@ -0,0 +1,69 @@
+package com.hotovo.cws.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One change of the wallet balance
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class WalletTransaction {
+
+	/**
+	 * Sequence of the transaction within its wallet
+	 */
+	private final long sequence;
+
+	private final Instant time;
+
+	private final Type type;
+
+	/**
+	 * Symbol of the currency of the wallet changed by the transaction
+	 */
+	private final String currency;
+
+	/**
+	 * Withdrawn or deposited amount of the currency
+	 */
+	private final double amount;
+
+	/**
+	 * Symbol of the other currency of the conversion: the currency deposited to the counterparty for debit, the currency withdrawn from the counterparty
+	 * for credit and the currency converted to the bought one for buy
+	 */
+	private final String counterCurrency;
+
+	/**
+	 * Id of the other wallet of the transfer, <tt>null</tt> for buy
+	 */
+	private final Long counterpartyWalletId;
+
+	/**
+	 * Applied conversion price from the withdrawn to the deposited currency
+	 */
+	private final double price;
+
+	public enum Type {
+
+		/**
+		 * Currency withdrawn by transfer to other wallet
+		 */
+		DEBIT,
+
+		/**
+		 * Currency deposited by transfer from other wallet
+		 */
+		CREDIT,
+
+		/**
+		 * Currency bought to the wallet
+		 */
+		BUY
+	}
+}
@@ -0,0 +1,17 @@
+package com.hotovo.cws.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Value of one wallet in the target currency
+ */
+@Getter
+@AllArgsConstructor
+public class WalletValuation {
+
+	private final Long walletId;
+
+	private final double value;
+
+}
@@ -0,0 +1,199 @@
+package com.hotovo.cws.domain;
+
+import java.util.Arrays;
+
+/**
+ * Compact balance table of one wallet. Currencies are stored as symbol ids from {@link SymbolTable} and amounts as fixed-point longs with 8 decimal places,
+ * so reading and changing a balance does not allocate and repeated changes do not accumulate floating-point errors.
+ * <p>
+ * Changes have to be done under the wallet lock. Arrays are only ever replaced by the arrays of the same or bigger capacity and the size is published last, so
+ * readers without the lock never index outside of the table, although they may see it already outdated.
+ */
+public class Balances {
+
+	/**
+	 * Number of units in one whole currency amount
+	 */
+	public static final long SCALE = 100_000_000L;
+
+	private static final double MAX_AMOUNT = (double) Long.MAX_VALUE / SCALE;
+
+	private int[] symbolIds = new int[4];
+
+	private long[] units = new long[4];
+
+	private volatile int size;
+
+	/**
+	 * Convert currency amount to fixed-point units
+	 *
+	 * @param amount - currency amount
+	 * @return amount in units rounded to the nearest unit
+	 * @throws RuntimeException if the amount is not a valid number or can not be represented
+	 */
+	public static long toUnits(double amount) {
+		if (Double.isNaN(amount) || Math.abs(amount) >= MAX_AMOUNT) {
+			throw new RuntimeException("Currency amount " + amount + " is not valid!");
+		}
+		return Math.round(amount * SCALE);
+	}
+
+	/**
+	 * Convert fixed-point units to currency amount
+	 *
+	 * @param units - amount in units
+	 * @return currency amount
+	 */
+	public static double toAmount(long units) {
+		return (double) units / SCALE;
+	}
+
+	/**
+	 * @return number of currencies in the table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param symbolId - currency symbol id
+	 * @return <tt>true</tt> if the table contains the currency
+	 */
+	public boolean contains(int symbolId) {
+		return indexOf(symbolId) >= 0;
+	}
+
+	/**
+	 * @param symbolId - currency symbol id
+	 * @return balance of the currency in units, zero if the table does not contain the currency
+	 */
+	public long get(int symbolId) {
+		int index = indexOf(symbolId);
+		return index < 0 ? 0 : units[index];
+	}
+
+	/**
+	 * Add the units to the currency balance, currency is added to the table if it is missing
+	 *
+	 * @param symbolId - currency symbol id
+	 * @param delta - units to be added
+	 */
+	public void add(int symbolId, long delta) {
+		int index = indexOf(symbolId);
+		if (index >= 0) {
+			units[index] = Math.addExact(units[index], delta);
+		} else {
+			append(symbolId, delta);
+		}
+	}
+
+	/**
+	 * Withdraw the units from the currency balance if the balance is high enough
+	 *
+	 * @param symbolId - currency symbol id
+	 * @param delta - units to be withdrawn
+	 * @return <tt>false</tt> if the table does not contain the currency or its balance is lower than requested units
+	 */
+	public boolean tryWithdraw(int symbolId, long delta) {
+		int index = indexOf(symbolId);
+		if (index < 0 || units[index] < delta) {
+			return false;
+		}
+		units[index] -= delta;
+		return true;
+	}
+
+	/**
+	 * Add the currency with its balance to the table
+	 *
+	 * @param symbolId - currency symbol id
+	 * @param balance - balance of the currency in units
+	 * @return <tt>false</tt> if the table already contains the currency
+	 */
+	public boolean put(int symbolId, long balance) {
+		if (contains(symbolId)) {
+			return false;
+		}
+		append(symbolId, balance);
+		return true;
+	}
+
+	/**
+	 * Remove the currency from the table
+	 *
+	 * @param symbolId - currency symbol id
+	 * @return <tt>false</tt> if the table does not contain the currency
+	 */
+	public boolean remove(int symbolId) {
+		int index = indexOf(symbolId);
+		if (index < 0) {
+			return false;
+		}
+		int count = size;
+		int[] newSymbolIds = new int[symbolIds.length];
+		long[] newUnits = new long[units.length];
+		System.arraycopy(symbolIds, 0, newSymbolIds, 0, index);
+		System.arraycopy(units, 0, newUnits, 0, index);
+		System.arraycopy(symbolIds, index + 1, newSymbolIds, index, count - index - 1);
+		System.arraycopy(units, index + 1, newUnits, index, count - index - 1);
+		symbolIds = newSymbolIds;
+		units = newUnits;
+		size = count - 1;
+		return true;
+	}
+
+	/**
+	 * Remove all currencies from the table
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param index - position in the table, lower than {@link #size()}
+	 * @return symbol id at the position
+	 */
+	public int symbolIdAt(int index) {
+		return symbolIds[index];
+	}
+
+	/**
+	 * @param index - position in the table, lower than {@link #size()}
+	 * @return balance in units at the position
+	 */
+	public long unitsAt(int index) {
+		return units[index];
+	}
+
+	private int indexOf(int symbolId) {
+		int count = size;
+		int[] ids = symbolIds;
+		for (int i = 0; i < count; i++) {
+			if (ids[i] == symbolId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void append(int symbolId, long balance) {
+		int count = size;
+		if (count == symbolIds.length) {
+			symbolIds = Arrays.copyOf(symbolIds, count * 2);
+			units = Arrays.copyOf(units, count * 2);
+		}
+		symbolIds[count] = symbolId;
+		units[count] = balance;
+		size = count + 1;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		int count = size;
+		for (int i = 0; i < count; i++) {
+			builder.append(i == 0 ? "" : ", ").append(SymbolTable.symbolOf(symbolIds[i])).append('=').append(toAmount(units[i]));
+		}
+		return builder.append('}').toString();
+	}
+}
@@ -0,0 +1,84 @@
+package com.hotovo.cws.domain;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns currency symbols to small int ids used by the wallet balances. Symbols are case-insensitive, every id is resolved back to the upper case symbol.
+ */
+public final class SymbolTable {
+
+	public static final int UNKNOWN = -1;
+
+	/**
+	 * Ids by the upper case and the lower case spelling of the symbol, so the lookup of the usual spellings does not allocate. Other spellings are not
+	 * stored, the table is bounded by the number of interned symbols.
+	 */
+	private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+	private static volatile String[] symbols = new String[16];
+
+	private static int size;
+
+	private SymbolTable() {
+	}
+
+	/**
+	 * Find id of the already interned symbol
+	 *
+	 * @param symbol - currency symbol in any case
+	 * @return symbol id or {@link #UNKNOWN} if the symbol was never interned
+	 */
+	public static int find(String symbol) {
+		Integer id = ids.get(symbol);
+		if (id != null) {
+			return id;
+		}
+		id = ids.get(symbol.toUpperCase(Locale.ROOT));
+		return id != null ? id : UNKNOWN;
+	}
+
+	/**
+	 * Get id of the symbol, symbol is interned if it is seen for the first time. Interned symbols are never released, so only the symbols known to
+	 * CryptoCompare may be interned, unvalidated symbols are looked up by {@link #find(String)}.
+	 *
+	 * @param symbol - currency symbol in any case
+	 * @return symbol id
+	 */
+	public static int intern(String symbol) {
+		int id = find(symbol);
+		return id != UNKNOWN ? id : internSlow(symbol);
+	}
+
+	/**
+	 * @param id - symbol id
+	 * @return upper case symbol
+	 */
+	public static String symbolOf(int id) {
+		return symbols[id];
+	}
+
+	/**
+	 * @return number of interned symbols, ids of the symbols are lower than the size
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+
+	private static synchronized int internSlow(String symbol) {
+		String canonical = symbol.toUpperCase(Locale.ROOT);
+		Integer id = ids.get(canonical);
+		if (id == null) {
+			if (size == symbols.length) {
+				symbols = Arrays.copyOf(symbols, size * 2);
+			}
+			id = size;
+			symbols[size++] = canonical;
+			ids.put(canonical, id);
+			ids.put(canonical.toLowerCase(Locale.ROOT), id);
+		}
+		return id;
+	}
+}
@@ -1,17 +1,19 @@
 package com.hotovo.cws.domain;
 
-import java.util.LinkedHashSet;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 public class Wallet {
 
 	private static AtomicLong walletId = new AtomicLong(1);
@@ -20,10 +22,111 @@ public class Wallet {
 	private String privateKey;
 	private String publicKey;
 	private String name;
-	private Set<Currency> currencies = new LinkedHashSet<>();
+
+	/**
+	 * Balances of the wallet currencies
+	 */
+	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private final Balances balances = new Balances();
+
+	/**
+	 * Currencies of the wallet, view backed by the wallet balances
+	 */
+	private final Set<Currency> currencies = new CurrencySet(balances);
+
+	@Builder
+	public Wallet(Long id, String privateKey, String publicKey, String name, Set<Currency> currencies) {
+		this.id = id;
+		this.privateKey = privateKey;
+		this.publicKey = publicKey;
+		this.name = name;
+		setCurrencies(currencies);
+	}
 
 	public static AtomicLong getWalletId() {
 		return walletId;
 	}
 
+	public void setCurrencies(Set<Currency> currencies) {
+		balances.clear();
+		if (currencies != null) {
+			this.currencies.addAll(currencies);
+		}
+	}
+
+	/**
+	 * Set of currencies backed by the balance table. Returned currencies are snapshots of the balances, added currencies are stored in the table unless the
+	 * table already contains the same symbol.
+	 */
+	private static class CurrencySet extends AbstractSet<Currency> {
+
+		private final Balances balances;
+
+		CurrencySet(Balances balances) {
+			this.balances = balances;
+		}
+
+		@Override
+		public Iterator<Currency> iterator() {
+			return new Iterator<Currency>() {
+
+				private int index;
+				private int count = balances.size();
+				private int lastSymbolId = SymbolTable.UNKNOWN;
+
+				@Override
+				public boolean hasNext() {
+					return index < count;
+				}
+
+				@Override
+				public Currency next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					lastSymbolId = balances.symbolIdAt(index);
+					return new Currency(Balances.toAmount(balances.unitsAt(index++)), SymbolTable.symbolOf(lastSymbolId));
+				}
+
+				@Override
+				public void remove() {
+					if (lastSymbolId == SymbolTable.UNKNOWN) {
+						throw new IllegalStateException();
+					}
+					balances.remove(lastSymbolId);
+					lastSymbolId = SymbolTable.UNKNOWN;
+					index--;
+					count--;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return balances.size();
+		}
+
+		@Override
+		public boolean add(Currency currency) {
+			double amount = currency.getAmount() == null ? 0.0 : currency.getAmount();
+			return balances.put(SymbolTable.intern(currency.getSymbol()), Balances.toUnits(amount));
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Currency && ((Currency) o).getSymbol() != null && balances.contains(SymbolTable.find(((Currency) o).getSymbol()));
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			return o instanceof Currency && ((Currency) o).getSymbol() != null && balances.remove(SymbolTable.find(((Currency) o).getSymbol()));
+		}
+
+		@Override
+		public void clear() {
+			balances.clear();
+		}
+	}
 }
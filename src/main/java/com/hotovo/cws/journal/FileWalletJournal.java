@@ -0,0 +1,715 @@
+package com.hotovo.cws.journal;
+
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import com.hotovo.cws.service.WalletExecutor;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Journal of the wallet changes in append-only segment files. Events are encoded into a memory buffer by the appending threads, one writer thread writes
+ * the whole buffer with one {@link FileChannel} write and one force (group commit), so the cost of the disk sync is shared by all events appended in the
+ * meantime. On start the segments are replayed into the wallet repository, a torn or corrupted event ends the replay of its segment.
+ * <p>
+ * The wallets are periodically written into a snapshot file while the traffic continues. Every wallet is read by the wallet executor together with the
+ * current journal sequence (watermark), events of the wallet up to the watermark are contained in the snapshot and skipped on replay. On start the latest
+ * valid snapshot is loaded and only the newer events are replayed, segments older than the retained snapshots are deleted.
+ * <p>
+ * Event format: payload length (int), CRC32 of the payload (int), payload: sequence number (long), event type (byte), event fields.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.journal.enabled", havingValue = "true")
+public class FileWalletJournal implements WalletJournal {
+
+	private static final byte CREATED = 1;
+	private static final byte UPDATED = 2;
+	private static final byte DELETED = 3;
+	private static final byte CREDITED = 4;
+	private static final byte TRANSFERRED = 5;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".bin";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final int HEADER_LENGTH = 8;
+	private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+
+	private final WalletRepository walletRepository;
+
+	private final WalletExecutor walletExecutor;
+
+	private final Path directory;
+
+	private final long segmentSize;
+
+	private final boolean fsync;
+
+	private final int snapshotRetain;
+
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Events appended since the last write, guarded by this
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+	/**
+	 * Buffer written by the writer thread, swapped with the append buffer on every write, guarded by this
+	 */
+	private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+	/**
+	 * End of the last complete event in the append buffer, guarded by this
+	 */
+	private int lastEventEnd;
+
+	/**
+	 * Sequence number of the last appended event, changed under this
+	 */
+	private volatile long sequence;
+
+	private boolean running;
+
+	/**
+	 * Sequence number of the last written event, guarded by durableLock
+	 */
+	private long durableSequence;
+
+	private final Object durableLock = new Object();
+
+	private volatile IOException failure;
+
+	private FileChannel segment;
+
+	private Path segmentPath;
+
+	/**
+	 * Journal sequence of the last written snapshot, guarded by snapshotLock
+	 */
+	private long snapshotSequence;
+
+	private final Object snapshotLock = new Object();
+
+	/**
+	 * Watermarks of the restored wallets newer than the restored snapshot, used during replay only
+	 */
+	private Map<Long, Long> watermarks = Collections.emptyMap();
+
+	/**
+	 * Restored wallets which identity is used by other wallet at the moment, inserted at the end of replay
+	 */
+	private final Map<Long, Wallet> pending = new HashMap<>();
+
+	private Thread writer;
+
+	@Autowired
+	public FileWalletJournal(WalletRepository walletRepository, WalletExecutor walletExecutor,
+			@Value("${wallet.journal.dir:data/journal}") String directory,
+			@Value("${wallet.journal.segment-size:64MB}") DataSize segmentSize,
+			@Value("${wallet.journal.fsync:true}") boolean fsync,
+			@Value("${wallet.journal.snapshot-retain:2}") int snapshotRetain) {
+		this.walletRepository = walletRepository;
+		this.walletExecutor = walletExecutor;
+		this.directory = Paths.get(directory);
+		this.segmentSize = segmentSize.toBytes();
+		this.fsync = fsync;
+		this.snapshotRetain = Math.max(1, snapshotRetain);
+	}
+
+	/**
+	 * Replay the journal into the wallet repository and start the writer
+	 */
+	@PostConstruct
+	public void open() throws IOException {
+		long start = System.nanoTime();
+		Files.createDirectories(directory);
+		for (Path path : files(TEMPORARY_SUFFIX)) {
+			Files.delete(path);
+		}
+		restoreSnapshot();
+		long replayed = 0;
+		List<Path> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		for (int i = 0; i < segments.size(); i++) {
+			if (i + 1 < segments.size() && firstSequence(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) - 1 <= sequence) {
+				continue;
+			}
+			replayed += replay(segments.get(i));
+		}
+		for (Wallet wallet : pending.values()) {
+			if (!walletRepository.insert(wallet)) {
+				log.error("Wallet {} can not be restored, its name, private and public key are used by other wallet", wallet.getId());
+			}
+		}
+		pending.clear();
+		watermarks = Collections.emptyMap();
+		snapshotSequence = sequence;
+		long maxWalletId = walletRepository.findAll().mapToLong(Wallet::getId).max().orElse(0);
+		Wallet.getWalletId().accumulateAndGet(maxWalletId + 1, Math::max);
+		log.info("Journal {} replayed, {} events, {} wallets restored in {} ms", directory, replayed, walletRepository.count(), (System.nanoTime() - start) / 1_000_000);
+
+		durableSequence = sequence;
+		segment = openSegment(sequence + 1);
+		running = true;
+		writer = new Thread(this::writeLoop, "wallet-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Write all appended events and stop the writer
+	 */
+	@PreDestroy
+	public void close() throws IOException, InterruptedException {
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+		if (writer != null) {
+			writer.join();
+			boolean empty = segment.size() == 0;
+			segment.close();
+			if (empty) {
+				Files.deleteIfExists(segmentPath);
+			}
+		}
+	}
+
+	@Override
+	public long created(Wallet wallet) {
+		Balances balances = wallet.getBalances();
+		synchronized (this) {
+			begin(CREATED);
+			putLong(wallet.getId());
+			putString(wallet.getName());
+			putString(wallet.getPrivateKey());
+			putString(wallet.getPublicKey());
+			putInt(balances.size());
+			for (int i = 0; i < balances.size(); i++) {
+				putString(SymbolTable.symbolOf(balances.symbolIdAt(i)));
+				putLong(balances.unitsAt(i));
+			}
+			return end();
+		}
+	}
+
+	@Override
+	public long updated(Wallet wallet) {
+		synchronized (this) {
+			begin(UPDATED);
+			putLong(wallet.getId());
+			putString(wallet.getName());
+			putString(wallet.getPrivateKey());
+			putString(wallet.getPublicKey());
+			return end();
+		}
+	}
+
+	@Override
+	public long deleted(long walletId) {
+		synchronized (this) {
+			begin(DELETED);
+			putLong(walletId);
+			return end();
+		}
+	}
+
+	@Override
+	public long credited(long walletId, int symbolId, long units) {
+		synchronized (this) {
+			begin(CREDITED);
+			putLong(walletId);
+			putString(SymbolTable.symbolOf(symbolId));
+			putLong(units);
+			return end();
+		}
+	}
+
+	@Override
+	public long transferred(long sourceId, int sourceSymbolId, long withdrawal, long destId, int destSymbolId, long deposit) {
+		synchronized (this) {
+			begin(TRANSFERRED);
+			putLong(sourceId);
+			putString(SymbolTable.symbolOf(sourceSymbolId));
+			putLong(withdrawal);
+			putLong(destId);
+			putString(SymbolTable.symbolOf(destSymbolId));
+			putLong(deposit);
+			return end();
+		}
+	}
+
+	@Override
+	public long appendAll(LongSupplier appends) {
+		synchronized (this) {
+			int start = lastEventEnd;
+			long startSequence = sequence;
+			try {
+				return appends.getAsLong();
+			} catch (RuntimeException e) {
+				lastEventEnd = start;
+				sequence = startSequence;
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void awaitDurable(long sequence) {
+		synchronized (durableLock) {
+			while (durableSequence < sequence) {
+				if (failure != null) {
+					throw new RuntimeException("Wallet change can not be written to the journal!", failure);
+				}
+				try {
+					durableLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for the journal write!", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Start the event after the last complete event, space for the header is left empty
+	 */
+	private void begin(byte type) {
+		if (failure != null || !running) {
+			throw new RuntimeException("Journal is not available!", failure);
+		}
+		ensureCapacity(HEADER_LENGTH + 9);
+		buffer.position(lastEventEnd + HEADER_LENGTH);
+		buffer.putLong(sequence + 1);
+		buffer.put(type);
+	}
+
+	/**
+	 * Complete the header of the started event and notify the writer
+	 *
+	 * @return sequence number of the event
+	 */
+	private long end() {
+		int length = buffer.position() - lastEventEnd - HEADER_LENGTH;
+		crc.reset();
+		crc.update(buffer.array(), lastEventEnd + HEADER_LENGTH, length);
+		buffer.putInt(lastEventEnd, length);
+		buffer.putInt(lastEventEnd + 4, (int) crc.getValue());
+		lastEventEnd = buffer.position();
+		notifyAll();
+		return ++sequence;
+	}
+
+	private void putInt(int value) {
+		ensureCapacity(4);
+		buffer.putInt(value);
+	}
+
+	private void putLong(long value) {
+		ensureCapacity(8);
+		buffer.putLong(value);
+	}
+
+	private void putString(String value) {
+		if (value == null) {
+			putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		ensureCapacity(4 + bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+
+	/**
+	 * Periodic snapshot, a failed snapshot is logged and the journal files are kept
+	 */
+	@Scheduled(initialDelayString = "${wallet.journal.snapshot-interval:PT15M}", fixedDelayString = "${wallet.journal.snapshot-interval:PT15M}")
+	public void scheduledSnapshot() {
+		try {
+			snapshot();
+		} catch (IOException | RuntimeException e) {
+			log.error("Journal snapshot failed, journal segments are kept", e);
+		}
+	}
+
+	/**
+	 * Write all wallets into a new snapshot file and delete the journal files not needed any more. Wallets are read one by one by the wallet executor,
+	 * the wallet changes are not blocked by the snapshot. Nothing is written if there was no change since the last snapshot.
+	 */
+	public void snapshot() throws IOException {
+		synchronized (snapshotLock) {
+			long startSequence = sequence;
+			if (startSequence == snapshotSequence) {
+				return;
+			}
+			long start = System.nanoTime();
+			Path temporary = file(SNAPSHOT_PREFIX, startSequence, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+			long wallets;
+			try (SnapshotWriter writer = new SnapshotWriter(temporary, startSequence)) {
+				WalletCopy copy = new WalletCopy();
+				Iterator<Wallet> iterator = walletRepository.findAll().iterator();
+				while (iterator.hasNext()) {
+					Wallet wallet = iterator.next();
+					long id = wallet.getId();
+					boolean present = walletExecutor.execute(id, () -> {
+						if (walletRepository.findById(id).orElse(null) != wallet) {
+							return false;
+						}
+						copy.watermark = sequence;
+						copy.name = wallet.getName();
+						copy.privateKey = wallet.getPrivateKey();
+						copy.publicKey = wallet.getPublicKey();
+						Balances balances = wallet.getBalances();
+						copy.count = balances.size();
+						if (copy.count > copy.symbolIds.length) {
+							copy.symbolIds = new int[Math.max(copy.count, copy.symbolIds.length * 2)];
+							copy.units = new long[copy.symbolIds.length];
+						}
+						for (int i = 0; i < copy.count; i++) {
+							copy.symbolIds[i] = balances.symbolIdAt(i);
+							copy.units[i] = balances.unitsAt(i);
+						}
+						return true;
+					});
+					if (present) {
+						writer.wallet(id, copy.watermark, copy.name, copy.privateKey, copy.publicKey, copy.count, copy.symbolIds, copy.units);
+					}
+				}
+				wallets = writer.finish();
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(temporary);
+				throw e;
+			}
+			Files.move(temporary, file(SNAPSHOT_PREFIX, startSequence, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+			snapshotSequence = startSequence;
+			log.info("Journal snapshot at sequence {} written, {} wallets in {} ms", startSequence, wallets, (System.nanoTime() - start) / 1_000_000);
+			deleteObsoleteFiles();
+		}
+	}
+
+	/**
+	 * Keep the retained snapshots and the segments with events newer than the oldest retained snapshot
+	 */
+	private void deleteObsoleteFiles() throws IOException {
+		List<Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		if (snapshots.size() < snapshotRetain) {
+			return;
+		}
+		for (Path path : snapshots.subList(0, snapshots.size() - snapshotRetain)) {
+			Files.delete(path);
+		}
+		long oldestSequence = firstSequence(snapshots.get(snapshots.size() - snapshotRetain), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		List<Path> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		for (int i = 0; i + 1 < segments.size(); i++) {
+			if (firstSequence(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) - 1 > oldestSequence) {
+				break;
+			}
+			Files.delete(segments.get(i));
+		}
+	}
+
+	/**
+	 * Load the latest snapshot which can be read, older snapshots are tried if the latest one is incomplete or corrupted
+	 */
+	private void restoreSnapshot() throws IOException {
+		List<Path> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		for (int i = snapshots.size() - 1; i >= 0; i--) {
+			Path path = snapshots.get(i);
+			long start = System.nanoTime();
+			SnapshotReader.Snapshot snapshot;
+			try {
+				snapshot = SnapshotReader.read(path);
+			} catch (IOException e) {
+				log.warn("Journal snapshot {} can not be read, trying older one: {}", path, e.getMessage());
+				continue;
+			}
+			for (Wallet wallet : snapshot.getWallets()) {
+				if (!walletRepository.insert(wallet)) {
+					pending.put(wallet.getId(), wallet);
+				}
+			}
+			sequence = snapshot.getSequence();
+			watermarks = snapshot.getWatermarks();
+			log.info("Journal snapshot {} loaded, {} wallets in {} ms", path, snapshot.getWallets().size(), (System.nanoTime() - start) / 1_000_000);
+			return;
+		}
+	}
+
+	private void writeLoop() {
+		while (true) {
+			ByteBuffer batch;
+			long batchSequence;
+			synchronized (this) {
+				while (lastEventEnd == 0 && running) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (lastEventEnd == 0) {
+					return;
+				}
+				batch = buffer;
+				batch.limit(lastEventEnd);
+				batch.position(0);
+				buffer = spare;
+				buffer.clear();
+				lastEventEnd = 0;
+				batchSequence = sequence;
+			}
+			try {
+				if (segment.size() > 0 && segment.size() + batch.remaining() > segmentSize) {
+					segment.close();
+					segment = openSegment(durableSequence + 1);
+				}
+				while (batch.hasRemaining()) {
+					segment.write(batch);
+				}
+				if (fsync) {
+					segment.force(false);
+				}
+			} catch (IOException e) {
+				log.error("Journal write failed, wallet changes are not durable any more", e);
+				failure = e;
+			}
+			synchronized (this) {
+				batch.clear();
+				spare = batch;
+			}
+			synchronized (durableLock) {
+				if (failure == null) {
+					durableSequence = batchSequence;
+				}
+				durableLock.notifyAll();
+			}
+			if (failure != null) {
+				return;
+			}
+		}
+	}
+
+	private FileChannel openSegment(long firstSequence) throws IOException {
+		segmentPath = file(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+		return FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private List<Path> files(String suffix) throws IOException {
+		return files("", suffix);
+	}
+
+	/**
+	 * @return files of the journal directory with the prefix and suffix sorted by name, that is by their first sequence
+	 */
+	private List<Path> files(String prefix, String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+					.filter(path -> path.getFileName().toString().startsWith(prefix) && path.getFileName().toString().endsWith(suffix))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static long firstSequence(Path path, String prefix, String suffix) {
+		String name = path.getFileName().toString();
+		return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+	}
+
+	private Path file(String prefix, long sequence, String suffix) {
+		return directory.resolve(String.format("%s%020d%s", prefix, sequence, suffix));
+	}
+
+	private long replay(Path path) throws IOException {
+		long events = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+			while (true) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException e) {
+					return events;
+				}
+				int checksum = in.readInt();
+				if (length <= 0 || length > segmentSize) {
+					log.warn("Journal segment {} has invalid event after {} events, rest of the segment is ignored", path, events);
+					return events;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				crc.reset();
+				crc.update(payload, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					log.warn("Journal segment {} has corrupted event after {} events, rest of the segment is ignored", path, events);
+					return events;
+				}
+				if (apply(ByteBuffer.wrap(payload))) {
+					events++;
+				}
+			}
+		} catch (EOFException e) {
+			log.warn("Journal segment {} ends with incomplete event after {} events, the event is ignored", path, events);
+			return events;
+		}
+	}
+
+	/**
+	 * @return <tt>false</tt> if the event is older than the restored state and was skipped
+	 */
+	private boolean apply(ByteBuffer in) {
+		long eventSequence = in.getLong();
+		byte type = in.get();
+		if (eventSequence <= sequence) {
+			return false;
+		}
+		sequence = eventSequence;
+		switch (type) {
+			case CREATED:
+				Wallet wallet = Wallet.builder().id(in.getLong()).name(getString(in)).privateKey(getString(in)).publicKey(getString(in)).build();
+				int size = in.getInt();
+				for (int i = 0; i < size; i++) {
+					wallet.getBalances().put(SymbolTable.intern(getString(in)), in.getLong());
+				}
+				if (find(wallet.getId()) != null) {
+					if (eventSequence > watermark(wallet.getId())) {
+						log.warn("Journal event {} creates already existing wallet {}", eventSequence, wallet.getId());
+					}
+				} else if (!walletRepository.insert(wallet)) {
+					pending.put(wallet.getId(), wallet);
+				}
+				break;
+			case UPDATED:
+				Wallet updated = find(in.getLong(), eventSequence);
+				String name = getString(in);
+				String privateKey = getString(in);
+				String publicKey = getString(in);
+				if (updated != null && (pending.containsKey(updated.getId()) || !walletRepository.updateIdentity(updated, name, privateKey, publicKey))) {
+					walletRepository.deleteById(updated.getId());
+					updated.setName(name);
+					updated.setPrivateKey(privateKey);
+					updated.setPublicKey(publicKey);
+					pending.put(updated.getId(), updated);
+				}
+				break;
+			case DELETED:
+				long deletedId = in.getLong();
+				if (find(deletedId, eventSequence) != null) {
+					walletRepository.deleteById(deletedId);
+					pending.remove(deletedId);
+				}
+				break;
+			case CREDITED:
+				Wallet credited = find(in.getLong(), eventSequence);
+				int symbolId = SymbolTable.intern(getString(in));
+				long units = in.getLong();
+				if (credited != null) {
+					credited.getBalances().add(symbolId, units);
+				}
+				break;
+			case TRANSFERRED:
+				Wallet source = find(in.getLong(), eventSequence);
+				int sourceSymbolId = SymbolTable.intern(getString(in));
+				long withdrawal = in.getLong();
+				Wallet dest = find(in.getLong(), eventSequence);
+				int destSymbolId = SymbolTable.intern(getString(in));
+				long deposit = in.getLong();
+				if (source != null && !source.getBalances().tryWithdraw(sourceSymbolId, withdrawal)) {
+					log.warn("Journal event {} withdraws more than the balance of wallet {}", eventSequence, source.getId());
+				}
+				if (dest != null) {
+					dest.getBalances().add(destSymbolId, deposit);
+				}
+				break;
+			default:
+				log.warn("Journal event {} has unknown type {}", eventSequence, type);
+		}
+		return true;
+	}
+
+	/**
+	 * @return restored wallet the event applies to, <tt>null</tt> if the wallet does not exist or the event is already contained in its snapshot
+	 */
+	private Wallet find(long walletId, long eventSequence) {
+		return eventSequence > watermark(walletId) ? find(walletId) : null;
+	}
+
+	private Wallet find(long walletId) {
+		Wallet wallet = pending.get(walletId);
+		return wallet != null ? wallet : walletRepository.findById(walletId).orElse(null);
+	}
+
+	private long watermark(long walletId) {
+		return watermarks.getOrDefault(walletId, 0L);
+	}
+
+	private String getString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	/**
+	 * State of one wallet copied for the snapshot, the buffers are reused for all wallets
+	 */
+	private static class WalletCopy {
+
+		private long watermark;
+
+		private String name;
+
+		private String privateKey;
+
+		private String publicKey;
+
+		private int count;
+
+		private int[] symbolIds = new int[16];
+
+		private long[] units = new long[16];
+	}
+}
@@ -0,0 +1,196 @@
+package com.hotovo.cws.journal;
+
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import lombok.Getter;
+
+/**
+ * Reads a snapshot file written by {@link SnapshotWriter}. The wallets are returned only when the whole file was read and its checksum matches.
+ */
+class SnapshotReader {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Number of bytes before the checksum not yet read from the file
+	 */
+	private long unread;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private int[] symbolIds = new int[64];
+
+	private SnapshotReader(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.unread = channel.size() - 4;
+		buffer.limit(0);
+	}
+
+	/**
+	 * Read the snapshot file
+	 *
+	 * @param path - snapshot file
+	 * @return wallets of the snapshot
+	 * @throws IOException if the file can not be read, is incomplete or corrupted
+	 */
+	static Snapshot read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new SnapshotReader(channel).read();
+		}
+	}
+
+	private Snapshot read() throws IOException {
+		ensureAvailable(13);
+		if (buffer.getInt() != SnapshotWriter.MAGIC || buffer.get() != SnapshotWriter.VERSION) {
+			throw new IOException("Unknown snapshot format");
+		}
+		long sequence = buffer.getLong();
+		List<Wallet> wallets = new ArrayList<>();
+		Map<Long, Long> watermarks = new HashMap<>();
+		while (true) {
+			ensureAvailable(1);
+			byte type = buffer.get();
+			if (type == SnapshotWriter.SYMBOL) {
+				int id = (int) getVarLong();
+				if (id >= symbolIds.length) {
+					symbolIds = Arrays.copyOf(symbolIds, Math.max(id + 1, symbolIds.length * 2));
+				}
+				symbolIds[id] = SymbolTable.intern(getString());
+			} else if (type == SnapshotWriter.WALLET) {
+				Wallet wallet = Wallet.builder().id(getVarLong()).build();
+				long watermark = getVarLong();
+				if (watermark > 0) {
+					watermarks.put(wallet.getId(), sequence + watermark);
+				}
+				wallet.setName(getString());
+				wallet.setPrivateKey(getString());
+				wallet.setPublicKey(getString());
+				long count = getVarLong();
+				for (long i = 0; i < count; i++) {
+					int symbolId = symbolIds[(int) getVarLong()];
+					wallet.getBalances().put(symbolId, getVarLong());
+				}
+				wallets.add(wallet);
+			} else if (type == SnapshotWriter.END) {
+				if (getVarLong() != wallets.size() || buffer.hasRemaining() || unread > 0) {
+					throw new IOException("Snapshot wallet count does not match");
+				}
+				verifyChecksum();
+				return new Snapshot(sequence, wallets, watermarks);
+			} else {
+				throw new IOException("Unknown snapshot record " + type);
+			}
+		}
+	}
+
+	private void verifyChecksum() throws IOException {
+		ByteBuffer checksum = ByteBuffer.allocate(4);
+		while (checksum.hasRemaining()) {
+			if (channel.read(checksum) < 0) {
+				throw new EOFException("Snapshot checksum is missing");
+			}
+		}
+		if (checksum.getInt(0) != (int) crc.getValue()) {
+			throw new IOException("Snapshot checksum does not match");
+		}
+	}
+
+	private long getVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			ensureAvailable(1);
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed number in snapshot");
+	}
+
+	private String getString() throws IOException {
+		long length = getVarLong() - 1;
+		if (length < 0) {
+			return null;
+		}
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IOException("Malformed string in snapshot");
+		}
+		ensureAvailable((int) length);
+		String value = new String(buffer.array(), buffer.position(), (int) length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + (int) length);
+		return value;
+	}
+
+	/**
+	 * Read more of the file until the buffer contains requested number of bytes, read bytes are added to the checksum
+	 */
+	private void ensureAvailable(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+		if (bytes > unread + buffer.remaining()) {
+			throw new EOFException("Snapshot is incomplete");
+		}
+		if (buffer.capacity() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(bytes);
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < bytes) {
+			int start = buffer.position();
+			buffer.limit((int) Math.min(buffer.capacity(), start + unread));
+			int read = channel.read(buffer);
+			if (read < 0) {
+				throw new EOFException("Snapshot is incomplete");
+			}
+			crc.update(buffer.array(), start, read);
+			unread -= read;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Wallets restored from a snapshot
+	 */
+	@Getter
+	static class Snapshot {
+
+		/**
+		 * Journal sequence the snapshot was started at, all events up to this sequence are contained in the snapshot
+		 */
+		private final long sequence;
+
+		private final List<Wallet> wallets;
+
+		/**
+		 * Journal sequences of the wallets read after later events, events of such wallets up to this sequence are contained in the snapshot as well
+		 */
+		private final Map<Long, Long> watermarks;
+
+		Snapshot(long sequence, List<Wallet> wallets, Map<Long, Long> watermarks) {
+			this.sequence = sequence;
+			this.watermarks = watermarks;
+			this.wallets = wallets;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.hotovo.cws.journal;
+
+import com.hotovo.cws.domain.SymbolTable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Writes wallets into a snapshot file. Numbers are written as variable-length integers, a symbol is written once as a symbol record and wallet balances
+ * refer to it by id.
+ * <p>
+ * File format: magic (int), version (byte), journal sequence (long), symbol and wallet records, end record with the wallet count, CRC32 of all previous
+ * bytes (int).
+ */
+class SnapshotWriter implements Closeable {
+
+	static final int MAGIC = 0x43575353;
+	static final byte VERSION = 1;
+
+	static final byte SYMBOL = 1;
+	static final byte WALLET = 2;
+	static final byte END = 3;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+
+	private final CRC32 crc = new CRC32();
+
+	private final BitSet writtenSymbols = new BitSet();
+
+	private final long sequence;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private long wallets;
+
+	SnapshotWriter(Path path, long sequence) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this.sequence = sequence;
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.putLong(sequence);
+	}
+
+	/**
+	 * Write one wallet
+	 *
+	 * @param watermark - journal sequence the wallet state was read at, events up to this sequence are contained in the state
+	 * @param count - number of balances
+	 * @param symbolIds - symbol ids of the balances
+	 * @param units - balances in fixed-point units
+	 */
+	void wallet(long id, long watermark, String name, String privateKey, String publicKey, int count, int[] symbolIds, long[] units) throws IOException {
+		for (int i = 0; i < count; i++) {
+			if (!writtenSymbols.get(symbolIds[i])) {
+				writtenSymbols.set(symbolIds[i]);
+				ensureCapacity(1);
+				buffer.put(SYMBOL);
+				putVarLong(symbolIds[i]);
+				putString(SymbolTable.symbolOf(symbolIds[i]));
+			}
+		}
+		ensureCapacity(1);
+		buffer.put(WALLET);
+		putVarLong(id);
+		putVarLong(watermark - sequence);
+		putString(name);
+		putString(privateKey);
+		putString(publicKey);
+		putVarLong(count);
+		for (int i = 0; i < count; i++) {
+			putVarLong(symbolIds[i]);
+			putVarLong(units[i]);
+		}
+		wallets++;
+	}
+
+	/**
+	 * Write the end record and the checksum and sync the file to the disk
+	 *
+	 * @return number of written wallets
+	 */
+	long finish() throws IOException {
+		ensureCapacity(1);
+		buffer.put(END);
+		putVarLong(wallets);
+		flush();
+		ByteBuffer checksum = ByteBuffer.allocate(4);
+		checksum.putInt((int) crc.getValue());
+		checksum.flip();
+		while (checksum.hasRemaining()) {
+			channel.write(checksum);
+		}
+		channel.force(true);
+		return wallets;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void putVarLong(long value) throws IOException {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void putString(String value) throws IOException {
+		if (value == null) {
+			putVarLong(0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putVarLong(bytes.length + 1L);
+		ensureCapacity(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private void ensureCapacity(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+			if (buffer.capacity() < bytes) {
+				buffer = ByteBuffer.allocate(bytes);
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
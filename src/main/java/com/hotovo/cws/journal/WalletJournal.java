@@ -0,0 +1,105 @@
+package com.hotovo.cws.journal;
+
+import com.hotovo.cws.domain.Wallet;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-ahead log of the wallet changes. Every change is appended after it is applied, while the changed wallets are still locked, so the order of the
+ * journal events of a wallet is the order of its changes. Append only buffers the event and returns its sequence number, the caller waits for the
+ * event to be durable by {@link #awaitDurable(long)} after the locks are released.
+ */
+public interface WalletJournal {
+
+	/**
+	 * Journal which does not record anything, used when the journal is not enabled
+	 */
+	WalletJournal DISABLED = new WalletJournal() {
+
+		@Override
+		public long created(Wallet wallet) {
+			return 0;
+		}
+
+		@Override
+		public long updated(Wallet wallet) {
+			return 0;
+		}
+
+		@Override
+		public long deleted(long walletId) {
+			return 0;
+		}
+
+		@Override
+		public long credited(long walletId, int symbolId, long units) {
+			return 0;
+		}
+
+		@Override
+		public long transferred(long sourceId, int sourceSymbolId, long withdrawal, long destId, int destSymbolId, long deposit) {
+			return 0;
+		}
+
+		@Override
+		public long appendAll(LongSupplier appends) {
+			return appends.getAsLong();
+		}
+
+		@Override
+		public void awaitDurable(long sequence) {
+		}
+	};
+
+	/**
+	 * @param wallet - created wallet with its initial balances
+	 * @return sequence number of the event
+	 */
+	long created(Wallet wallet);
+
+	/**
+	 * @param wallet - wallet with changed name, private and public key
+	 * @return sequence number of the event
+	 */
+	long updated(Wallet wallet);
+
+	/**
+	 * @param walletId - id of the deleted wallet
+	 * @return sequence number of the event
+	 */
+	long deleted(long walletId);
+
+	/**
+	 * @param walletId - id of the wallet
+	 * @param symbolId - id of the deposited currency symbol
+	 * @param units - deposited units
+	 * @return sequence number of the event
+	 */
+	long credited(long walletId, int symbolId, long units);
+
+	/**
+	 * @param sourceId - id of the source wallet
+	 * @param sourceSymbolId - id of the withdrawn currency symbol
+	 * @param withdrawal - units withdrawn from the source wallet
+	 * @param destId - id of the destination wallet
+	 * @param destSymbolId - id of the deposited currency symbol
+	 * @param deposit - units deposited to the destination wallet
+	 * @return sequence number of the event
+	 */
+	long transferred(long sourceId, int sourceSymbolId, long withdrawal, long destId, int destSymbolId, long deposit);
+
+	/**
+	 * Append several events at once, either all of them are journaled or none of them. No other event is appended in between.
+	 *
+	 * @param appends - appends of the events returning sequence number of the last event
+	 * @return sequence number of the last event
+	 */
+	long appendAll(LongSupplier appends);
+
+	/**
+	 * Wait until the event and all events before it are written to the journal
+	 *
+	 * @param sequence - sequence number of the event
+	 * @throws RuntimeException if the journal can not be written
+	 */
+	void awaitDurable(long sequence);
+}
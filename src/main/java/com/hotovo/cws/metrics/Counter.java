@@ -0,0 +1,22 @@
+package com.hotovo.cws.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count of events
+ */
+public class Counter {
+
+	private final LongAdder count = new LongAdder();
+
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * @return number of events counted so far
+	 */
+	public long count() {
+		return count.sum();
+	}
+}
@@ -0,0 +1,159 @@
+package com.hotovo.cws.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the application metrics exported in the Prometheus text format. Metric is identified by its name and tags (label name and value pairs),
+ * meters are created on the first lookup. Lookup builds the label string, callers on the hot paths keep the meter instead of looking it up every time.
+ */
+@Component
+public class MetricsRegistry {
+
+	private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @param name - metric name, should end with <tt>_total</tt>
+	 * @param help - description of the metric
+	 * @param tags - label names and values
+	 * @return counter of the metric with the tags
+	 */
+	public Counter counter(String name, String help, String... tags) {
+		return (Counter) family(name, help, Type.COUNTER).meters.computeIfAbsent(labels(tags), labels -> new Counter());
+	}
+
+	/**
+	 * @param name - metric name, should end with <tt>_seconds</tt>
+	 * @param help - description of the metric
+	 * @param tags - label names and values
+	 * @return latency histogram of the metric with the tags
+	 */
+	public Timer timer(String name, String help, String... tags) {
+		return (Timer) family(name, help, Type.HISTOGRAM).meters.computeIfAbsent(labels(tags), labels -> new Timer());
+	}
+
+	/**
+	 * Register the gauge with value read on every export, registering the same metric again replaces its value
+	 *
+	 * @param name - metric name
+	 * @param help - description of the metric
+	 * @param value - current value of the metric
+	 * @param tags - label names and values
+	 */
+	public void gauge(String name, String help, DoubleSupplier value, String... tags) {
+		family(name, help, Type.GAUGE).meters.put(labels(tags), value);
+	}
+
+	/**
+	 * Register the counter maintained elsewhere, like statistics of a cache, with value read on every export
+	 *
+	 * @param name - metric name, should end with <tt>_total</tt>
+	 * @param help - description of the metric
+	 * @param value - current count
+	 * @param tags - label names and values
+	 */
+	public void counter(String name, String help, DoubleSupplier value, String... tags) {
+		family(name, help, Type.COUNTER).meters.put(labels(tags), value);
+	}
+
+	/**
+	 * Write all metrics in the Prometheus text exposition format
+	 *
+	 * @param out - destination of the metrics
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		for (Map.Entry<String, Family> entry : families.entrySet()) {
+			String name = entry.getKey();
+			Family family = entry.getValue();
+			out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+			out.append("# TYPE ").append(name).append(' ').append(family.type.name().toLowerCase(Locale.ROOT)).append('\n');
+			for (Map.Entry<String, Object> meter : new ConcurrentSkipListMap<>(family.meters).entrySet()) {
+				write(out, name, meter.getKey(), meter.getValue());
+			}
+		}
+	}
+
+	private void write(Appendable out, String name, String labels, Object meter) throws IOException {
+		if (meter instanceof Counter) {
+			sample(out, name, labels, null, ((Counter) meter).count());
+		} else if (meter instanceof DoubleSupplier) {
+			sample(out, name, labels, null, ((DoubleSupplier) meter).getAsDouble());
+		} else {
+			Timer timer = (Timer) meter;
+			long[] counts = timer.bucketCounts();
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++) {
+				cumulative += counts[i];
+				String bound = i < Timer.BUCKETS.length ? Double.toString(Timer.BUCKETS[i]) : "+Inf";
+				sample(out, name + "_bucket", labels, "le=\"" + bound + "\"", cumulative);
+			}
+			sample(out, name + "_count", labels, null, cumulative);
+			sample(out, name + "_sum", labels, null, timer.totalSeconds());
+		}
+	}
+
+	private void sample(Appendable out, String name, String labels, String extraLabel, double value) throws IOException {
+		out.append(name);
+		if (!labels.isEmpty() || extraLabel != null) {
+			out.append('{').append(labels);
+			if (extraLabel != null) {
+				out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+			}
+			out.append('}');
+		}
+		out.append(' ');
+		if (value == (long) value) {
+			out.append(Long.toString((long) value));
+		} else {
+			out.append(Double.toString(value));
+		}
+		out.append('\n');
+	}
+
+	private Family family(String name, String help, Type type) {
+		Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+		if (family.type != type) {
+			throw new RuntimeException("Metric " + name + " is already registered as " + family.type);
+		}
+		return family;
+	}
+
+	private static String labels(String[] tags) {
+		if (tags.length % 2 != 0) {
+			throw new RuntimeException("Metric tags must be pairs of name and value!");
+		}
+		StringBuilder labels = new StringBuilder();
+		for (int i = 0; i < tags.length; i += 2) {
+			labels.append(i == 0 ? "" : ",").append(tags[i]).append("=\"").append(escape(tags[i + 1])).append('"');
+		}
+		return labels.toString();
+	}
+
+	private static String escape(String value) {
+		return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private enum Type {
+		COUNTER, GAUGE, HISTOGRAM
+	}
+
+	private static class Family {
+
+		private final String help;
+
+		private final Type type;
+
+		private final ConcurrentMap<String, Object> meters = new ConcurrentHashMap<>();
+
+		Family(String help, Type type) {
+			this.help = help;
+			this.type = type;
+		}
+	}
+}
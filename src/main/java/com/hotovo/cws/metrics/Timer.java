@@ -0,0 +1,86 @@
+package com.hotovo.cws.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed bucket bounds. Recording is one bucket search and two adder increments, buckets are accumulated only when the histogram is
+ * exported.
+ */
+public class Timer {
+
+	/**
+	 * Upper bounds of the buckets in seconds, the last bucket is unbounded
+	 */
+	static final double[] BUCKETS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+	private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+	static {
+		for (int i = 0; i < BUCKETS.length; i++) {
+			BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+
+	private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	Timer() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Record the duration of one event
+	 *
+	 * @param nanos - duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+			bucket++;
+		}
+		counts[bucket].increment();
+		totalNanos.add(nanos);
+	}
+
+	/**
+	 * Record the duration of one event started at the time
+	 *
+	 * @param startNanos - {@link System#nanoTime()} at the start of the event
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return number of recorded events
+	 */
+	public long count() {
+		long count = 0;
+		for (LongAdder bucket : counts) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of events in every bucket, the last bucket counts events longer than all bounds
+	 */
+	long[] bucketCounts() {
+		long[] result = new long[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			result[i] = counts[i].sum();
+		}
+		return result;
+	}
+
+	/**
+	 * @return sum of the recorded durations in seconds
+	 */
+	double totalSeconds() {
+		return totalNanos.sum() / 1e9;
+	}
+}
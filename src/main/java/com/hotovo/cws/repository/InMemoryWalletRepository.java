@@ -0,0 +1,128 @@
+package com.hotovo.cws.repository;
+
+import com.hotovo.cws.domain.Wallet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * In-memory wallet storage. Wallets are indexed by id in a hash map for constant time lookups, by id in a skip list for ordered iteration and by the
+ * combination of name, private and public key for duplicate detection.
+ */
+@Repository
+@ConditionalOnProperty(name = "wallet.repository.type", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryWalletRepository implements WalletRepository {
+
+	/**
+	 * Primary index of the wallets by id
+	 */
+	private final ConcurrentMap<Long, Wallet> walletsById;
+
+	/**
+	 * Wallets ordered by id, used for listing
+	 */
+	private final ConcurrentNavigableMap<Long, Wallet> orderedWallets = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Secondary index of the wallet ids by name, private and public key
+	 */
+	private final ConcurrentMap<WalletKey, Long> walletIdsByKey;
+
+	public InMemoryWalletRepository() {
+		this(16);
+	}
+
+	/**
+	 * @param initialCapacity - expected number of wallets, indexes sized for it are not resized while the wallets are restored on start
+	 */
+	@Autowired
+	public InMemoryWalletRepository(@Value("${wallet.repository.initial-capacity:1024}") int initialCapacity) {
+		walletsById = new ConcurrentHashMap<>(initialCapacity);
+		walletIdsByKey = new ConcurrentHashMap<>(initialCapacity);
+	}
+
+	@Override
+	public long nextId() {
+		return Wallet.getWalletId().getAndIncrement();
+	}
+
+	@Override
+	public Optional<Wallet> findById(Long id) {
+		return Optional.ofNullable(walletsById.get(id));
+	}
+
+	@Override
+	public boolean existsByIdentity(String name, String privateKey, String publicKey) {
+		return walletIdsByKey.containsKey(new WalletKey(name, privateKey, publicKey));
+	}
+
+	@Override
+	public boolean insert(Wallet wallet) {
+		WalletKey key = WalletKey.of(wallet);
+		if (walletIdsByKey.putIfAbsent(key, wallet.getId()) != null) {
+			return false;
+		}
+		if (walletsById.putIfAbsent(wallet.getId(), wallet) != null) {
+			walletIdsByKey.remove(key, wallet.getId());
+			return false;
+		}
+		orderedWallets.put(wallet.getId(), wallet);
+		if (wallet.getId() >= Wallet.getWalletId().get()) {
+			Wallet.getWalletId().accumulateAndGet(wallet.getId() + 1, Math::max);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean updateIdentity(Wallet wallet, String name, String privateKey, String publicKey) {
+		synchronized (wallet) {
+			WalletKey oldKey = WalletKey.of(wallet);
+			WalletKey newKey = new WalletKey(name, privateKey, publicKey);
+			if (!newKey.equals(oldKey)) {
+				if (walletIdsByKey.putIfAbsent(newKey, wallet.getId()) != null) {
+					return false;
+				}
+				walletIdsByKey.remove(oldKey, wallet.getId());
+			}
+			wallet.setName(name);
+			wallet.setPrivateKey(privateKey);
+			wallet.setPublicKey(publicKey);
+			return true;
+		}
+	}
+
+	@Override
+	public Optional<Wallet> deleteById(Long id) {
+		Wallet wallet = walletsById.remove(id);
+		if (wallet == null) {
+			return Optional.empty();
+		}
+		orderedWallets.remove(id);
+		synchronized (wallet) {
+			walletIdsByKey.remove(WalletKey.of(wallet), id);
+		}
+		return Optional.of(wallet);
+	}
+
+	@Override
+	public Stream<Wallet> findAll() {
+		return orderedWallets.values().stream();
+	}
+
+	@Override
+	public Stream<Wallet> findAllAfter(Long afterId) {
+		return afterId == null ? findAll() : orderedWallets.tailMap(afterId, false).values().stream();
+	}
+
+	@Override
+	public long count() {
+		return walletsById.size();
+	}
+}
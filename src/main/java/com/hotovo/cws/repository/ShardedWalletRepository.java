@@ -0,0 +1,237 @@
+package com.hotovo.cws.repository;
+
+import com.hotovo.cws.domain.Wallet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * In-memory wallet storage partitioned into shards by wallet id. Every shard has its own id index, ordered index and id allocator, wallet with id
+ * <tt>id</tt> lives in the shard <tt>id mod shards</tt>. New ids are allocated by the shard chosen at random, so concurrent creates do not contend on one
+ * counter. The identity index is partitioned separately by the hash of the name, private and public key, so the identity stays unique across the shards.
+ * <p>
+ * Shards hold only references to the wallets, balances are changed through the {@link com.hotovo.cws.service.WalletExecutor}. Transfer between wallets of
+ * two shards needs no coordination of the shards themselves: both wallets are found by their ids in their own shards and the executor makes the change of
+ * both wallets atomic, the locking executor takes the locks of both wallets in the ascending stripe order.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "wallet.repository.type", havingValue = "sharded")
+public class ShardedWalletRepository implements WalletRepository {
+
+	private final Shard[] shards;
+
+	/**
+	 * Partitions of the wallet ids by name, private and public key
+	 */
+	private final ConcurrentMap<WalletKey, Long>[] walletIdsByKey;
+
+	public ShardedWalletRepository(int shardCount) {
+		this(shardCount, 16);
+	}
+
+	/**
+	 * @param shardCount - number of shards, number of available processors if not positive
+	 * @param initialCapacity - expected number of wallets, divided among the shards
+	 */
+	@Autowired
+	@SuppressWarnings("unchecked")
+	public ShardedWalletRepository(@Value("${wallet.repository.shards:0}") int shardCount,
+			@Value("${wallet.repository.initial-capacity:1024}") int initialCapacity) {
+		int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+		int shardCapacity = Math.max(16, initialCapacity / count);
+		shards = new Shard[count];
+		walletIdsByKey = new ConcurrentMap[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new Shard(i == 0 ? count : i, shardCapacity);
+			walletIdsByKey[i] = new ConcurrentHashMap<>(shardCapacity);
+		}
+		log.info("Wallet repository with {} shards", count);
+	}
+
+	@Override
+	public long nextId() {
+		return shards[ThreadLocalRandom.current().nextInt(shards.length)].nextId.getAndAdd(shards.length);
+	}
+
+	@Override
+	public Optional<Wallet> findById(Long id) {
+		return Optional.ofNullable(shardOf(id).walletsById.get(id));
+	}
+
+	@Override
+	public boolean existsByIdentity(String name, String privateKey, String publicKey) {
+		WalletKey key = new WalletKey(name, privateKey, publicKey);
+		return indexOf(key).containsKey(key);
+	}
+
+	@Override
+	public boolean insert(Wallet wallet) {
+		WalletKey key = WalletKey.of(wallet);
+		ConcurrentMap<WalletKey, Long> keyIndex = indexOf(key);
+		if (keyIndex.putIfAbsent(key, wallet.getId()) != null) {
+			return false;
+		}
+		Shard shard = shardOf(wallet.getId());
+		if (shard.walletsById.putIfAbsent(wallet.getId(), wallet) != null) {
+			keyIndex.remove(key, wallet.getId());
+			return false;
+		}
+		shard.orderedWallets.put(wallet.getId(), wallet);
+		if (wallet.getId() >= shard.nextId.get()) {
+			shard.nextId.accumulateAndGet(wallet.getId() + shards.length, Math::max);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean updateIdentity(Wallet wallet, String name, String privateKey, String publicKey) {
+		synchronized (wallet) {
+			WalletKey oldKey = WalletKey.of(wallet);
+			WalletKey newKey = new WalletKey(name, privateKey, publicKey);
+			if (!newKey.equals(oldKey)) {
+				if (indexOf(newKey).putIfAbsent(newKey, wallet.getId()) != null) {
+					return false;
+				}
+				indexOf(oldKey).remove(oldKey, wallet.getId());
+			}
+			wallet.setName(name);
+			wallet.setPrivateKey(privateKey);
+			wallet.setPublicKey(publicKey);
+			return true;
+		}
+	}
+
+	@Override
+	public Optional<Wallet> deleteById(Long id) {
+		Shard shard = shardOf(id);
+		Wallet wallet = shard.walletsById.remove(id);
+		if (wallet == null) {
+			return Optional.empty();
+		}
+		shard.orderedWallets.remove(id);
+		synchronized (wallet) {
+			WalletKey key = WalletKey.of(wallet);
+			indexOf(key).remove(key, id);
+		}
+		return Optional.of(wallet);
+	}
+
+	@Override
+	public Stream<Wallet> findAll() {
+		return merge(shard -> shard.orderedWallets.values().iterator());
+	}
+
+	@Override
+	public Stream<Wallet> findAllAfter(Long afterId) {
+		return afterId == null ? findAll() : merge(shard -> shard.orderedWallets.tailMap(afterId, false).values().iterator());
+	}
+
+	@Override
+	public long count() {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.walletsById.size();
+		}
+		return count;
+	}
+
+	private Shard shardOf(long id) {
+		return shards[(int) Math.floorMod(id, (long) shards.length)];
+	}
+
+	private ConcurrentMap<WalletKey, Long> indexOf(WalletKey key) {
+		int hash = key.hashCode();
+		return walletIdsByKey[Math.floorMod(hash ^ (hash >>> 16), walletIdsByKey.length)];
+	}
+
+	/**
+	 * Merge the ordered wallets of all shards into one stream ordered by id
+	 */
+	@SuppressWarnings("unchecked")
+	private Stream<Wallet> merge(Function<Shard, Iterator<Wallet>> ordered) {
+		Iterator<Wallet>[] iterators = new Iterator[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			iterators[i] = ordered.apply(shards[i]);
+		}
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator(iterators),
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private static class Shard {
+
+		private final ConcurrentMap<Long, Wallet> walletsById;
+
+		private final ConcurrentNavigableMap<Long, Wallet> orderedWallets = new ConcurrentSkipListMap<>();
+
+		/**
+		 * Next id allocated in this shard, ids of the shard differ by the number of shards
+		 */
+		private final AtomicLong nextId;
+
+		Shard(long firstId, int initialCapacity) {
+			walletsById = new ConcurrentHashMap<>(initialCapacity);
+			nextId = new AtomicLong(firstId);
+		}
+	}
+
+	/**
+	 * Iterator over the wallets of all shards in the order of their ids, the head wallet of every shard is compared on each step
+	 */
+	private static class MergingIterator implements Iterator<Wallet> {
+
+		private final Iterator<Wallet>[] iterators;
+
+		private final Wallet[] heads;
+
+		MergingIterator(Iterator<Wallet>[] iterators) {
+			this.iterators = iterators;
+			heads = new Wallet[iterators.length];
+			for (int i = 0; i < iterators.length; i++) {
+				heads[i] = iterators[i].hasNext() ? iterators[i].next() : null;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			for (Wallet head : heads) {
+				if (head != null) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Wallet next() {
+			int min = -1;
+			for (int i = 0; i < heads.length; i++) {
+				if (heads[i] != null && (min < 0 || heads[i].getId() < heads[min].getId())) {
+					min = i;
+				}
+			}
+			if (min < 0) {
+				throw new NoSuchElementException();
+			}
+			Wallet wallet = heads[min];
+			heads[min] = iterators[min].hasNext() ? iterators[min].next() : null;
+			return wallet;
+		}
+	}
+}
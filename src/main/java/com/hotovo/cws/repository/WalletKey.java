@@ -0,0 +1,19 @@
+package com.hotovo.cws.repository;
+
+import com.hotovo.cws.domain.Wallet;
+import lombok.Value;
+
+/**
+ * Identity of the wallet, unique among the stored wallets
+ */
+@Value
+class WalletKey {
+
+	String name;
+	String privateKey;
+	String publicKey;
+
+	static WalletKey of(Wallet wallet) {
+		return new WalletKey(wallet.getName(), wallet.getPrivateKey(), wallet.getPublicKey());
+	}
+}
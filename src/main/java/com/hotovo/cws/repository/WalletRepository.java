@@ -0,0 +1,84 @@
+package com.hotovo.cws.repository;
+
+import com.hotovo.cws.domain.Wallet;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage of the existing wallets. Implementations are expected to be safe for concurrent use and to keep wallets unique by their id and by the combination
+ * of name, private and public key.
+ */
+public interface WalletRepository {
+
+	/**
+	 * Allocate id for a new wallet
+	 *
+	 * @return id not used by any stored wallet and never returned before
+	 */
+	long nextId();
+
+	/**
+	 * Find wallet by its id
+	 *
+	 * @param id - identificator of the wallet
+	 * @return wallet or empty optional if there is no wallet with such id
+	 */
+	Optional<Wallet> findById(Long id);
+
+	/**
+	 * Check if the wallet with the same name, private and public key is already stored
+	 *
+	 * @param name - wallet name
+	 * @param privateKey - wallet private key
+	 * @param publicKey - wallet public key
+	 * @return <tt>true</tt> if such wallet exists
+	 */
+	boolean existsByIdentity(String name, String privateKey, String publicKey);
+
+	/**
+	 * Store new wallet
+	 *
+	 * @param wallet - wallet to be stored, id must be already assigned
+	 * @return <tt>false</tt> if the wallet with the same id or the same name, private and public key is already stored
+	 */
+	boolean insert(Wallet wallet);
+
+	/**
+	 * Change name, private and public key of the stored wallet
+	 *
+	 * @param wallet - stored wallet to be changed
+	 * @param name - new wallet name
+	 * @param privateKey - new wallet private key
+	 * @param publicKey - new wallet public key
+	 * @return <tt>false</tt> if other wallet with the same name, private and public key is already stored
+	 */
+	boolean updateIdentity(Wallet wallet, String name, String privateKey, String publicKey);
+
+	/**
+	 * Remove wallet by its id
+	 *
+	 * @param id - identificator of the wallet
+	 * @return removed wallet or empty optional if there is no wallet with such id
+	 */
+	Optional<Wallet> deleteById(Long id);
+
+	/**
+	 * Stored wallets ordered by their id
+	 *
+	 * @return ordered stream of the wallets
+	 */
+	Stream<Wallet> findAll();
+
+	/**
+	 * Stored wallets with id greater than requested ordered by their id, the first wallet is found without visiting the preceding ones
+	 *
+	 * @param afterId - id after which the wallets are returned, <tt>null</tt> for all wallets
+	 * @return ordered stream of the wallets
+	 */
+	Stream<Wallet> findAllAfter(Long afterId);
+
+	/**
+	 * @return number of stored wallets
+	 */
+	long count();
+}
@@ -1,36 +1,90 @@
 package com.hotovo.cws.service;
 
-import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.controller.dto.CurrencyTransferRequest;
+import com.hotovo.cws.controller.dto.TransferBatchMode;
+import com.hotovo.cws.controller.dto.TransferResult;
+import com.hotovo.cws.controller.dto.TransferResult.Status;
+import com.hotovo.cws.domain.SymbolTable;
 import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import com.hotovo.cws.service.price.PriceBook;
+import com.hotovo.cws.service.price.PriceCache;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponents;
-import org.springframework.web.util.UriComponentsBuilder;
 
 @Slf4j
 @Service
 public class CurrencyService {
 
 	@Autowired
-	private RestTemplate restTemplate;
+	private SymbolRegistry symbolRegistry;
 
-	@Value("${crypto-compare.base-url}")
-	private String ccBaseUrl;
+	@Autowired
+	private PriceCache priceCache;
+
+	/**
+	 * Local book of the polled prices, prices missing in the book are loaded on demand by the price cache
+	 */
+	@Autowired(required = false)
+	private PriceBook priceBook;
+
+	@Autowired
+	private TransferEngine transferEngine;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private Validator validator;
 
-	@Value("${crypto-compare.api-key}")
-	private String apiKey;
+	/**
+	 * Number of batch transfers applied before waiting for the journal and reporting their results
+	 */
+	@Value("${wallet.transfer-batch.chunk-size:1000}")
+	private int batchChunkSize;
+
+	@Value("${wallet.async.mutation-threads:8}")
+	private int mutationThreads;
+
+	/**
+	 * Threads applying the balance changes of the asynchronous requests. The change waits until the journal is durable, so it must not block the I/O
+	 * dispatcher thread completing the price.
+	 */
+	private ExecutorService mutationExecutor;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger threads = new AtomicInteger();
+		mutationExecutor = Executors.newFixedThreadPool(mutationThreads, runnable -> {
+			Thread thread = new Thread(runnable, "wallet-mutation-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		mutationExecutor.shutdown();
+	}
 
 	/**
 	 * Transfer of specified amount and currency between two wallets. If transaction is not successfull return both wallets/currencies to origin state.
@@ -40,35 +94,147 @@ public class CurrencyService {
 	 * @param transferAmount - amount of the currency that will be withdrawn
 	 * @param destWallet - destination wallet where currency will be deposited
 	 * @param destSymbol - destination currency which will be deposited
-	 * @return <tt>true</tt> or <tt>false</tt> based on the transaction success
 	 * @throws RuntimeException if the specified currency and its balance is lower then requested amount
 	 */
 	public void transferCurrency(Wallet sourceWallet, String sourceSymbol, Double transferAmount, Wallet destWallet, String destSymbol) {
-		Currency sourceCurrency = sourceWallet.getCurrencies().stream()
-				.filter(currency -> currency.getSymbol().equalsIgnoreCase(sourceSymbol) && currency.getAmount() >= transferAmount)
-				.findFirst()
-				.orElseThrow(() -> new RuntimeException("Source wallet has no such currency or balance is lower then requested amount!"));
-
-		Currency destinationCurrency = findOrCreateNewCurrency(destWallet, destSymbol);
-
-		Double price = sourceSymbol.equalsIgnoreCase(destSymbol) ? 1.0 : fetchPrice(sourceSymbol, destSymbol);
-
-		try {
-			log.info("Money transfer from wallet {} to wallet {} started!", sourceWallet.getId(), destWallet.getId());
-			sourceCurrency.setAmount(sourceCurrency.getAmount() - transferAmount);
-			addOrReplaceCurrency(sourceWallet, sourceCurrency);
-
-			destinationCurrency.setAmount(destinationCurrency.getAmount() + transferAmount * price);
-			addOrReplaceCurrency(destWallet, destinationCurrency);
-			log.info("Money transfer from wallet {} to wallet {} successfull!", sourceWallet.getId(), destWallet.getId());
-		} catch (Exception e) {
-			log.error("Error performing transaction.... switching back to original state");
-			addOrReplaceCurrency(sourceWallet, sourceCurrency);
-			addOrReplaceCurrency(destWallet, destinationCurrency);
-			throw e;
+		Double price = price(sourceSymbol, destSymbol);
+
+		log.debug("Money transfer from wallet {} to wallet {} started!", sourceWallet.getId(), destWallet.getId());
+		transferEngine.transfer(sourceWallet, sourceSymbol, transferAmount, destWallet, destSymbol, price);
+		log.debug("Money transfer from wallet {} to wallet {} successfull!", sourceWallet.getId(), destWallet.getId());
+	}
+
+	/**
+	 * Transfer of specified amount and currency between two wallets without blocking the caller while the price is loaded. The transfer is performed by the
+	 * mutation executor when the price is loaded.
+	 *
+	 * @param sourceWallet - wallet from where currency will be withdrawn
+	 * @param sourceSymbol - symbol for the currency that will be withdrawn
+	 * @param transferAmount - amount of the currency that will be withdrawn
+	 * @param destWallet - destination wallet where currency will be deposited
+	 * @param destSymbol - destination currency which will be deposited
+	 * @return future completed when the transfer is done, completed exceptionally if the price is not available or the transfer fails
+	 */
+	public CompletableFuture<Void> transferCurrencyAsync(Wallet sourceWallet, String sourceSymbol, Double transferAmount, Wallet destWallet,
+			String destSymbol) {
+		return priceAsync(sourceSymbol, destSymbol).thenAcceptAsync(price -> {
+			log.debug("Money transfer from wallet {} to wallet {} started!", sourceWallet.getId(), destWallet.getId());
+			transferEngine.transfer(sourceWallet, sourceSymbol, transferAmount, destWallet, destSymbol, price);
+			log.debug("Money transfer from wallet {} to wallet {} successfull!", sourceWallet.getId(), destWallet.getId());
+		}, mutationExecutor);
+	}
+
+	/**
+	 * Transfer currencies for all requests of the batch. Wallets are looked up once per request and the price of every distinct currency pair is loaded
+	 * once for the whole batch. Results are reported in the order of the requests when the transfers are durable.
+	 *
+	 * @param requests - transfers of the batch
+	 * @param mode - every transfer on its own or all-or-nothing
+	 * @param results - consumer of the per-item results
+	 */
+	public void transferCurrencies(List<CurrencyTransferRequest> requests, TransferBatchMode mode, Consumer<TransferResult> results) {
+		int size = requests.size();
+		String[] errors = new String[size];
+		Map<String, CompletableFuture<Double>> prices = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			CurrencyTransferRequest request = requests.get(i);
+			if (request == null) {
+				errors[i] = "transfer can not be null";
+				transferEngine.recordFailure("invalid_request");
+				continue;
+			}
+			Set<ConstraintViolation<CurrencyTransferRequest>> violations = validator.validate(request);
+			if (!violations.isEmpty()) {
+				errors[i] = violations.iterator().next().getMessage();
+				transferEngine.recordFailure("invalid_request");
+				continue;
+			}
+			prices.computeIfAbsent(pairOf(request), pair -> priceAsync(request.getSrcCurrency(), request.getDestCurrency()));
+		}
+		CompletableFuture.allOf(prices.values().toArray(new CompletableFuture[0])).handle((ignored, failure) -> null).join();
+
+		Transfer[] transfers = new Transfer[size];
+		for (int i = 0; i < size; i++) {
+			if (errors[i] != null) {
+				continue;
+			}
+			CurrencyTransferRequest request = requests.get(i);
+			Wallet sourceWallet = walletRepository.findById(request.getSrcId()).orElse(null);
+			Wallet destWallet = walletRepository.findById(request.getDestId()).orElse(null);
+			if (sourceWallet == null || destWallet == null) {
+				errors[i] = "Wallet with requested id not found!";
+				transferEngine.recordFailure("wallet_not_found");
+				continue;
+			}
+			try {
+				Double price = prices.get(pairOf(request)).join();
+				transfers[i] = new Transfer(sourceWallet, request.getSrcCurrency(), request.getSrcAmount(), destWallet, request.getDestCurrency(), price);
+			} catch (CompletionException e) {
+				errors[i] = (e.getCause() != null ? e.getCause() : e).getMessage();
+				transferEngine.recordFailure("price_unavailable");
+			}
+		}
+
+		if (mode == TransferBatchMode.ALL_OR_NOTHING) {
+			transferAll(transfers, errors, results);
+		} else {
+			transferEach(transfers, errors, results);
+		}
+		log.info("Transfer batch of {} transfers with {} distinct prices finished", size, prices.size());
+	}
+
+	/**
+	 * Apply the transfers one by one, results of a chunk are reported when all its transfers are durable
+	 */
+	private void transferEach(Transfer[] transfers, String[] errors, Consumer<TransferResult> results) {
+		for (int from = 0; from < transfers.length; from += batchChunkSize) {
+			int to = Math.min(transfers.length, from + batchChunkSize);
+			long sequence = 0;
+			for (int i = from; i < to; i++) {
+				Transfer transfer = transfers[i];
+				if (transfer == null) {
+					continue;
+				}
+				try {
+					sequence = Math.max(sequence, transferEngine.applyTransfer(transfer.getSourceWallet(), transfer.getSourceSymbol(), transfer.getAmount(),
+							transfer.getDestWallet(), transfer.getDestSymbol(), transfer.getPrice()));
+				} catch (RuntimeException e) {
+					errors[i] = e.getMessage();
+				}
+			}
+			transferEngine.awaitDurable(sequence);
+			for (int i = from; i < to; i++) {
+				results.accept(errors[i] == null ? new TransferResult(i, Status.APPLIED, null) : new TransferResult(i, Status.FAILED, errors[i]));
+			}
 		}
 	}
 
+	/**
+	 * Apply all transfers or none of them, nothing is applied if any transfer is not valid
+	 */
+	private void transferAll(Transfer[] transfers, String[] errors, Consumer<TransferResult> results) {
+		boolean valid = Arrays.stream(errors).allMatch(Objects::isNull);
+		if (valid) {
+			try {
+				transferEngine.transferAll(Arrays.asList(transfers));
+			} catch (TransferBatchException e) {
+				errors[e.getIndex()] = e.getMessage();
+				valid = false;
+			}
+		}
+		for (int i = 0; i < transfers.length; i++) {
+			if (valid) {
+				results.accept(new TransferResult(i, Status.APPLIED, null));
+			} else {
+				results.accept(errors[i] == null ? new TransferResult(i, Status.ABORTED, null) : new TransferResult(i, Status.FAILED, errors[i]));
+			}
+		}
+	}
+
+	private String pairOf(CurrencyTransferRequest request) {
+		return request.getSrcCurrency().toUpperCase(Locale.ROOT) + "/" + request.getDestCurrency().toUpperCase(Locale.ROOT);
+	}
+
 	/**
 	 * Buy specified amount of currency and add it to specified wallet with specified currency. Conversion between currencies is done based on actual data from
 	 * CryptoCompare.com API (https://min-api.cryptocompare.com/documentation)
@@ -81,82 +247,77 @@ public class CurrencyService {
 	 */
 	public Wallet buyCurrency(String sourceSymbol, Double amount, String destSymbol, Wallet wallet) {
 
-		Double price = sourceSymbol.equalsIgnoreCase(destSymbol) ? 1.0 : fetchPrice(sourceSymbol, destSymbol);
+		Double price = price(sourceSymbol, destSymbol);
 
-		Currency destinationCurrency = findOrCreateNewCurrency(wallet, destSymbol);
-		destinationCurrency.setAmount(destinationCurrency.getAmount() + amount * price);
-		addOrReplaceCurrency(wallet, destinationCurrency);
-		return wallet;
+		return transferEngine.credit(wallet, sourceSymbol, amount, destSymbol, price);
 	}
 
 	/**
-	 * Fetch the currency conversion value for
+	 * Buy specified amount of currency without blocking the caller while the price is loaded. The currency is credited by the mutation executor when the
+	 * price is loaded.
 	 *
-	 * @param fsym cryptocurrency symbol of interest e.g. BTC
-	 * @param tsym cryptocurrency symbol to convert into e.g. ETH
-	 * @return price for the currency conversion
+	 * @param sourceSymbol - symbol for currency user buys
+	 * @param amount - amount of currency user buys
+	 * @param destSymbol - destination currency symbol
+	 * @param wallet - destination wallet
+	 * @return future of the wallet with currency changes
 	 */
-	private Double fetchPrice(String fsym, String tsym) {
-		Map<String, String> uriParams = new HashMap<>();
-		uriParams.put("fsym", fsym);
-		uriParams.put("tsym", tsym);
-		UriComponents uri = UriComponentsBuilder
-				.fromHttpUrl(ccBaseUrl.concat("/data/price?fsym={fsym}&tsyms={tsym}"))
-				.buildAndExpand(uriParams);
-
-		log.info("External endpoint call with method {} to {} ", HttpMethod.GET, uri.toString());
-		ResponseEntity<HashMap> responseEntity = restTemplate.exchange(uri.toUri(), HttpMethod.GET, createEntityWithAuthHeader(), HashMap.class);
-		return Optional.ofNullable(responseEntity.getBody())
-				.map(response -> {
-					log.info("Received response from crypto compare {}", response.toString());
-					return response.get(tsym);
-				})
-				.filter(o -> o instanceof Number)
-				.map(o -> (Number) o)
-				.map(Number::doubleValue)
-				.orElseThrow(() -> new RuntimeException("Price for currency not found or not valid!"));
+	public CompletableFuture<Wallet> buyCurrencyAsync(String sourceSymbol, Double amount, String destSymbol, Wallet wallet) {
+		return priceAsync(sourceSymbol, destSymbol).thenApplyAsync(price -> transferEngine.credit(wallet, sourceSymbol, amount, destSymbol, price),
+				mutationExecutor);
 	}
 
-	@Cacheable(value = "currencies")
+	/**
+	 * Check if the currency is available on CryptoCompare.com
+	 *
+	 * @param currencySymbol - currency symbol in any case
+	 * @return <tt>true</tt> if the currency is valid
+	 */
 	public Boolean isCurrencyValid(String currencySymbol) {
-		UriComponents uri = UriComponentsBuilder
-				.fromHttpUrl(ccBaseUrl.concat("/data/all/coinlist"))
-				.build();
-
-		log.info("External endpoint call with method {} to {} ", HttpMethod.GET, uri.toString());
-		ResponseEntity<HashMap> responseEntity = restTemplate.exchange(uri.toUri(), HttpMethod.GET, createEntityWithAuthHeader(), HashMap.class);
-
-		return Optional.ofNullable(responseEntity.getBody())
-				.map(response -> {
-					log.info("Received available currencies from crypto compare");
-					return response.get("Data");
-				})
-				.filter(o -> o instanceof HashMap)
-				.map(o-> (HashMap) o)
-				.map(HashMap::keySet)
-				.map(keyset -> keyset.stream().anyMatch(symbol -> symbol.toString().equalsIgnoreCase(currencySymbol)))
-				.orElseGet(() -> {
-					log.info("Currency {} is not valid and won't be saved", currencySymbol);
-					return false;
-				});
+		boolean valid = symbolRegistry.isValid(currencySymbol);
+		if (!valid) {
+			log.debug("Currency {} is not valid and won't be saved", currencySymbol);
+		}
+		return valid;
 	}
 
-	private Currency findOrCreateNewCurrency(Wallet destWallet, String destSymbol) {
-		return destWallet.getCurrencies().stream()
-				.filter(currency -> currency.getSymbol().equalsIgnoreCase(destSymbol))
-				.findFirst()
-				.orElse(new Currency(0.0, destSymbol));
+	private double price(String sourceSymbol, String destSymbol) {
+		if (sourceSymbol.equalsIgnoreCase(destSymbol)) {
+			validateSameSymbol(sourceSymbol);
+			return 1.0;
+		}
+		double price = priceBook != null ? priceBook.getPrice(sourceSymbol, destSymbol) : Double.NaN;
+		return Double.isNaN(price) ? priceCache.getPrice(sourceSymbol, destSymbol) : price;
 	}
 
-	private void addOrReplaceCurrency(Wallet wallet, Currency sourceCurrency) {
-		wallet.getCurrencies().remove(sourceCurrency);
-		wallet.getCurrencies().add(sourceCurrency);
+	/**
+	 * Get price for the currency conversion from the price book, or load it if the book has no fresh price
+	 *
+	 * @param sourceSymbol - symbol of the currency to be converted
+	 * @param destSymbol - symbol of the currency to convert into
+	 * @return future of the price, completed exceptionally if the price is not available
+	 */
+	public CompletableFuture<Double> priceAsync(String sourceSymbol, String destSymbol) {
+		if (sourceSymbol.equalsIgnoreCase(destSymbol)) {
+			try {
+				validateSameSymbol(sourceSymbol);
+			} catch (RuntimeException e) {
+				CompletableFuture<Double> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+			return CompletableFuture.completedFuture(1.0);
+		}
+		double price = priceBook != null ? priceBook.getPrice(sourceSymbol, destSymbol) : Double.NaN;
+		return Double.isNaN(price) ? priceCache.getPriceAsync(sourceSymbol, destSymbol) : CompletableFuture.completedFuture(price);
 	}
 
-	private HttpEntity createEntityWithAuthHeader() {
-		HttpHeaders headers = new HttpHeaders();
-		headers.add("authorization", "Apikey " + apiKey);
-		return new HttpEntity<>(headers);
+	/**
+	 * Conversion to the same currency has no price which would prove the symbol valid, so the symbol is checked before it gets to the wallet
+	 */
+	private void validateSameSymbol(String symbol) {
+		if (SymbolTable.find(symbol) == SymbolTable.UNKNOWN && !symbolRegistry.isValid(symbol)) {
+			throw new RuntimeException("Price for currency not found or not valid!");
+		}
 	}
-
 }
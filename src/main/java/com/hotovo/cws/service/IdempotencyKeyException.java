@@ -0,0 +1,11 @@
+package com.hotovo.cws.service;
+
+/**
+ * Idempotency key of the request was already used for a different request
+ */
+public class IdempotencyKeyException extends RuntimeException {
+
+	public IdempotencyKeyException(String message) {
+		super(message);
+	}
+}
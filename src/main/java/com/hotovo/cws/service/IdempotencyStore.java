@@ -0,0 +1,238 @@
+package com.hotovo.cws.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Outcomes of the operations by their idempotency key. Operation repeated with the same key is not executed again, the outcome of its first execution is
+ * returned instead. Repeated operation arriving while the first one is still running gets the same pending outcome.
+ * <p>
+ * Keys are kept in a ring of segments, every segment covers <tt>ttl / segments</tt> of time. When the newest segment gets old, the oldest segment is cleared
+ * and becomes the newest one, so keys are expired a whole segment at a time without scanning them. Every key is remembered at least
+ * <tt>ttl * (segments - 1) / segments</tt>. Segment is an open addressing table of 128-bit key hashes, the key strings are not stored. Request of every
+ * key is remembered by its 128-bit hash as well. Number of keys is bounded, when the newest segment is full the ring is rotated early and the oldest
+ * keys are forgotten sooner.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final long FIRST_OFFSET = 0xcbf29ce484222325L;
+	private static final long SECOND_OFFSET = 0x84222325cbf29ce4L;
+
+	private final Segment[] segments;
+
+	private final long segmentNanos;
+
+	private final int maxSegmentKeys;
+
+	/**
+	 * Index of the newest segment, guarded by this
+	 */
+	private int newest;
+
+	/**
+	 * @param ttl - how long the outcomes are remembered
+	 * @param maxKeys - maximal number of remembered keys
+	 * @param segmentCount - number of segments the keys are expired by
+	 */
+	@Autowired
+	public IdempotencyStore(@Value("${wallet.idempotency.ttl:1h}") Duration ttl, @Value("${wallet.idempotency.max-keys:2000000}") int maxKeys,
+			@Value("${wallet.idempotency.segments:4}") int segmentCount) {
+		if (segmentCount < 2) {
+			throw new RuntimeException("Idempotency store needs at least two segments!");
+		}
+		segmentNanos = ttl.toNanos() / segmentCount;
+		maxSegmentKeys = Math.max(1, maxKeys / segmentCount);
+		segments = new Segment[segmentCount];
+		long now = System.nanoTime();
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(now);
+		}
+	}
+
+	/**
+	 * Execute the operation unless it was already executed with the same key. Operation which completed exceptionally is not remembered and is executed
+	 * again on the next request with its key.
+	 *
+	 * @param key - idempotency key, unique for every operation requested by the client
+	 * @param request - serialized operation request, same key used for a different request is rejected
+	 * @param operation - operation to be executed
+	 * @return outcome of the first execution of the operation with the key, completed exceptionally by {@link IdempotencyKeyException} if the key was used
+	 * for a different request
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> execute(String key, byte[] request, Supplier<CompletableFuture<T>> operation) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		long hash = hash(bytes, FIRST_OFFSET);
+		long check = hash(bytes, SECOND_OFFSET) | 1;
+		long requestHash = hash(request, FIRST_OFFSET);
+		long requestCheck = hash(request, SECOND_OFFSET);
+		CompletableFuture<T> outcome = new CompletableFuture<>();
+		synchronized (this) {
+			rotate(System.nanoTime());
+			boolean retried = false;
+			for (int i = 0; i < segments.length && !retried; i++) {
+				Segment segment = segments[Math.floorMod(newest - i, segments.length)];
+				int slot = segment.find(hash, check);
+				if (slot < 0) {
+					continue;
+				}
+				if (segment.requests[slot * 2] != requestHash || segment.requests[slot * 2 + 1] != requestCheck) {
+					outcome.completeExceptionally(new IdempotencyKeyException("Idempotency key was already used for a different request!"));
+					return outcome;
+				}
+				if (!segment.outcomes[slot].isCompletedExceptionally()) {
+					return (CompletableFuture<T>) segment.outcomes[slot];
+				}
+				segment.outcomes[slot] = outcome;
+				retried = true;
+			}
+			if (!retried) {
+				if (segments[newest].size >= maxSegmentKeys) {
+					log.warn("Idempotency store is full with {} keys per segment, oldest keys are forgotten before their ttl", maxSegmentKeys);
+					advance(System.nanoTime());
+				}
+				segments[newest].put(hash, check, requestHash, requestCheck, outcome);
+			}
+		}
+
+		try {
+			operation.get().whenComplete((result, failure) -> {
+				if (failure == null) {
+					outcome.complete(result);
+				} else {
+					outcome.completeExceptionally(failure);
+				}
+			});
+		} catch (RuntimeException e) {
+			outcome.completeExceptionally(e);
+		}
+		return outcome;
+	}
+
+	/**
+	 * @return number of remembered keys
+	 */
+	public synchronized long size() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	private void rotate(long now) {
+		long elapsed = (now - segments[newest].createdAt) / segmentNanos;
+		for (long i = 0; i < Math.min(elapsed, segments.length); i++) {
+			advance(segments[newest].createdAt + segmentNanos);
+		}
+		if (elapsed >= segments.length) {
+			segments[newest].createdAt = now;
+		}
+	}
+
+	private void advance(long now) {
+		newest = (newest + 1) % segments.length;
+		segments[newest].clear(now);
+	}
+
+	/**
+	 * FNV-1a hash of the bytes with 64-bit finalizer, two different offsets give two independent hashes of the key or the request
+	 */
+	private static long hash(byte[] bytes, long offset) {
+		long hash = offset;
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Open addressing table with linear probing, keys are never removed one by one, the whole segment is cleared when it expires
+	 */
+	private static class Segment {
+
+		/**
+		 * Both hashes of every key, the second hash is odd so the empty slot is the one with zero second hash
+		 */
+		private long[] keys = new long[INITIAL_CAPACITY * 2];
+
+		/**
+		 * Both hashes of the request of every key
+		 */
+		private long[] requests = new long[INITIAL_CAPACITY * 2];
+
+		private CompletableFuture<?>[] outcomes = new CompletableFuture<?>[INITIAL_CAPACITY];
+
+		private int size;
+
+		private long createdAt;
+
+		Segment(long createdAt) {
+			this.createdAt = createdAt;
+		}
+
+		int find(long hash, long check) {
+			int mask = outcomes.length - 1;
+			for (int slot = (int) hash & mask; keys[slot * 2 + 1] != 0; slot = (slot + 1) & mask) {
+				if (keys[slot * 2] == hash && keys[slot * 2 + 1] == check) {
+					return slot;
+				}
+			}
+			return -1;
+		}
+
+		void put(long hash, long check, long requestHash, long requestCheck, CompletableFuture<?> outcome) {
+			if ((size + 1) * 4L > outcomes.length * 3L) {
+				grow();
+			}
+			int mask = outcomes.length - 1;
+			int slot = (int) hash & mask;
+			while (keys[slot * 2 + 1] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot * 2] = hash;
+			keys[slot * 2 + 1] = check;
+			requests[slot * 2] = requestHash;
+			requests[slot * 2 + 1] = requestCheck;
+			outcomes[slot] = outcome;
+			size++;
+		}
+
+		void clear(long now) {
+			Arrays.fill(keys, 0);
+			Arrays.fill(outcomes, null);
+			size = 0;
+			createdAt = now;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			long[] oldRequests = requests;
+			CompletableFuture<?>[] oldOutcomes = outcomes;
+			keys = new long[oldKeys.length * 2];
+			requests = new long[oldRequests.length * 2];
+			outcomes = new CompletableFuture<?>[oldOutcomes.length * 2];
+			size = 0;
+			for (int slot = 0; slot < oldOutcomes.length; slot++) {
+				if (oldKeys[slot * 2 + 1] != 0) {
+					put(oldKeys[slot * 2], oldKeys[slot * 2 + 1], oldRequests[slot * 2], oldRequests[slot * 2 + 1], oldOutcomes[slot]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.hotovo.cws.service;
+
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes are executed by the calling threads while holding the locks of the changed wallets. Changes of unrelated wallets run in parallel.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.mutation-mode", havingValue = "locking", matchIfMissing = true)
+public class LockingWalletExecutor implements WalletExecutor {
+
+	private final WalletLocks walletLocks;
+
+	@Autowired
+	public LockingWalletExecutor(WalletLocks walletLocks) {
+		this.walletLocks = walletLocks;
+	}
+
+	@Override
+	public <T> T execute(long walletId, Supplier<T> change) {
+		walletLocks.lock(walletId);
+		try {
+			return change.get();
+		} finally {
+			walletLocks.unlock(walletId);
+		}
+	}
+
+	@Override
+	public <T> T execute(long firstWalletId, long secondWalletId, Supplier<T> change) {
+		walletLocks.lock(firstWalletId, secondWalletId);
+		try {
+			return change.get();
+		} finally {
+			walletLocks.unlock(firstWalletId, secondWalletId);
+		}
+	}
+
+	@Override
+	public <T> T executeAll(long[] walletIds, Supplier<T> change) {
+		walletLocks.lockAll(walletIds);
+		try {
+			return change.get();
+		} finally {
+			walletLocks.unlockAll(walletIds);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.hotovo.cws.service;
+
+import com.hotovo.cws.controller.dto.PortfolioValuation;
+import com.hotovo.cws.controller.dto.WalletValuation;
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Values wallets in a target currency. Distinct currencies of all valued wallets are collected first and their prices are resolved together, so the number
+ * of price requests depends on the number of currencies, not on the number of wallets. Wallets are then valued in parallel on the fork-join pool, every
+ * wallet is read by the {@link WalletExecutor} so its balances are consistent. The total is not a snapshot of all wallets at one point in time, transfers
+ * running during the valuation may be seen in one wallet and not yet in the other.
+ */
+@Slf4j
+@Service
+public class PortfolioService {
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private WalletExecutor walletExecutor;
+
+	@Autowired
+	private CurrencyService currencyService;
+
+	/**
+	 * Value the wallets and report the value of every wallet
+	 *
+	 * @param walletIds - ids of the wallets to be valued
+	 * @param currency - symbol of the target currency
+	 * @return value of every wallet and their total
+	 * @throws RuntimeException if any of the wallets does not exist
+	 */
+	public PortfolioValuation valueWallets(Collection<Long> walletIds, String currency) {
+		Wallet[] wallets = walletIds.stream()
+				.distinct()
+				.map(id -> walletRepository.findById(id).orElseThrow(() -> new RuntimeException("Wallet with requested id not found!")))
+				.toArray(Wallet[]::new);
+		return value(wallets, currency, true);
+	}
+
+	/**
+	 * Value all stored wallets
+	 *
+	 * @param currency - symbol of the target currency
+	 * @return total value of all wallets
+	 */
+	public PortfolioValuation valueAll(String currency) {
+		return value(walletRepository.findAll().toArray(Wallet[]::new), currency, false);
+	}
+
+	private PortfolioValuation value(Wallet[] wallets, String currency, boolean perWallet) {
+		long start = System.nanoTime();
+		String target = currency.toUpperCase(Locale.ROOT);
+		BitSet symbolIds = Arrays.stream(wallets)
+				.parallel()
+				.collect(BitSet::new, (ids, wallet) -> {
+					Balances balances = wallet.getBalances();
+					int size = balances.size();
+					for (int i = 0; i < size; i++) {
+						ids.set(balances.symbolIdAt(i));
+					}
+				}, BitSet::or);
+		double[] prices = prices(symbolIds, target);
+
+		Set<String> unpriced = ConcurrentHashMap.newKeySet();
+		double[] values = new double[wallets.length];
+		IntStream.range(0, wallets.length)
+				.parallel()
+				.forEach(i -> values[i] = walletExecutor.execute(wallets[i].getId(), () -> valueOf(wallets[i].getBalances(), prices, unpriced)));
+		double total = Arrays.stream(values).sum();
+
+		List<WalletValuation> walletValues = null;
+		if (perWallet) {
+			walletValues = new ArrayList<>(wallets.length);
+			for (int i = 0; i < wallets.length; i++) {
+				walletValues.add(new WalletValuation(wallets[i].getId(), values[i]));
+			}
+		}
+		log.info("Valued {} wallets with {} currencies in {} in {} ms", wallets.length, symbolIds.cardinality(), target,
+				(System.nanoTime() - start) / 1_000_000);
+		return new PortfolioValuation(target, total, wallets.length, walletValues, new TreeSet<>(unpriced));
+	}
+
+	/**
+	 * Resolve price of every currency in the target currency, all prices are requested before waiting for any of them so the price loader can batch them
+	 *
+	 * @return prices indexed by symbol id, {@link Double#NaN} for the currencies without price
+	 */
+	private double[] prices(BitSet symbolIds, String target) {
+		double[] prices = new double[symbolIds.length()];
+		Arrays.fill(prices, Double.NaN);
+		Map<Integer, CompletableFuture<Double>> futures = new HashMap<>();
+		symbolIds.stream().forEach(id -> futures.put(id, currencyService.priceAsync(SymbolTable.symbolOf(id), target)));
+		CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).handle((ignored, failure) -> null).join();
+		futures.forEach((id, price) -> {
+			if (!price.isCompletedExceptionally()) {
+				prices[id] = price.join();
+			}
+		});
+		return prices;
+	}
+
+	private double valueOf(Balances balances, double[] prices, Set<String> unpriced) {
+		double value = 0;
+		int size = balances.size();
+		for (int i = 0; i < size; i++) {
+			int symbolId = balances.symbolIdAt(i);
+			double price = symbolId < prices.length ? prices[symbolId] : Double.NaN;
+			if (Double.isNaN(price)) {
+				unpriced.add(SymbolTable.symbolOf(symbolId));
+			} else {
+				value += Balances.toAmount(balances.unitsAt(i)) * price;
+			}
+		}
+		return value;
+	}
+}
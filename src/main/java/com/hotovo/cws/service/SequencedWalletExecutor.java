@@ -0,0 +1,241 @@
+package com.hotovo.cws.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes are published to the pre-allocated ring buffer and executed one by one by the single sequencer thread, which owns all wallet state. No locks are
+ * taken, changes of the same wallet do not contend and they are executed and journaled in the order of publication.
+ * <p>
+ * Publishers claim the slot by incrementing the claim sequence and publish the change by writing the slot sequence last. The sequencer executes the slots in
+ * the sequence order and completes the future of every change, the calling thread waits for the future.
+ * <p>
+ * Stopping closes the claim sequence, the changes claimed before are still executed and the later changes fail without being published, so no caller
+ * waits for a slot which is never executed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.mutation-mode", havingValue = "sequencer")
+public class SequencedWalletExecutor implements WalletExecutor {
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * Claim sequence after the sequencer is stopped, sequences claimed later are above it and are never executed
+	 */
+	private static final long CLOSED = Long.MAX_VALUE / 2;
+
+	private final Slot[] slots;
+
+	private final int mask;
+
+	/**
+	 * Last claimed sequence
+	 */
+	private final AtomicLong claimed = new AtomicLong(-1);
+
+	/**
+	 * Last sequence taken from the ring buffer, written only by the sequencer thread. Slots up to this sequence can be reused by the publishers.
+	 */
+	private volatile long executed = -1;
+
+	/**
+	 * Set by the sequencer thread before it parks, publishers unpark it
+	 */
+	private volatile boolean sleeping;
+
+	/**
+	 * Last sequence claimed before the sequencer was stopped, written before {@link #running} is cleared
+	 */
+	private volatile long lastClaimed = CLOSED;
+
+	private volatile boolean running = true;
+
+	private final Thread sequencer;
+
+	@Autowired
+	public SequencedWalletExecutor(@Value("${wallet.sequencer.buffer-size:65536}") int bufferSize) {
+		int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+		slots = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+		}
+		mask = size - 1;
+		sequencer = new Thread(this::run, "wallet-sequencer");
+		sequencer.setDaemon(true);
+		sequencer.start();
+		log.info("Wallet sequencer started with ring buffer of {} slots", size);
+	}
+
+	@Override
+	public <T> T execute(long walletId, Supplier<T> change) {
+		return execute(change);
+	}
+
+	@Override
+	public <T> T execute(long firstWalletId, long secondWalletId, Supplier<T> change) {
+		return execute(change);
+	}
+
+	@Override
+	public <T> T executeAll(long[] walletIds, Supplier<T> change) {
+		return execute(change);
+	}
+
+	/**
+	 * Publish the change to the ring buffer
+	 *
+	 * @param change - change to be executed by the sequencer thread
+	 * @return future completed by the sequencer thread with the result of the change, dependent stages added without executor run on the sequencer thread and
+	 * must not block
+	 * @throws RuntimeException if the sequencer is stopped
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> submit(Supplier<T> change) {
+		if (!running) {
+			throw stopped();
+		}
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		long sequence = claimed.incrementAndGet();
+		if (sequence > CLOSED) {
+			// claimed after stop, the sequencer does not wait for this sequence
+			future.completeExceptionally(stopped());
+			return (CompletableFuture<T>) future;
+		}
+		int idle = 0;
+		while (sequence - executed > mask) {
+			idle = idle(idle);
+		}
+		Slot slot = slots[(int) sequence & mask];
+		slot.change = (Supplier<Object>) change;
+		slot.future = future;
+		slot.sequence = sequence;
+		if (sleeping) {
+			LockSupport.unpark(sequencer);
+		}
+		return (CompletableFuture<T>) future;
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		if (!running) {
+			return;
+		}
+		lastClaimed = claimed.getAndSet(CLOSED);
+		running = false;
+		LockSupport.unpark(sequencer);
+		sequencer.join();
+		log.info("Wallet sequencer stopped at sequence {}", executed);
+	}
+
+	private <T> T execute(Supplier<T> change) {
+		if (Thread.currentThread() == sequencer) {
+			return change.get();
+		}
+		CompletableFuture<T> future = submit(change);
+		int idle = 0;
+		while (!future.isDone() && idle < SPIN_TRIES + YIELD_TRIES) {
+			idle = idle(idle);
+		}
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	private void run() {
+		long next = 0;
+		int idle = 0;
+		while (true) {
+			Slot slot = slots[(int) next & mask];
+			if (slot.sequence != next) {
+				if (!running && next > lastClaimed) {
+					failRemaining();
+					return;
+				}
+				if (idle < SPIN_TRIES + YIELD_TRIES) {
+					idle = idle(idle);
+				} else {
+					sleeping = true;
+					if (slot.sequence != next && running) {
+						LockSupport.parkNanos(this, PARK_NANOS);
+					}
+					sleeping = false;
+				}
+				continue;
+			}
+			idle = 0;
+			Supplier<Object> change = slot.change;
+			CompletableFuture<Object> future = slot.future;
+			slot.change = null;
+			slot.future = null;
+			executed = next++;
+			try {
+				future.complete(change.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Fail the changes left in the ring buffer after the sequencer is stopped, so their callers do not wait forever
+	 */
+	private void failRemaining() {
+		for (Slot slot : slots) {
+			CompletableFuture<Object> future = slot.future;
+			if (future != null) {
+				slot.change = null;
+				slot.future = null;
+				future.completeExceptionally(stopped());
+			}
+		}
+	}
+
+	private static RuntimeException stopped() {
+		return new RuntimeException("Wallet sequencer is stopped!");
+	}
+
+	/**
+	 * Spin, then yield and finally park for a moment while there is nothing to do
+	 *
+	 * @param idle - number of previous tries
+	 * @return number of tries including this one
+	 */
+	private int idle(int idle) {
+		if (idle < SPIN_TRIES) {
+			return idle + 1;
+		}
+		if (idle < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return idle + 1;
+		}
+		LockSupport.parkNanos(this, PARK_NANOS / 1000);
+		return idle;
+	}
+
+	private static class Slot {
+
+		private Supplier<Object> change;
+
+		private CompletableFuture<Object> future;
+
+		/**
+		 * Sequence of the published change, written last by the publisher
+		 */
+		private volatile long sequence = -1;
+	}
+}
@@ -0,0 +1,70 @@
+package com.hotovo.cws.service;
+
+import com.hotovo.cws.client.CryptoCompareClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the currency symbols available on CryptoCompare. The coin list is downloaded once and refreshed in the background, symbol validation is an
+ * in-memory lookup without any network call.
+ */
+@Slf4j
+@Component
+public class SymbolRegistry {
+
+	@Autowired
+	private CryptoCompareClient cryptoCompareClient;
+
+	private volatile SymbolSet symbols;
+
+	/**
+	 * Check if the currency symbol is available on CryptoCompare. If the coin list was not loaded yet, it is loaded first.
+	 *
+	 * @param symbol - currency symbol in any case
+	 * @return <tt>true</tt> if the symbol is valid
+	 * @throws RuntimeException if the coin list is not loaded and can not be downloaded
+	 */
+	public boolean isValid(String symbol) {
+		SymbolSet current = symbols;
+		if (current == null) {
+			current = loadIfMissing();
+		}
+		return current.contains(symbol);
+	}
+
+	/**
+	 * @return number of known symbols, zero if the coin list was not loaded yet
+	 */
+	public int size() {
+		SymbolSet current = symbols;
+		return current == null ? 0 : current.size();
+	}
+
+	/**
+	 * Download the coin list and replace the known symbols. On failure the previously loaded symbols are kept.
+	 */
+	@Scheduled(initialDelayString = "${crypto-compare.coin-list.initial-delay:PT0S}", fixedDelayString = "${crypto-compare.coin-list.refresh-interval:PT6H}")
+	public void refresh() {
+		try {
+			load();
+		} catch (RuntimeException e) {
+			log.warn("Coin list refresh failed, keeping {} known symbols: {}", size(), e.getMessage());
+		}
+	}
+
+	private synchronized SymbolSet loadIfMissing() {
+		return symbols != null ? symbols : load();
+	}
+
+	private synchronized SymbolSet load() {
+		SymbolSet loaded = SymbolSet.of(cryptoCompareClient.fetchCoinSymbols());
+		if (loaded.size() == 0) {
+			throw new RuntimeException("Currency list not available!");
+		}
+		symbols = loaded;
+		log.info("Coin list loaded with {} symbols", loaded.size());
+		return loaded;
+	}
+}
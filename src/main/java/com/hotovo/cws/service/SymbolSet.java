@@ -0,0 +1,67 @@
+package com.hotovo.cws.service;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Immutable case-insensitive set of currency symbols. Symbols are kept upper case in one open-addressing array, lookup computes the case-insensitive hash
+ * directly from the requested symbol and does not allocate.
+ */
+class SymbolSet {
+
+	private final String[] table;
+
+	private final int size;
+
+	private SymbolSet(String[] table, int size) {
+		this.table = table;
+		this.size = size;
+	}
+
+	static SymbolSet of(Collection<String> symbols) {
+		int capacity = Integer.highestOneBit(Math.max(2, symbols.size()) * 2 - 1) << 1;
+		String[] table = new String[capacity];
+		int size = 0;
+		for (String symbol : symbols) {
+			if (symbol == null || symbol.isEmpty()) {
+				continue;
+			}
+			int index = hash(symbol) & (capacity - 1);
+			while (table[index] != null && !table[index].equalsIgnoreCase(symbol)) {
+				index = (index + 1) & (capacity - 1);
+			}
+			if (table[index] == null) {
+				table[index] = symbol.toUpperCase(Locale.ROOT);
+				size++;
+			}
+		}
+		return new SymbolSet(table, size);
+	}
+
+	boolean contains(String symbol) {
+		if (symbol == null || symbol.isEmpty()) {
+			return false;
+		}
+		int mask = table.length - 1;
+		int index = hash(symbol) & mask;
+		while (table[index] != null) {
+			if (table[index].equalsIgnoreCase(symbol)) {
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private static int hash(String symbol) {
+		int hash = 0;
+		for (int i = 0; i < symbol.length(); i++) {
+			hash = 31 * hash + Character.toUpperCase(symbol.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,317 @@
+package com.hotovo.cws.service;
+
+import com.hotovo.cws.controller.dto.TransactionHistoryPage;
+import com.hotovo.cws.controller.dto.WalletTransaction;
+import com.hotovo.cws.controller.dto.WalletTransaction.Type;
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-wallet history of the balance changes. Every wallet has a ring of its latest transactions stored column by column in one buffer, on the heap or
+ * off-heap, so one transaction takes 41 bytes and recording it allocates nothing once the ring has grown to its retained size. Ring of the new wallet
+ * starts small and doubles until it holds the configured number of transactions, then the oldest transactions are overwritten.
+ * <p>
+ * Transactions of a wallet are recorded and read by the {@link WalletExecutor} together with the balance change, so the ring has one writer at a time
+ * and needs no further synchronization. Transactions older than the max age are not returned and rings of the wallets without recent transactions are
+ * released.
+ * <p>
+ * Recording never fails the journaled balance change: the transaction which can not be recorded, e.g. when the buffer of the grown ring can not be
+ * allocated, is logged and dropped, and the ring which can not grow keeps overwriting its oldest transactions. History is kept in memory only, it is not
+ * rebuilt when the journal is replayed after restart, so transactions before the restart are not returned.
+ */
+@Slf4j
+@Component
+public class TransactionHistory {
+
+	/**
+	 * History which does not record anything
+	 */
+	public static final TransactionHistory DISABLED = new TransactionHistory(0, Duration.ZERO, false);
+
+	private static final int INITIAL_CAPACITY = 8;
+	private static final int ENTRY_SIZE = 41;
+	private static final long NO_COUNTERPARTY = -1;
+	private static final Type[] TYPES = Type.values();
+
+	private final int maxEntries;
+	private final long maxAgeMillis;
+	private final IntFunction<ByteBuffer> allocator;
+
+	private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+
+	@Autowired(required = false)
+	private WalletExecutor walletExecutor;
+
+	/**
+	 * @param maxEntries - number of the latest transactions retained per wallet, 0 disables the history
+	 * @param maxAge - how long the transactions are retained
+	 * @param offHeap - store the transactions in direct buffers outside of the heap
+	 */
+	@Autowired
+	public TransactionHistory(@Value("${wallet.history.max-entries:1000}") int maxEntries, @Value("${wallet.history.max-age:30d}") Duration maxAge,
+			@Value("${wallet.history.off-heap:false}") boolean offHeap) {
+		this(maxEntries, maxAge, offHeap ? ByteBuffer::allocateDirect : ByteBuffer::allocate);
+	}
+
+	/**
+	 * @param maxEntries - number of the latest transactions retained per wallet, 0 disables the history
+	 * @param maxAge - how long the transactions are retained
+	 * @param allocator - allocates the buffer of the ring by its size in bytes
+	 */
+	public TransactionHistory(int maxEntries, Duration maxAge, IntFunction<ByteBuffer> allocator) {
+		this.maxEntries = maxEntries;
+		this.maxAgeMillis = maxAge.toMillis();
+		this.allocator = allocator;
+	}
+
+	/**
+	 * Record transfer between two wallets, must be called by the {@link WalletExecutor} executing the transfer
+	 *
+	 * @param sourceId - id of the wallet the currency was withdrawn from
+	 * @param sourceSymbolId - id of the withdrawn currency symbol
+	 * @param withdrawal - withdrawn units
+	 * @param destId - id of the wallet the converted currency was deposited to
+	 * @param destSymbolId - id of the deposited currency symbol
+	 * @param deposit - deposited units
+	 * @param price - applied conversion price
+	 */
+	public void transferred(long sourceId, int sourceSymbolId, long withdrawal, long destId, int destSymbolId, long deposit, double price) {
+		if (maxEntries > 0) {
+			long now = System.currentTimeMillis();
+			try {
+				ring(sourceId).add(now, Type.DEBIT, sourceSymbolId, withdrawal, destSymbolId, destId, price);
+			} catch (RuntimeException | OutOfMemoryError e) {
+				notRecorded(sourceId, e);
+			}
+			try {
+				ring(destId).add(now, Type.CREDIT, destSymbolId, deposit, sourceSymbolId, sourceId, price);
+			} catch (RuntimeException | OutOfMemoryError e) {
+				notRecorded(destId, e);
+			}
+		}
+	}
+
+	/**
+	 * Record currency bought to the wallet, must be called by the {@link WalletExecutor} executing the deposit
+	 *
+	 * @param walletId - id of the wallet
+	 * @param symbolId - id of the bought currency symbol
+	 * @param deposit - deposited units
+	 * @param sourceSymbolId - id of the currency symbol converted to the bought currency
+	 * @param price - applied conversion price
+	 */
+	public void bought(long walletId, int symbolId, long deposit, int sourceSymbolId, double price) {
+		if (maxEntries > 0) {
+			try {
+				ring(walletId).add(System.currentTimeMillis(), Type.BUY, symbolId, deposit, sourceSymbolId, NO_COUNTERPARTY, price);
+			} catch (RuntimeException | OutOfMemoryError e) {
+				notRecorded(walletId, e);
+			}
+		}
+	}
+
+	/**
+	 * Page of the wallet transactions within the time range, the newest first
+	 *
+	 * @param walletId - id of the wallet
+	 * @param from - oldest time of the returned transactions, inclusive, <tt>null</tt> for no limit
+	 * @param to - newest time of the returned transactions, exclusive, <tt>null</tt> for no limit
+	 * @param before - cursor, sequence of the last transaction of the previous page or <tt>null</tt> for the first page
+	 * @param size - maximal number of transactions in the page
+	 * @return transactions of the page with the cursor of the next page
+	 */
+	public TransactionHistoryPage find(long walletId, Instant from, Instant to, Long before, int size) {
+		if (size < 1) {
+			throw new RuntimeException("Page size must not be less than one!");
+		}
+		long fromMillis = Math.max(from == null ? Long.MIN_VALUE : from.toEpochMilli(), System.currentTimeMillis() - maxAgeMillis);
+		long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+		long beforeSequence = before == null ? Long.MAX_VALUE : before;
+		Ring ring = rings.get(walletId);
+		if (ring == null) {
+			return new TransactionHistoryPage(new ArrayList<>(), null);
+		}
+		return execute(walletId, () -> ring.find(fromMillis, toMillis, beforeSequence, size));
+	}
+
+	/**
+	 * Forget the history of the deleted wallet
+	 *
+	 * @param walletId - id of the wallet
+	 */
+	public void remove(long walletId) {
+		rings.remove(walletId);
+	}
+
+	/**
+	 * Release the rings of the wallets without any transaction within the max age
+	 */
+	@Scheduled(fixedDelayString = "${wallet.history.cleanup-interval:PT1H}")
+	public void removeExpired() {
+		long cutoff = System.currentTimeMillis() - maxAgeMillis;
+		int removed = 0;
+		for (Map.Entry<Long, Ring> entry : rings.entrySet()) {
+			Ring ring = entry.getValue();
+			if (execute(entry.getKey(), () -> ring.newestTime() < cutoff && rings.remove(entry.getKey(), ring))) {
+				removed++;
+			}
+		}
+		if (removed > 0) {
+			log.info("History of {} wallets without recent transactions released", removed);
+		}
+	}
+
+	/**
+	 * @return number of wallets with history
+	 */
+	public int size() {
+		return rings.size();
+	}
+
+	private void notRecorded(long walletId, Throwable e) {
+		log.error("Transaction of wallet {} not recorded to the history", walletId, e);
+	}
+
+	private Ring ring(long walletId) {
+		Ring ring = rings.get(walletId);
+		if (ring == null) {
+			ring = rings.computeIfAbsent(walletId, id -> new Ring());
+		}
+		return ring;
+	}
+
+	private <T> T execute(long walletId, Supplier<T> read) {
+		return walletExecutor != null ? walletExecutor.execute(walletId, read) : read.get();
+	}
+
+	/**
+	 * Ring of the latest transactions of one wallet. Every column of the ring is a region of one buffer: times, counterparty wallet ids, units, prices,
+	 * symbol ids, counter symbol ids and types. Transaction with sequence <tt>n</tt> is stored at index <tt>n % capacity</tt>.
+	 */
+	private class Ring {
+
+		private ByteBuffer buffer;
+		private int capacity;
+
+		/**
+		 * Capacity the ring grows to, lowered to the current capacity when the grown buffer can not be allocated
+		 */
+		private int maxCapacity = maxEntries;
+
+		/**
+		 * Number of transactions ever recorded, sequence of the next transaction
+		 */
+		private long count;
+
+		Ring() {
+			capacity = Math.min(INITIAL_CAPACITY, maxEntries);
+			buffer = allocator.apply(capacity * ENTRY_SIZE);
+		}
+
+		void add(long time, Type type, int symbolId, long units, int counterSymbolId, long counterpartyId, double price) {
+			if (count == capacity && capacity < maxCapacity) {
+				grow();
+			}
+			// times of a ring never go back, so the time range is found by binary search
+			long ringTime = count == 0 ? time : Math.max(time, time(count - 1));
+			int index = (int) (count % capacity);
+			buffer.putLong(index * 8, ringTime);
+			buffer.putLong(capacity * 8 + index * 8, counterpartyId);
+			buffer.putLong(capacity * 16 + index * 8, units);
+			buffer.putDouble(capacity * 24 + index * 8, price);
+			buffer.putInt(capacity * 32 + index * 4, symbolId);
+			buffer.putInt(capacity * 36 + index * 4, counterSymbolId);
+			buffer.put(capacity * 40 + index, (byte) type.ordinal());
+			count++;
+		}
+
+		TransactionHistoryPage find(long fromMillis, long toMillis, long beforeSequence, int size) {
+			long oldest = Math.max(0, count - capacity);
+			long newest = Math.min(count, beforeSequence) - 1;
+			// last transaction older than the end of the range
+			long low = oldest;
+			long high = newest;
+			while (low <= high) {
+				long middle = (low + high) >>> 1;
+				if (time(middle) < toMillis) {
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+
+			List<WalletTransaction> content = new ArrayList<>(Math.min(size, (int) Math.max(0, high - oldest + 1)));
+			long sequence = high;
+			for (; sequence >= oldest && content.size() < size && time(sequence) >= fromMillis; sequence--) {
+				content.add(transaction(sequence));
+			}
+			boolean more = sequence >= oldest && time(sequence) >= fromMillis;
+			return new TransactionHistoryPage(content, more ? sequence + 1 : null);
+		}
+
+		long newestTime() {
+			return count == 0 ? Long.MIN_VALUE : time(count - 1);
+		}
+
+		private long time(long sequence) {
+			return buffer.getLong((int) (sequence % capacity) * 8);
+		}
+
+		private WalletTransaction transaction(long sequence) {
+			int index = (int) (sequence % capacity);
+			long counterpartyId = buffer.getLong(capacity * 8 + index * 8);
+			return new WalletTransaction(sequence,
+					Instant.ofEpochMilli(buffer.getLong(index * 8)),
+					TYPES[buffer.get(capacity * 40 + index)],
+					SymbolTable.symbolOf(buffer.getInt(capacity * 32 + index * 4)),
+					Balances.toAmount(buffer.getLong(capacity * 16 + index * 8)),
+					SymbolTable.symbolOf(buffer.getInt(capacity * 36 + index * 4)),
+					counterpartyId == NO_COUNTERPARTY ? null : counterpartyId,
+					buffer.getDouble(capacity * 24 + index * 8));
+		}
+
+		/**
+		 * Double the capacity, the ring is full and not wrapped yet so every column is copied to the same index. If the grown buffer can not be allocated
+		 * the ring stays at its capacity and wraps.
+		 */
+		private void grow() {
+			int newCapacity = (int) Math.min(maxCapacity, capacity * 2L);
+			ByteBuffer grown;
+			try {
+				grown = allocator.apply(newCapacity * ENTRY_SIZE);
+			} catch (OutOfMemoryError e) {
+				log.warn("History ring can not grow to {} transactions, keeping {} latest transactions", newCapacity, capacity, e);
+				maxCapacity = capacity;
+				return;
+			}
+			int[] widths = {8, 8, 8, 8, 4, 4, 1};
+			int offset = 0;
+			int newOffset = 0;
+			for (int width : widths) {
+				ByteBuffer column = buffer.duplicate();
+				column.limit(offset + capacity * width).position(offset);
+				grown.position(newOffset);
+				grown.put(column);
+				offset += capacity * width;
+				newOffset += newCapacity * width;
+			}
+			grown.clear();
+			buffer = grown;
+			capacity = newCapacity;
+		}
+	}
+}
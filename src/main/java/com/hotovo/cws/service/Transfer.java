@@ -0,0 +1,25 @@
+package com.hotovo.cws.service;
+
+import com.hotovo.cws.domain.Wallet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Transfer between two wallets with resolved wallets and conversion price
+ */
+@Getter
+@AllArgsConstructor
+public class Transfer {
+
+	private final Wallet sourceWallet;
+
+	private final String sourceSymbol;
+
+	private final Double amount;
+
+	private final Wallet destWallet;
+
+	private final String destSymbol;
+
+	private final Double price;
+}
@@ -0,0 +1,20 @@
+package com.hotovo.cws.service;
+
+import lombok.Getter;
+
+/**
+ * Failure of one transfer of a batch applied as a whole, none of the batch transfers is applied
+ */
+@Getter
+public class TransferBatchException extends RuntimeException {
+
+	/**
+	 * Index of the failed transfer in the batch
+	 */
+	private final int index;
+
+	public TransferBatchException(int index, String message) {
+		super(message);
+		this.index = index;
+	}
+}
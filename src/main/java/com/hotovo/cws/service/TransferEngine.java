@@ -0,0 +1,261 @@
+package com.hotovo.cws.service;
+
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.journal.WalletJournal;
+import com.hotovo.cws.metrics.MetricsRegistry;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies balance changes to the wallets. All changes of a wallet balance are executed by the {@link WalletExecutor}, transfers are executed as one change
+ * of both wallets so the withdrawal and the deposit are seen as one atomic change. Amounts are converted to fixed-point units before the change is
+ * executed, the changes itself do not allocate. Applied changes are recorded to the {@link TransactionHistory} of their wallets, failed changes are counted by
+ * the reason of the failure. Change is reverted only until it is journaled, the history is recorded after the journal append and never fails the change.
+ */
+@Slf4j
+@Component
+public class TransferEngine {
+
+	private static final String INSUFFICIENT_BALANCE = "insufficient_balance";
+	private static final String INVALID_AMOUNT = "invalid_amount";
+	private static final String AMOUNT_TOO_HIGH = "amount_too_high";
+	private static final String INVALID_PRICE = "invalid_price";
+	private static final String DEPOSIT = "deposit";
+	private static final String JOURNAL = "journal";
+
+	@Autowired
+	private WalletExecutor walletExecutor;
+
+	/**
+	 * Journal of the balance changes, changes are not journaled unless the journal is enabled
+	 */
+	@Autowired(required = false)
+	private WalletJournal walletJournal = WalletJournal.DISABLED;
+
+	/**
+	 * History of the applied changes, changes are not recorded unless the history is available
+	 */
+	@Autowired(required = false)
+	private TransactionHistory transactionHistory = TransactionHistory.DISABLED;
+
+	@Autowired(required = false)
+	private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+	/**
+	 * Withdraw amount of source currency from the source wallet and deposit it converted by the price to the destination wallet. If the deposit fails the
+	 * withdrawal is compensated and the source wallet keeps its original balance.
+	 *
+	 * @param sourceWallet - wallet from where currency will be withdrawn
+	 * @param sourceSymbol - symbol for the currency that will be withdrawn
+	 * @param transferAmount - amount of the currency that will be withdrawn
+	 * @param destWallet - destination wallet where currency will be deposited
+	 * @param destSymbol - destination currency which will be deposited
+	 * @param price - conversion price between source and destination currency
+	 * @throws RuntimeException if the specified currency and its balance is lower then requested amount
+	 */
+	public void transfer(Wallet sourceWallet, String sourceSymbol, Double transferAmount, Wallet destWallet, String destSymbol, Double price) {
+		walletJournal.awaitDurable(applyTransfer(sourceWallet, sourceSymbol, transferAmount, destWallet, destSymbol, price));
+	}
+
+	/**
+	 * Transfer like {@link #transfer(Wallet, String, Double, Wallet, String, Double)} without waiting until it is journaled. Used for many transfers in row,
+	 * the caller waits by {@link #awaitDurable(long)} once for all of them.
+	 *
+	 * @return journal sequence of the transfer
+	 * @throws RuntimeException if the specified currency and its balance is lower then requested amount
+	 */
+	public long applyTransfer(Wallet sourceWallet, String sourceSymbol, Double transferAmount, Wallet destWallet, String destSymbol, Double price) {
+		validatePrice(price);
+		long withdrawal = toPositiveUnits(transferAmount);
+		long deposit = convert(withdrawal, price);
+		int sourceSymbolId = SymbolTable.find(sourceSymbol);
+		long sourceId = sourceWallet.getId();
+		long destId = destWallet.getId();
+
+		return walletExecutor.execute(sourceId, destId, () -> {
+			if (sourceSymbolId == SymbolTable.UNKNOWN || !sourceWallet.getBalances().tryWithdraw(sourceSymbolId, withdrawal)) {
+				throw failure(INSUFFICIENT_BALANCE, "Source wallet has no such currency or balance is lower then requested amount!");
+			}
+			// destination symbol is interned only for the transfer which passed all checks, interned symbols are never released
+			int destSymbolId = SymbolTable.intern(destSymbol);
+			boolean deposited = false;
+			long sequence;
+			try {
+				destWallet.getBalances().add(destSymbolId, deposit);
+				deposited = true;
+				sequence = walletJournal.transferred(sourceId, sourceSymbolId, withdrawal, destId, destSymbolId, deposit);
+			} catch (RuntimeException e) {
+				log.error("Error performing transaction.... switching back to original state");
+				recordFailure(deposited ? JOURNAL : DEPOSIT);
+				if (deposited) {
+					destWallet.getBalances().tryWithdraw(destSymbolId, deposit);
+				}
+				sourceWallet.getBalances().add(sourceSymbolId, withdrawal);
+				throw e;
+			}
+			// journaled transfer is never reverted, recording the history does not fail
+			transactionHistory.transferred(sourceId, sourceSymbolId, withdrawal, destId, destSymbolId, deposit, price);
+			return sequence;
+		});
+	}
+
+	/**
+	 * Apply all transfers or none of them. Transfers of the batch are executed as one change of all their wallets, so no other change is seen in between. Transfers are
+	 * applied in the order of the list, if one of them fails the applied ones are reverted in the reverse order.
+	 *
+	 * @param transfers - transfers with resolved wallets and prices
+	 * @throws TransferBatchException with index of the first failed transfer
+	 */
+	public void transferAll(List<Transfer> transfers) {
+		int size = transfers.size();
+		long[] withdrawals = new long[size];
+		long[] deposits = new long[size];
+		int[] sourceSymbolIds = new int[size];
+		int[] destSymbolIds = new int[size];
+		long[] walletIds = new long[size * 2];
+		for (int i = 0; i < size; i++) {
+			Transfer transfer = transfers.get(i);
+			try {
+				validatePrice(transfer.getPrice());
+				withdrawals[i] = toPositiveUnits(transfer.getAmount());
+				deposits[i] = convert(withdrawals[i], transfer.getPrice());
+			} catch (RuntimeException e) {
+				throw new TransferBatchException(i, e.getMessage());
+			}
+			sourceSymbolIds[i] = SymbolTable.find(transfer.getSourceSymbol());
+			walletIds[2 * i] = transfer.getSourceWallet().getId();
+			walletIds[2 * i + 1] = transfer.getDestWallet().getId();
+		}
+
+		long sequence = walletExecutor.executeAll(walletIds, () -> {
+			int applied = 0;
+			long journaled;
+			try {
+				for (; applied < size; applied++) {
+					Transfer transfer = transfers.get(applied);
+					if (sourceSymbolIds[applied] == SymbolTable.UNKNOWN
+							|| !transfer.getSourceWallet().getBalances().tryWithdraw(sourceSymbolIds[applied], withdrawals[applied])) {
+						recordFailure(INSUFFICIENT_BALANCE);
+						throw new TransferBatchException(applied, "Source wallet has no such currency or balance is lower then requested amount!");
+					}
+					destSymbolIds[applied] = SymbolTable.intern(transfer.getDestSymbol());
+					try {
+						transfer.getDestWallet().getBalances().add(destSymbolIds[applied], deposits[applied]);
+					} catch (RuntimeException e) {
+						recordFailure(DEPOSIT);
+						transfer.getSourceWallet().getBalances().add(sourceSymbolIds[applied], withdrawals[applied]);
+						throw new TransferBatchException(applied, e.getMessage());
+					}
+				}
+				journaled = walletJournal.appendAll(() -> {
+					long last = 0;
+					for (int i = 0; i < size; i++) {
+						last = walletJournal.transferred(walletIds[2 * i], sourceSymbolIds[i], withdrawals[i], walletIds[2 * i + 1], destSymbolIds[i],
+								deposits[i]);
+					}
+					return last;
+				});
+			} catch (RuntimeException e) {
+				for (int i = applied - 1; i >= 0; i--) {
+					Transfer transfer = transfers.get(i);
+					transfer.getDestWallet().getBalances().tryWithdraw(destSymbolIds[i], deposits[i]);
+					transfer.getSourceWallet().getBalances().add(sourceSymbolIds[i], withdrawals[i]);
+				}
+				if (e instanceof TransferBatchException) {
+					throw e;
+				}
+				recordFailure(JOURNAL);
+				throw new TransferBatchException(Math.min(applied, size - 1), e.getMessage());
+			}
+			for (int i = 0; i < size; i++) {
+				transactionHistory.transferred(walletIds[2 * i], sourceSymbolIds[i], withdrawals[i], walletIds[2 * i + 1], destSymbolIds[i], deposits[i],
+						transfers.get(i).getPrice());
+			}
+			return journaled;
+		});
+		walletJournal.awaitDurable(sequence);
+	}
+
+	/**
+	 * Wait until the transfers applied by {@link #applyTransfer(Wallet, String, Double, Wallet, String, Double)} up to the sequence are journaled
+	 *
+	 * @param sequence - journal sequence of the last transfer
+	 */
+	public void awaitDurable(long sequence) {
+		walletJournal.awaitDurable(sequence);
+	}
+
+	/**
+	 * Deposit amount of currency converted by the price to the wallet
+	 *
+	 * @param wallet - destination wallet
+	 * @param sourceSymbol - currency symbol the amount is converted from
+	 * @param amount - amount of the source currency
+	 * @param destSymbol - destination currency symbol
+	 * @param price - conversion price between source and destination currency
+	 * @return wallet with currency changes
+	 */
+	public Wallet credit(Wallet wallet, String sourceSymbol, Double amount, String destSymbol, Double price) {
+		validatePrice(price);
+		long deposit = convert(toPositiveUnits(amount), price);
+		int sourceSymbolId = SymbolTable.intern(sourceSymbol);
+		int symbolId = SymbolTable.intern(destSymbol);
+		long walletId = wallet.getId();
+
+		long sequence = walletExecutor.execute(walletId, () -> {
+			wallet.getBalances().add(symbolId, deposit);
+			long journaled;
+			try {
+				journaled = walletJournal.credited(walletId, symbolId, deposit);
+			} catch (RuntimeException e) {
+				recordFailure(JOURNAL);
+				wallet.getBalances().tryWithdraw(symbolId, deposit);
+				throw e;
+			}
+			transactionHistory.bought(walletId, symbolId, deposit, sourceSymbolId, price);
+			return journaled;
+		});
+		walletJournal.awaitDurable(sequence);
+		return wallet;
+	}
+
+	/**
+	 * Count the failed change of the wallet balances
+	 *
+	 * @param reason - reason of the failure, e.g. <tt>insufficient_balance</tt>
+	 */
+	public void recordFailure(String reason) {
+		metricsRegistry.counter("wallet_transfer_failures_total", "Failed balance changes by the reason of the failure", "reason", reason).increment();
+	}
+
+	private RuntimeException failure(String reason, String message) {
+		recordFailure(reason);
+		return new RuntimeException(message);
+	}
+
+	private long toPositiveUnits(Double amount) {
+		long units = amount == null ? 0 : Balances.toUnits(amount);
+		if (units <= 0) {
+			throw failure(INVALID_AMOUNT, "amount must be positive value");
+		}
+		return units;
+	}
+
+	private long convert(long units, double price) {
+		double converted = units * price;
+		if (converted >= Long.MAX_VALUE) {
+			throw failure(AMOUNT_TOO_HIGH, "Converted amount is too high!");
+		}
+		return Math.round(converted);
+	}
+
+	private void validatePrice(Double price) {
+		if (price == null || price.isNaN() || price.isInfinite() || price <= 0) {
+			throw failure(INVALID_PRICE, "Price for currency not found or not valid!");
+		}
+	}
+}
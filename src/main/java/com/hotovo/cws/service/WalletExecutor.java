@@ -0,0 +1,41 @@
+package com.hotovo.cws.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Executes the changes of the wallets. Changes involving the same wallet never run concurrently and a change sees all previous changes of its wallets, so
+ * wallet balances, identities and the journal are changed together without any further synchronization. Configured by <tt>wallet.mutation-mode</tt>.
+ */
+public interface WalletExecutor {
+
+	/**
+	 * Execute the change of one wallet
+	 *
+	 * @param walletId - id of the changed wallet
+	 * @param change - change to be executed
+	 * @return result of the change
+	 * @throws RuntimeException thrown by the change
+	 */
+	<T> T execute(long walletId, Supplier<T> change);
+
+	/**
+	 * Execute the change of two wallets as one atomic change
+	 *
+	 * @param firstWalletId - id of the first changed wallet
+	 * @param secondWalletId - id of the second changed wallet
+	 * @param change - change to be executed
+	 * @return result of the change
+	 * @throws RuntimeException thrown by the change
+	 */
+	<T> T execute(long firstWalletId, long secondWalletId, Supplier<T> change);
+
+	/**
+	 * Execute the change of many wallets as one atomic change
+	 *
+	 * @param walletIds - ids of the changed wallets, may contain duplicates
+	 * @param change - change to be executed
+	 * @return result of the change
+	 * @throws RuntimeException thrown by the change
+	 */
+	<T> T executeAll(long[] walletIds, Supplier<T> change);
+}
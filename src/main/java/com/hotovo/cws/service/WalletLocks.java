@@ -0,0 +1,141 @@
+package com.hotovo.cws.service;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Striped locks guarding the wallet balances. Every wallet id is mapped to one of the fixed number of locks, so operations on unrelated wallets run in
+ * parallel while operations on the same wallet are serialized. When two wallets are involved the locks are always taken in the ascending stripe order,
+ * which makes concurrent transfers deadlock-free.
+ */
+@Component
+public class WalletLocks {
+
+	private final ReentrantLock[] stripes;
+
+	public WalletLocks(@Value("${wallet.locks.stripes:1024}") int stripeCount) {
+		int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+		stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Run the action while holding the lock of the wallet
+	 *
+	 * @param walletId - id of the wallet to be locked
+	 * @param action - action to be executed under the lock
+	 * @return result of the action
+	 */
+	public <T> T withLock(Long walletId, Supplier<T> action) {
+		lock(walletId);
+		try {
+			return action.get();
+		} finally {
+			unlock(walletId);
+		}
+	}
+
+	/**
+	 * Run the action while holding the locks of both wallets.
+	 *
+	 * @param firstWalletId - id of the first wallet to be locked
+	 * @param secondWalletId - id of the second wallet to be locked
+	 * @param action - action to be executed under the locks
+	 * @return result of the action
+	 * @see #lock(long, long)
+	 */
+	public <T> T withLocks(Long firstWalletId, Long secondWalletId, Supplier<T> action) {
+		lock(firstWalletId, secondWalletId);
+		try {
+			return action.get();
+		} finally {
+			unlock(firstWalletId, secondWalletId);
+		}
+	}
+
+	/**
+	 * Acquire the lock of the wallet, every call has to be paired with {@link #unlock(long)}
+	 *
+	 * @param walletId - id of the wallet to be locked
+	 */
+	public void lock(long walletId) {
+		stripes[stripeOf(walletId)].lock();
+	}
+
+	/**
+	 * @param walletId - id of the wallet to be unlocked
+	 */
+	public void unlock(long walletId) {
+		stripes[stripeOf(walletId)].unlock();
+	}
+
+	/**
+	 * Acquire the locks of both wallets, every call has to be paired with {@link #unlock(long, long)}. Locks are acquired in deterministic order, if both
+	 * wallets share the stripe it is locked only once.
+	 *
+	 * @param firstWalletId - id of the first wallet to be locked
+	 * @param secondWalletId - id of the second wallet to be locked
+	 */
+	public void lock(long firstWalletId, long secondWalletId) {
+		int first = stripeOf(firstWalletId);
+		int second = stripeOf(secondWalletId);
+		stripes[Math.min(first, second)].lock();
+		if (first != second) {
+			stripes[Math.max(first, second)].lock();
+		}
+	}
+
+	/**
+	 * @param firstWalletId - id of the first wallet to be unlocked
+	 * @param secondWalletId - id of the second wallet to be unlocked
+	 */
+	public void unlock(long firstWalletId, long secondWalletId) {
+		int first = stripeOf(firstWalletId);
+		int second = stripeOf(secondWalletId);
+		if (first != second) {
+			stripes[Math.max(first, second)].unlock();
+		}
+		stripes[Math.min(first, second)].unlock();
+	}
+
+	/**
+	 * Acquire the locks of all wallets, every call has to be paired with {@link #unlockAll(long[])}. Locks are acquired in the ascending stripe order, every
+	 * stripe is locked only once.
+	 *
+	 * @param walletIds - ids of the wallets to be locked, may contain duplicates
+	 */
+	public void lockAll(long[] walletIds) {
+		BitSet locked = stripesOf(walletIds);
+		for (int stripe = locked.nextSetBit(0); stripe >= 0; stripe = locked.nextSetBit(stripe + 1)) {
+			stripes[stripe].lock();
+		}
+	}
+
+	/**
+	 * @param walletIds - ids of the wallets to be unlocked
+	 */
+	public void unlockAll(long[] walletIds) {
+		BitSet locked = stripesOf(walletIds);
+		for (int stripe = locked.previousSetBit(stripes.length - 1); stripe >= 0; stripe = locked.previousSetBit(stripe - 1)) {
+			stripes[stripe].unlock();
+		}
+	}
+
+	private BitSet stripesOf(long[] walletIds) {
+		BitSet stripeSet = new BitSet(stripes.length);
+		for (long walletId : walletIds) {
+			stripeSet.set(stripeOf(walletId));
+		}
+		return stripeSet;
+	}
+
+	private int stripeOf(long walletId) {
+		long h = walletId * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (stripes.length - 1);
+	}
+}
@@ -1,15 +1,30 @@
 package com.hotovo.cws.service;
 
+import com.hotovo.cws.controller.dto.TransactionHistoryPage;
+import com.hotovo.cws.controller.dto.WalletCursorPage;
+import com.hotovo.cws.controller.dto.WalletImportResult;
 import com.hotovo.cws.controller.dto.WalletRequest;
 import com.hotovo.cws.domain.Currency;
 import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.journal.WalletJournal;
+import com.hotovo.cws.repository.WalletRepository;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.data.domain.Page;
@@ -23,9 +38,34 @@ public class WalletService {
 
 
 	/**
-	 * Collection of existing wallets
+	 * Storage of existing wallets
 	 */
-	private Set<Wallet> wallets = new LinkedHashSet<>();
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private WalletExecutor walletExecutor;
+
+	@Autowired
+	private SymbolRegistry symbolRegistry;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private TransactionHistory transactionHistory;
+
+	/**
+	 * Number of imported wallets validated and journaled together
+	 */
+	@Value("${wallet.import.batch-size:1000}")
+	private int importBatchSize;
+
+	/**
+	 * Journal of the wallet changes, changes are not journaled unless the journal is enabled
+	 */
+	@Autowired(required = false)
+	private WalletJournal walletJournal = WalletJournal.DISABLED;
 
 	/**
 	 * Retrieve wallet based on the requested id
@@ -35,9 +75,7 @@ public class WalletService {
 	 */
 	@CachePut(value = "wallets", key = "#p0")
 	public Wallet getWalletInformation(Long id) {
-		return wallets.stream()
-				.filter(wallet -> wallet.getId().equals(id))
-				.findFirst()
+		return walletRepository.findById(id)
 				.orElseThrow(() -> new RuntimeException("Wallet with requested id not found!"));
 	}
 
@@ -49,22 +87,24 @@ public class WalletService {
 	 */
 	@CachePut(value = "wallets", key = "#result.id")
 	public Wallet createWallet(WalletRequest createWallet) {
-		Optional<Wallet> existingWallet = wallets.stream().filter(w -> isDuplicate(w, createWallet)).findFirst();
-
-		if (!existingWallet.isPresent()) {
+		while (!walletRepository.existsByIdentity(createWallet.getName(), createWallet.getPrivateKey(), createWallet.getPublicKey())) {
 			Wallet createdWallet = Wallet.builder()
-					.id(Wallet.getWalletId().getAndIncrement())
+					.id(walletRepository.nextId())
 					.privateKey(createWallet.getPrivateKey())
 					.publicKey(createWallet.getPublicKey())
 					.currencies(createWallet.getCurrencies())
 					.name(createWallet.getName())
 					.build();
-			wallets.add(createdWallet);
-			log.info("Wallet {} was created successfully!", createWallet.getName());
-			return createdWallet;
-		} else {
-			throw new RuntimeException("Wallet with requested name, private and public key already present! Won't be created");
+			long sequence = insert(createdWallet);
+			if (sequence >= 0) {
+				walletJournal.awaitDurable(sequence);
+				log.debug("Wallet {} was created successfully!", createWallet.getName());
+				return createdWallet;
+			}
+			// id taken by a wallet stored with its own id, e.g. imported, the wallet is created again with the next id unless its identity is taken
+			log.debug("Wallet id {} already used, allocating next id", createdWallet.getId());
 		}
+		throw new RuntimeException("Wallet with requested name, private and public key already present! Won't be created");
 	}
 
 	/**
@@ -73,21 +113,24 @@ public class WalletService {
 	 * @param walletUpdate - parameters of the wallet to be updated
 	 * @param id - specific id for wallet update
 	 * @return updated wallet
-	 * @throws RuntimeException in case the wallet is found in the wallets collection
+	 * @throws RuntimeException in case the wallet is not found in the wallets collection or other wallet with requested name, private and public key exists
 	 */
 	@CachePut(value = "wallets", key = "#p0")
 	public Wallet updateWallet(Long id, WalletRequest walletUpdate) {
-		return wallets.stream()
-				.filter(w -> w.getId().equals(id))
-				.findFirst()
-				.map(wallet -> {
-					wallet.setName(walletUpdate.getName());
-					wallet.setPrivateKey(walletUpdate.getPrivateKey());
-					wallet.setPublicKey(walletUpdate.getPublicKey());
-					log.info("Wallet {} was updated successfully!", wallet);
-					return wallet;
-				})
+		Wallet wallet = walletRepository.findById(id)
 				.orElseThrow(() -> new RuntimeException("Wallet for update not found!"));
+		long sequence = walletExecutor.execute(id, () -> {
+			String name = wallet.getName();
+			String privateKey = wallet.getPrivateKey();
+			String publicKey = wallet.getPublicKey();
+			if (!walletRepository.updateIdentity(wallet, walletUpdate.getName(), walletUpdate.getPrivateKey(), walletUpdate.getPublicKey())) {
+				throw new RuntimeException("Wallet with requested name, private and public key already present! Won't be updated");
+			}
+			return journal(() -> walletJournal.updated(wallet), () -> walletRepository.updateIdentity(wallet, name, privateKey, publicKey));
+		});
+		walletJournal.awaitDurable(sequence);
+		log.debug("Wallet {} was updated successfully!", wallet);
+		return wallet;
 	}
 
 	/**
@@ -99,15 +142,17 @@ public class WalletService {
 	 */
 	@CacheEvict(value = "wallets", key = "#p0")
 	public Wallet deleteWallet(Long id) {
-		return wallets.stream()
-				.filter(w -> w.getId().equals(id))
-				.findFirst()
-				.map(w -> {
-					wallets.remove(w);
-					log.info("Wallet with id {} was deleted successfully!", id);
-					return w;
-				})
-				.orElseThrow(() -> new RuntimeException("Wallet for delete not found!"));
+		long[] sequence = new long[1];
+		Wallet deletedWallet = walletExecutor.execute(id, () -> {
+			Wallet wallet = walletRepository.deleteById(id)
+					.orElseThrow(() -> new RuntimeException("Wallet for delete not found!"));
+			sequence[0] = journal(() -> walletJournal.deleted(id), () -> walletRepository.insert(wallet));
+			transactionHistory.remove(id);
+			return wallet;
+		});
+		walletJournal.awaitDurable(sequence[0]);
+		log.debug("Wallet with id {} was deleted successfully!", id);
+		return deletedWallet;
 	}
 
 	/**
@@ -116,33 +161,188 @@ public class WalletService {
 	 * @return wallets collection
 	 */
 	public Page<Wallet> fetchWallets(Pageable pageable) {
-		int start = (int) pageable.getOffset();
-		int end = Math.min((start + pageable.getPageSize()), wallets.size());
-		return new PageImpl<>(new ArrayList<>(wallets).subList(start, end), pageable, wallets.size());
+		List<Wallet> content = walletRepository.findAll()
+				.skip(pageable.getOffset())
+				.limit(pageable.getPageSize())
+				.collect(Collectors.toList());
+		return new PageImpl<>(content, pageable, walletRepository.count());
+	}
+
+	/**
+	 * Page of the wallets following the cursor, ordered by wallet id. Cost of the page does not depend on its position or the number of wallets.
+	 *
+	 * @param afterId - cursor, id of the last wallet of the previous page or <tt>null</tt> for the first page
+	 * @param size - maximal number of wallets in the page
+	 * @return wallets of the page with the cursor of the next page
+	 */
+	public WalletCursorPage fetchWalletsAfter(Long afterId, int size) {
+		if (size < 1) {
+			throw new RuntimeException("Page size must not be less than one!");
+		}
+		List<Wallet> content = walletRepository.findAllAfter(afterId)
+				.limit(size + 1L)
+				.collect(Collectors.toList());
+		if (content.size() > size) {
+			content = content.subList(0, size);
+			return new WalletCursorPage(content, content.get(size - 1).getId());
+		}
+		return new WalletCursorPage(content, null);
+	}
+
+	/**
+	 * Page of the wallet transactions within the time range, the newest first. Cost of the page does not depend on its position.
+	 *
+	 * @param id - id of the wallet
+	 * @param from - oldest time of the returned transactions, inclusive, <tt>null</tt> for no limit
+	 * @param to - newest time of the returned transactions, exclusive, <tt>null</tt> for no limit
+	 * @param before - cursor, sequence of the last transaction of the previous page or <tt>null</tt> for the first page
+	 * @param size - maximal number of transactions in the page
+	 * @return transactions of the page with the cursor of the next page
+	 * @throws RuntimeException in case the wallet is not found
+	 */
+	public TransactionHistoryPage fetchHistory(Long id, Instant from, Instant to, Long before, int size) {
+		if (!walletRepository.findById(id).isPresent()) {
+			throw new RuntimeException("Wallet with requested id not found!");
+		}
+		return transactionHistory.find(id, from, to, before, size);
 	}
 
-	private boolean isDuplicate(Wallet wallet, WalletRequest walletRequest) {
-		return wallet.getName().equals(walletRequest.getName()) && wallet.getPrivateKey().equals(walletRequest.getPrivateKey()) && wallet.getPublicKey()
-				.equals(walletRequest.getPublicKey());
+	/**
+	 * Pass copy of every wallet to the consumer in the order of the wallet ids. Wallets are copied one by one by the wallet executor, the list of all wallets is
+	 * not materialized.
+	 *
+	 * @param consumer - consumer of the wallet copies
+	 */
+	public void exportWallets(Consumer<Wallet> consumer) {
+		walletRepository.findAll().forEach(wallet -> consumer.accept(copyOf(wallet)));
+	}
+
+	/**
+	 * Create wallets for all requests in batches. Currency symbols are validated once per batch, invalid currencies are left out like on wallet creation.
+	 * Wallets of a batch are journaled together, the import waits for the journal once per batch.
+	 *
+	 * @param requests - wallets to be created, read one by one
+	 * @return number of imported, duplicate and invalid wallets
+	 */
+	public WalletImportResult importWallets(Iterator<WalletRequest> requests) {
+		long imported = 0;
+		long duplicates = 0;
+		long invalid = 0;
+		List<WalletRequest> batch = new ArrayList<>(importBatchSize);
+		Map<String, Boolean> validSymbols = new HashMap<>();
+		String error = null;
+		while (error == null) {
+			batch.clear();
+			try {
+				while (batch.size() < importBatchSize && requests.hasNext()) {
+					batch.add(requests.next());
+				}
+			} catch (RuntimeException e) {
+				error = "Import stopped after " + (imported + duplicates + invalid + batch.size()) + " wallets: " + e.getMessage();
+			}
+			if (batch.isEmpty()) {
+				break;
+			}
+			validSymbols.clear();
+			long sequence = 0;
+			int batchImported = 0;
+			for (WalletRequest request : batch) {
+				if (request == null || !validator.validate(request).isEmpty()) {
+					invalid++;
+					continue;
+				}
+				Set<Currency> currencies = new LinkedHashSet<>();
+				if (request.getCurrencies() != null) {
+					for (Currency currency : request.getCurrencies()) {
+						if (currency != null && currency.getAmount() != null && currency.getSymbol() != null
+								&& validSymbols.computeIfAbsent(currency.getSymbol(), this::isImportedSymbolValid)) {
+							currencies.add(currency);
+						}
+					}
+				}
+				Wallet wallet = Wallet.builder()
+						.id(walletRepository.nextId())
+						.privateKey(request.getPrivateKey())
+						.publicKey(request.getPublicKey())
+						.currencies(currencies)
+						.name(request.getName())
+						.build();
+				long inserted = insert(wallet);
+				if (inserted >= 0) {
+					sequence = inserted;
+					batchImported++;
+				} else {
+					duplicates++;
+				}
+			}
+			walletJournal.awaitDurable(sequence);
+			imported += batchImported;
+		}
+		log.info("Wallet import finished, {} imported, {} duplicates, {} invalid", imported, duplicates, invalid);
+		return new WalletImportResult(imported, duplicates, invalid, error);
+	}
+
+	private boolean isImportedSymbolValid(String symbol) {
+		boolean valid = symbolRegistry.isValid(symbol);
+		if (!valid) {
+			log.debug("Currency {} is not valid and won't be imported", symbol);
+		}
+		return valid;
+	}
+
+	private Wallet copyOf(Wallet wallet) {
+		return walletExecutor.execute(wallet.getId(), () -> Wallet.builder()
+				.id(wallet.getId())
+				.privateKey(wallet.getPrivateKey())
+				.publicKey(wallet.getPublicKey())
+				.currencies(wallet.getCurrencies())
+				.name(wallet.getName())
+				.build());
+	}
+
+	/**
+	 * Insert the new wallet and append it to the journal
+	 *
+	 * @return journal sequence of the wallet, negative if wallet with the same identity already exists
+	 */
+	private long insert(Wallet wallet) {
+		return walletExecutor.execute(wallet.getId(), () -> walletRepository.insert(wallet)
+				? journal(() -> walletJournal.created(wallet), () -> walletRepository.deleteById(wallet.getId()))
+				: -1L);
+	}
+
+	/**
+	 * Append the change to the journal, the change is reverted if it can not be journaled
+	 */
+	private long journal(LongSupplier append, Runnable revert) {
+		try {
+			return append.getAsLong();
+		} catch (RuntimeException e) {
+			revert.run();
+			throw e;
+		}
 	}
 
 	//test data initialization
 	@PostConstruct
 	private void initWallets() {
-		while (wallets.size() < 20) {
+		while (walletRepository.count() < 20) {
 			Set<Currency> currencies = new LinkedHashSet<>();
 			currencies.add(new Currency(100.0, "BTC"));
 			currencies.add(new Currency(5000.0, "ETH"));
 			currencies.add(new Currency(28.0, "LTC"));
 
-			long id = Wallet.getWalletId().getAndIncrement();
-			wallets.add(Wallet.builder()
+			long id = walletRepository.nextId();
+			Wallet wallet = Wallet.builder()
 					.id(id)
 					.name("wallet " + id)
 					.privateKey(UUID.randomUUID().toString())
 					.publicKey(UUID.randomUUID().toString())
 					.currencies(currencies)
-					.build());
+					.build();
+			if (walletRepository.insert(wallet)) {
+				walletJournal.awaitDurable(walletJournal.created(wallet));
+			}
 		}
 	}
 }
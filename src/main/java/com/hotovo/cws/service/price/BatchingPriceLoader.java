@@ -0,0 +1,245 @@
+package com.hotovo.cws.service.price;
+
+import com.hotovo.cws.client.CryptoCompareClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Groups price lookups requested within a short window and resolves them with one multi-symbol request to CryptoCompare. All lookups of the batch share
+ * the same result, which contains prices for every combination of the requested symbols. Free space in the request is filled with recently requested
+ * symbols, so prices of the pairs likely to be requested next are loaded by the same call. Requested symbol is remembered only after a response priced
+ * it, so unknown symbols are not sent again with the later batches.
+ */
+@Slf4j
+@Component
+public class BatchingPriceLoader {
+
+	/**
+	 * Maximal length of the symbol lists accepted by the CryptoCompare pricemulti endpoint
+	 */
+	private static final int MAX_FSYMS_LENGTH = 300;
+	private static final int MAX_TSYMS_LENGTH = 100;
+
+	private static final int RECENT_SYMBOLS = 64;
+
+	@Autowired
+	private CryptoCompareClient cryptoCompareClient;
+
+	@Value("${crypto-compare.price-batch.window:5ms}")
+	private Duration window;
+
+	@Value("${crypto-compare.price-batch.max-size:50}")
+	private int maxBatchSize;
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "price-batch");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Pending lookups of the current batch, guarded by this
+	 */
+	private Batch pending;
+
+	/**
+	 * Number of batches waiting for the response, guarded by this. Batch window elapsed while another batch is in flight is sent after the response
+	 * arrives, so the lookups keep joining it instead of being split into many small requests.
+	 */
+	private int inFlight;
+
+	/**
+	 * Recently requested symbols priced by the response, the most recent last, guarded by this
+	 */
+	private final Set<String> recentSymbols = new LinkedHashSet<>();
+
+	/**
+	 * Request the price lookup, the lookup is sent with the other lookups requested within the batch window
+	 *
+	 * @param fsym cryptocurrency symbol of interest e.g. BTC
+	 * @param tsym cryptocurrency symbol to convert into e.g. ETH
+	 * @return future of all prices loaded by the batch, keyed by upper case symbol of interest and symbol to convert into
+	 */
+	public CompletableFuture<Map<String, Map<String, Double>>> load(String fsym, String tsym) {
+		Batch full = null;
+		CompletableFuture<Map<String, Map<String, Double>>> result;
+		synchronized (this) {
+			if (pending == null) {
+				Batch batch = new Batch();
+				pending = batch;
+				scheduler.schedule(() -> flush(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			String from = fsym.toUpperCase(Locale.ROOT);
+			String to = tsym.toUpperCase(Locale.ROOT);
+			pending.add(from, to);
+			result = pending.result;
+			if (pending.size() >= maxBatchSize) {
+				full = pending;
+				pending = null;
+				inFlight++;
+			}
+		}
+		if (full != null) {
+			execute(full);
+		}
+		return result;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	private void flush(Batch batch) {
+		synchronized (this) {
+			if (pending != batch) {
+				return;
+			}
+			batch.due = true;
+			if (inFlight > 0) {
+				return;
+			}
+			pending = null;
+			inFlight++;
+		}
+		execute(batch);
+	}
+
+	private void executed() {
+		Batch due = null;
+		synchronized (this) {
+			inFlight--;
+			if (inFlight == 0 && pending != null && pending.due) {
+				due = pending;
+				pending = null;
+				inFlight++;
+			}
+		}
+		if (due != null) {
+			execute(due);
+		}
+	}
+
+	private void execute(Batch batch) {
+		List<String> recent;
+		synchronized (this) {
+			recent = new ArrayList<>(recentSymbols);
+		}
+		List<CompletableFuture<Map<String, Map<String, Double>>>> requests = new ArrayList<>();
+		try {
+			for (List<String> fsyms : chunk(pad(batch.fsyms, recent, MAX_FSYMS_LENGTH), MAX_FSYMS_LENGTH)) {
+				for (List<String> tsyms : chunk(pad(batch.tsyms, recent, MAX_TSYMS_LENGTH), MAX_TSYMS_LENGTH)) {
+					requests.add(cryptoCompareClient.fetchPricesAsync(fsyms, tsyms));
+				}
+			}
+		} catch (RuntimeException e) {
+			batch.result.completeExceptionally(e);
+			executed();
+			return;
+		}
+		CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).whenComplete((ignored, failure) -> {
+			executed();
+			if (failure != null) {
+				batch.result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+				return;
+			}
+			Map<String, Map<String, Double>> prices = new HashMap<>();
+			requests.forEach(request -> request.join().forEach((fsym, quotes) -> quotes.forEach((tsym, price) ->
+					prices.computeIfAbsent(fsym.toUpperCase(Locale.ROOT), key -> new HashMap<>()).put(tsym.toUpperCase(Locale.ROOT), price))));
+			rememberPriced(batch, prices);
+			log.debug("Batch of {} price lookups loaded", batch.size());
+			batch.result.complete(prices);
+		});
+	}
+
+	/**
+	 * Remember the symbols of the batch with a price in the response
+	 */
+	private void rememberPriced(Batch batch, Map<String, Map<String, Double>> prices) {
+		Set<String> priced = new HashSet<>(prices.keySet());
+		prices.values().forEach(quotes -> priced.addAll(quotes.keySet()));
+		synchronized (this) {
+			batch.fsyms.stream().filter(priced::contains).forEach(this::touchRecent);
+			batch.tsyms.stream().filter(priced::contains).forEach(this::touchRecent);
+		}
+	}
+
+	private void touchRecent(String symbol) {
+		recentSymbols.remove(symbol);
+		recentSymbols.add(symbol);
+		if (recentSymbols.size() > RECENT_SYMBOLS) {
+			recentSymbols.remove(recentSymbols.iterator().next());
+		}
+	}
+
+	/**
+	 * Add the most recent symbols to the requested ones while the symbol list fits into one request
+	 */
+	private Set<String> pad(Set<String> symbols, List<String> recent, int maxLength) {
+		Set<String> padded = new LinkedHashSet<>(symbols);
+		int length = String.join(",", symbols).length();
+		for (int i = recent.size() - 1; i >= 0 && length < maxLength; i--) {
+			String symbol = recent.get(i);
+			if (!padded.contains(symbol) && length + 1 + symbol.length() <= maxLength) {
+				padded.add(symbol);
+				length += 1 + symbol.length();
+			}
+		}
+		return padded;
+	}
+
+	private List<List<String>> chunk(Set<String> symbols, int maxLength) {
+		List<List<String>> chunks = new ArrayList<>();
+		List<String> chunk = new ArrayList<>();
+		int length = 0;
+		for (String symbol : symbols) {
+			if (!chunk.isEmpty() && length + 1 + symbol.length() > maxLength) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				length = 0;
+			}
+			length += (chunk.isEmpty() ? 0 : 1) + symbol.length();
+			chunk.add(symbol);
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	private static class Batch {
+
+		private final Set<String> fsyms = new LinkedHashSet<>();
+		private final Set<String> tsyms = new LinkedHashSet<>();
+		private final CompletableFuture<Map<String, Map<String, Double>>> result = new CompletableFuture<>();
+		private int lookups;
+		private boolean due;
+
+		void add(String fsym, String tsym) {
+			fsyms.add(fsym);
+			tsyms.add(tsym);
+			lookups++;
+		}
+
+		int size() {
+			return lookups;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.hotovo.cws.service.price;
+
+import com.hotovo.cws.client.CryptoCompareClient;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.service.SymbolRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local book of the prices of all known currency symbols quoted in one pivot currency. Price of any pair is derived as the cross rate of both pivot
+ * quotes, so N symbols need N quotes instead of N^2 pairs. Quotes of the symbols interned by {@link SymbolTable} and known to the {@link SymbolRegistry}
+ * are polled in the background, other sources may push quotes by {@link #publish(Map)}. Quotes of the symbols which are not interned are dropped.
+ * <p>
+ * The book is an immutable array of quotes indexed by the symbol id, every update publishes a new array. Readers read one volatile reference and two
+ * array elements, without locks and without network I/O. Quotes older than the max age are not used, the price is then loaded on demand.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "crypto-compare.price-book.enabled", havingValue = "true", matchIfMissing = true)
+public class PriceBook {
+
+	/**
+	 * Maximal length of the symbol list accepted by the CryptoCompare pricemulti endpoint
+	 */
+	private static final int MAX_FSYMS_LENGTH = 300;
+
+	@Autowired
+	private CryptoCompareClient cryptoCompareClient;
+
+	@Autowired
+	private SymbolRegistry symbolRegistry;
+
+	@Value("${crypto-compare.price-book.pivot:USD}")
+	private String pivot;
+
+	@Value("${crypto-compare.price-book.max-age:30s}")
+	private Duration maxAge;
+
+	private volatile Quotes quotes = new Quotes(new double[0], new long[0]);
+
+	/**
+	 * Get price of the currency pair derived from the pivot quotes of both currencies
+	 *
+	 * @param fsym cryptocurrency symbol of interest e.g. BTC
+	 * @param tsym cryptocurrency symbol to convert into e.g. ETH
+	 * @return price for the currency conversion or {@link Double#NaN} if any of the quotes is missing or older than the max age
+	 */
+	public double getPrice(String fsym, String tsym) {
+		Quotes current = quotes;
+		long now = System.nanoTime();
+		double from = current.quote(SymbolTable.find(fsym), now, maxAge.toNanos());
+		double to = current.quote(SymbolTable.find(tsym), now, maxAge.toNanos());
+		return from / to;
+	}
+
+	/**
+	 * Poll the pivot quotes of the interned symbols known to CryptoCompare. On failure the current quotes are kept until they reach the max age.
+	 */
+	@Scheduled(initialDelayString = "${crypto-compare.price-book.initial-delay:PT1S}", fixedDelayString = "${crypto-compare.price-book.refresh-interval:PT5S}")
+	public void refresh() {
+		String pivotSymbol = pivot.toUpperCase(Locale.ROOT);
+		List<String> chunk = new ArrayList<>();
+		int chunkLength = 0;
+		int size = SymbolTable.size();
+		for (int id = 0; id < size; id++) {
+			String symbol = SymbolTable.symbolOf(id);
+			if (symbol.equals(pivotSymbol) || !isValid(symbol)) {
+				continue;
+			}
+			if (!chunk.isEmpty() && chunkLength + symbol.length() + 1 > MAX_FSYMS_LENGTH) {
+				poll(chunk, pivotSymbol);
+				chunk.clear();
+				chunkLength = 0;
+			}
+			chunk.add(symbol);
+			chunkLength += symbol.length() + 1;
+		}
+		if (!chunk.isEmpty()) {
+			poll(chunk, pivotSymbol);
+		}
+	}
+
+	/**
+	 * Update the quotes of the symbols, quotes of other symbols are kept. Quotes of the symbols which are not interned are dropped.
+	 *
+	 * @param pivotQuotes - prices of the symbols in the pivot currency
+	 */
+	public void publish(Map<String, Double> pivotQuotes) {
+		int pivotId = SymbolTable.intern(pivot);
+		Map<Integer, Double> quotesById = new HashMap<>();
+		pivotQuotes.forEach((symbol, price) -> {
+			int id = SymbolTable.find(symbol);
+			if (id != SymbolTable.UNKNOWN && price != null && price > 0 && !price.isInfinite()) {
+				quotesById.put(id, price);
+			}
+		});
+		long now = System.nanoTime();
+		synchronized (this) {
+			Quotes current = quotes;
+			int size = SymbolTable.size();
+			double[] prices = Arrays.copyOf(current.prices, size);
+			long[] quotedAt = Arrays.copyOf(current.quotedAt, size);
+			Arrays.fill(prices, current.prices.length, size, Double.NaN);
+			quotesById.forEach((id, price) -> {
+				prices[id] = price;
+				quotedAt[id] = now;
+			});
+			prices[pivotId] = 1.0;
+			quotedAt[pivotId] = Long.MAX_VALUE;
+			quotes = new Quotes(prices, quotedAt);
+		}
+	}
+
+	/**
+	 * @return number of symbols with the quote
+	 */
+	public int size() {
+		Quotes current = quotes;
+		int size = 0;
+		for (double price : current.prices) {
+			if (!Double.isNaN(price)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	private boolean isValid(String symbol) {
+		try {
+			return symbolRegistry.isValid(symbol);
+		} catch (RuntimeException e) {
+			log.debug("Symbol {} can not be validated, it is not polled: {}", symbol, e.getMessage());
+			return false;
+		}
+	}
+
+	private void poll(List<String> symbols, String pivotSymbol) {
+		try {
+			Map<String, Double> pivotQuotes = new HashMap<>();
+			cryptoCompareClient.fetchPrices(symbols, Collections.singleton(pivotSymbol))
+					.forEach((symbol, toQuotes) -> pivotQuotes.put(symbol, toQuotes.get(pivotSymbol)));
+			publish(pivotQuotes);
+			log.debug("Price book updated with {} of {} quotes", pivotQuotes.size(), symbols.size());
+		} catch (RuntimeException e) {
+			log.warn("Price book update of {} symbols failed, keeping current quotes: {}", symbols.size(), e.getMessage());
+		}
+	}
+
+	private static class Quotes {
+
+		private final double[] prices;
+
+		private final long[] quotedAt;
+
+		Quotes(double[] prices, long[] quotedAt) {
+			this.prices = prices;
+			this.quotedAt = quotedAt;
+		}
+
+		/**
+		 * @return quote of the symbol or {@link Double#NaN} if it is missing or too old, quote of the pivot never gets old
+		 */
+		double quote(int id, long now, long maxAgeNanos) {
+			if (id < 0 || id >= prices.length || quotedAt[id] != Long.MAX_VALUE && now - quotedAt[id] > maxAgeNanos) {
+				return Double.NaN;
+			}
+			return prices[id];
+		}
+	}
+}
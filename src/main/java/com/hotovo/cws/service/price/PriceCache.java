@@ -0,0 +1,199 @@
+package com.hotovo.cws.service.price;
+
+import com.hotovo.cws.client.CallNotPermittedException;
+import com.hotovo.cws.domain.SymbolTable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local cache of the currency conversion prices. Price is fresh for the configured time to live, after that it is loaded again. Concurrent misses of the
+ * same currency pair wait for one shared load, misses of different pairs are loaded together by {@link BatchingPriceLoader} and every price returned by
+ * the batch is cached. When the load fails, price not older than the configured max staleness is returned instead of the error. When CryptoCompare is
+ * not available at all and the calls are rejected without being made, the cache runs in degraded mode and returns prices up to the longer degraded max
+ * staleness.
+ */
+@Slf4j
+@Component
+public class PriceCache {
+
+	@Autowired
+	private BatchingPriceLoader batchingPriceLoader;
+
+	@Value("${crypto-compare.price-cache.ttl:10s}")
+	private Duration ttl;
+
+	@Value("${crypto-compare.price-cache.max-staleness:5m}")
+	private Duration maxStaleness;
+
+	@Value("${crypto-compare.price-cache.degraded-max-staleness:1h}")
+	private Duration degradedMaxStaleness;
+
+	private final ConcurrentMap<PricePair, PriceEntry> prices = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads in progress by the upper case pair of symbols, used to share one upstream call between concurrent misses. Symbols of the load are not interned
+	 * until the price is loaded, so the symbol table does not grow by the symbols without price.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<Double>> runningLoads = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder staleHits = new LongAdder();
+	private final LongAdder loadCount = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder loadTimeNanos = new LongAdder();
+
+	/**
+	 * Get price for the currency conversion, from the cache if it is fresh or from CryptoCompare otherwise
+	 *
+	 * @param fsym cryptocurrency symbol of interest e.g. BTC
+	 * @param tsym cryptocurrency symbol to convert into e.g. ETH
+	 * @return price for the currency conversion
+	 * @throws RuntimeException if the price can not be loaded and there is no price within max staleness
+	 */
+	public double getPrice(String fsym, String tsym) {
+		try {
+			return getPriceAsync(fsym, tsym).join();
+		} catch (CompletionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Get price for the currency conversion without blocking the caller. Fresh price is returned as completed future, otherwise the future is completed
+	 * when the price is loaded.
+	 *
+	 * @param fsym cryptocurrency symbol of interest e.g. BTC
+	 * @param tsym cryptocurrency symbol to convert into e.g. ETH
+	 * @return future of the price for the currency conversion
+	 */
+	public CompletableFuture<Double> getPriceAsync(String fsym, String tsym) {
+		int fromSymbolId = SymbolTable.find(fsym);
+		int toSymbolId = SymbolTable.find(tsym);
+		PriceEntry entry = fromSymbolId == SymbolTable.UNKNOWN || toSymbolId == SymbolTable.UNKNOWN
+				? null
+				: prices.get(new PricePair(fromSymbolId, toSymbolId));
+		if (entry != null && System.nanoTime() - entry.getLoadedAt() < ttl.toNanos()) {
+			hits.increment();
+			return CompletableFuture.completedFuture(entry.getPrice());
+		}
+		misses.increment();
+		CompletableFuture<Double> result = new CompletableFuture<>();
+		load(fsym, tsym).whenComplete((price, failure) -> {
+			if (failure == null) {
+				result.complete(price);
+				return;
+			}
+			boolean degraded = unwrap(failure) instanceof CallNotPermittedException;
+			if (entry != null && System.nanoTime() - entry.getLoadedAt() < (degraded ? degradedMaxStaleness : maxStaleness).toNanos()) {
+				if (degraded) {
+					log.debug("Price {}/{} can not be loaded, using last known price: {}", fsym, tsym, unwrap(failure).getMessage());
+				} else {
+					log.warn("Price {}/{} can not be loaded, using stale price: {}", fsym, tsym, unwrap(failure).getMessage());
+				}
+				staleHits.increment();
+				result.complete(entry.getPrice());
+			} else {
+				result.completeExceptionally(unwrap(failure));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return current cache statistics
+	 */
+	public Stats getStats() {
+		return new Stats(hits.sum(), misses.sum(), staleHits.sum(), loadCount.sum(), loadFailures.sum(), loadTimeNanos.sum(), prices.size());
+	}
+
+	private CompletableFuture<Double> load(String fsym, String tsym) {
+		String pair = fsym.toUpperCase(Locale.ROOT) + "/" + tsym.toUpperCase(Locale.ROOT);
+		CompletableFuture<Double> load = new CompletableFuture<>();
+		CompletableFuture<Double> runningLoad = runningLoads.putIfAbsent(pair, load);
+		if (runningLoad != null) {
+			return runningLoad;
+		}
+
+		long start = System.nanoTime();
+		CompletableFuture<Map<String, Map<String, Double>>> batch;
+		try {
+			batch = batchingPriceLoader.load(fsym, tsym);
+		} catch (RuntimeException e) {
+			batch = new CompletableFuture<>();
+			batch.completeExceptionally(e);
+		}
+		batch.whenComplete((quotes, failure) -> {
+			try {
+				if (failure != null) {
+					throw unwrap(failure);
+				}
+				long loadedAt = System.nanoTime();
+				// symbols priced by CryptoCompare are valid, only they are interned
+				quotes.forEach((from, toQuotes) -> toQuotes.forEach((to, price) ->
+						prices.put(new PricePair(SymbolTable.intern(from), SymbolTable.intern(to)), new PriceEntry(price, loadedAt))));
+				Double price = quotes.getOrDefault(fsym.toUpperCase(Locale.ROOT), Collections.emptyMap()).get(tsym.toUpperCase(Locale.ROOT));
+				if (price == null) {
+					throw new RuntimeException("Price for currency not found or not valid!");
+				}
+				load.complete(price);
+			} catch (RuntimeException e) {
+				loadFailures.increment();
+				load.completeExceptionally(e);
+			} finally {
+				loadCount.increment();
+				loadTimeNanos.add(System.nanoTime() - start);
+				runningLoads.remove(pair, load);
+			}
+		});
+		return load;
+	}
+
+	private static RuntimeException unwrap(Throwable failure) {
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+		return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+	}
+
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	private static class PricePair {
+
+		private final int fromSymbolId;
+		private final int toSymbolId;
+	}
+
+	@Getter
+	@AllArgsConstructor
+	private static class PriceEntry {
+
+		private final double price;
+		private final long loadedAt;
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Stats {
+
+		private final long hits;
+		private final long misses;
+		private final long staleHits;
+		private final long loads;
+		private final long loadFailures;
+		private final long loadTimeNanos;
+		private final int size;
+	}
+}
@@ -0,0 +1,107 @@
+package com.hotovo.cws.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.CircuitBreaker.State;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+	private final CircuitBreaker sut = new CircuitBreaker("test", 10, 4, 50, Duration.ofSeconds(1), 80, Duration.ofMillis(200), 2);
+
+	@Test
+	@DisplayName("given failure rate over threshold when call requested then call rejected until open duration elapses")
+	void opened_by_failures() throws Exception {
+		call(FAST, false);
+		call(FAST, true);
+		call(FAST, false);
+		assertThat(sut.getState()).isEqualTo(State.CLOSED);
+		call(FAST, true);
+
+		assertThat(sut.getState()).isEqualTo(State.OPEN);
+		assertThat(sut.tryAcquire()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+		Thread.sleep(250);
+		assertThat(sut.tryAcquire()).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+		assertThat(sut.getState()).isEqualTo(State.HALF_OPEN);
+	}
+
+	@Test
+	@DisplayName("given slow call rate over threshold when calls succeed then circuit opened")
+	void opened_by_slow_calls() {
+		for (int i = 0; i < 4; i++) {
+			call(SLOW, false);
+		}
+
+		assertThat(sut.getState()).isEqualTo(State.OPEN);
+	}
+
+	@Test
+	@DisplayName("given half open circuit when trial calls succeed then circuit closed, when trial call fails then opened again")
+	void half_open_trial_calls() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			call(FAST, true);
+		}
+		Thread.sleep(250);
+		long first = sut.tryAcquire();
+		long second = sut.tryAcquire();
+		assertThat(first).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+		assertThat(second).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+		assertThat(sut.tryAcquire()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+		sut.onResult(first, FAST, false);
+		sut.onResult(second, SLOW, false);
+		assertThat(sut.getState()).isEqualTo(State.OPEN);
+
+		Thread.sleep(250);
+		call(FAST, false);
+		sut.onCancelled(sut.tryAcquire());
+		call(FAST, false);
+		assertThat(sut.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	@DisplayName("given call permitted while closed when its result arrives in half open circuit then result not counted as trial call")
+	void stale_result_ignored() throws Exception {
+		long closedPermit = sut.tryAcquire();
+		for (int i = 0; i < 4; i++) {
+			call(FAST, true);
+		}
+		Thread.sleep(250);
+		long trialPermit = sut.tryAcquire();
+		assertThat(sut.getState()).isEqualTo(State.HALF_OPEN);
+
+		sut.onResult(closedPermit, FAST, false);
+		sut.onCancelled(closedPermit);
+		assertThat(sut.getState()).isEqualTo(State.HALF_OPEN);
+		long secondTrialPermit = sut.tryAcquire();
+		assertThat(sut.tryAcquire()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+		sut.onResult(trialPermit, FAST, false);
+		assertThat(sut.getState()).isEqualTo(State.HALF_OPEN);
+		sut.onResult(secondTrialPermit, FAST, false);
+		assertThat(sut.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	@DisplayName("given recent successful calls when latency percentile requested then percentile of successful calls returned")
+	void latency_percentile() {
+		assertThat(sut.latencyPercentileNanos(0.95)).isEqualTo(-1);
+		for (int i = 1; i <= 10; i++) {
+			call(TimeUnit.MILLISECONDS.toNanos(i), false);
+		}
+		call(SLOW, true);
+
+		assertThat(sut.latencyPercentileNanos(0.5)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(6));
+		assertThat(sut.latencyPercentileNanos(0.95)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+	}
+
+	private void call(long durationNanos, boolean failure) {
+		long permit = sut.tryAcquire();
+		assertThat(permit).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+		sut.onResult(permit, durationNanos, failure);
+	}
+}
@@ -0,0 +1,52 @@
+package com.hotovo.cws.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "crypto-compare.http.read-timeout=300ms")
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class CryptoCompareClientTest {
+
+	@Autowired
+	private CryptoCompareClient sut;
+
+	@AfterEach
+	void tearDown() {
+		StubCryptoCompareServer.shared().setLatency(0);
+	}
+
+	@Test
+	@DisplayName("given async price request when response received then future completed with prices")
+	void fetch_prices_async() throws Exception {
+		CompletableFuture<Map<String, Map<String, Double>>> prices = sut.fetchPricesAsync(Arrays.asList("BTC", "ETH"), Arrays.asList("USD", "ETH"));
+
+		assertThat(prices.get(5, TimeUnit.SECONDS).get("BTC")).containsEntry("USD", 9000.0).containsEntry("ETH", 45.0);
+		assertThat(prices.get().get("ETH")).containsEntry("USD", 200.0);
+	}
+
+	@Test
+	@DisplayName("given slow external service when read timeout elapses then future completed exceptionally")
+	void fetch_prices_async_timeout() {
+		StubCryptoCompareServer.shared().setLatency(1500);
+
+		CompletableFuture<Map<String, Map<String, Double>>> prices = sut.fetchPricesAsync(Arrays.asList("BTC"), Arrays.asList("USD"));
+
+		assertThatThrownBy(() -> prices.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(SocketTimeoutException.class);
+	}
+}
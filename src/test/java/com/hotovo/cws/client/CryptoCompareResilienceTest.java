@@ -0,0 +1,119 @@
+package com.hotovo.cws.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hotovo.cws.client.CircuitBreaker.State;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = {
+		"crypto-compare.http.read-timeout=3s",
+		"crypto-compare.resilience.window-size=10",
+		"crypto-compare.resilience.minimum-calls=4",
+		"crypto-compare.resilience.slow-call-threshold=1s",
+		"crypto-compare.resilience.open-duration=500ms",
+		"crypto-compare.resilience.half-open-calls=2",
+		"crypto-compare.resilience.max-concurrent-calls=3",
+		"crypto-compare.resilience.hedge-min-delay=100ms"})
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class CryptoCompareResilienceTest {
+
+	private final StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+
+	@Autowired
+	private CryptoCompareClient sut;
+
+	@AfterEach
+	void tearDown() {
+		server.setLatency(0);
+		server.setErrorStatus(0);
+		server.delayNextRequests(0, 0);
+	}
+
+	@Test
+	@DisplayName("given call slower than recent calls when hedge delay elapses then second call made and its response returned")
+	void slow_call_hedged() throws Exception {
+		for (int i = 0; i < 6; i++) {
+			fetch().get(5, TimeUnit.SECONDS);
+		}
+		int requests = server.getRequestCount("/data/pricemulti");
+		server.delayNextRequests(1, 2000);
+
+		long start = System.nanoTime();
+		Map<String, Map<String, Double>> prices = fetch().get(5, TimeUnit.SECONDS);
+
+		assertThat(prices.get("BTC")).containsEntry("USD", 9000.0);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1500);
+		assertThat(server.getRequestCount("/data/pricemulti") - requests).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("given failing external service when failure rate exceeds threshold then calls rejected without reaching it and resumed later")
+	void circuit_opened_and_closed() throws Exception {
+		server.setErrorStatus(500);
+		Throwable failure = null;
+		for (int i = 0; i < 20 && !(failure instanceof CallNotPermittedException); i++) {
+			failure = failureOf(fetch());
+		}
+		assertThat(failure).isInstanceOf(CallNotPermittedException.class).hasMessage("CryptoCompare is not available, circuit is open!");
+		assertThat(sut.getCircuitState()).isEqualTo(State.OPEN);
+		int requests = server.getRequestCount("/data/pricemulti");
+		assertThat(failureOf(fetch())).isInstanceOf(CallNotPermittedException.class);
+		assertThatThrownBy(() -> sut.fetchPrices(Collections.singletonList("BTC"), Collections.singletonList("USD")))
+				.isInstanceOf(CallNotPermittedException.class);
+		assertThat(server.getRequestCount("/data/pricemulti")).isEqualTo(requests);
+
+		server.setErrorStatus(0);
+		Thread.sleep(600);
+		fetch().get(5, TimeUnit.SECONDS);
+		fetch().get(5, TimeUnit.SECONDS);
+		assertThat(sut.getCircuitState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	@DisplayName("given all places of the bulkhead taken when another call requested then call rejected immediately")
+	void bulkhead_full() throws Exception {
+		// coin list is loaded by the scheduler right after the start
+		for (int i = 0; i < 50 && sut.getCallsInProgress() > 0; i++) {
+			Thread.sleep(100);
+		}
+		server.setLatency(500);
+		List<CompletableFuture<Map<String, Map<String, Double>>>> running = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			running.add(fetch());
+		}
+
+		assertThat(failureOf(fetch())).isInstanceOf(CallNotPermittedException.class).hasMessage("CryptoCompare is not available, too many calls in progress!");
+		for (CompletableFuture<Map<String, Map<String, Double>>> call : running) {
+			assertThat(call.get(5, TimeUnit.SECONDS).get("BTC")).containsEntry("USD", 9000.0);
+		}
+		assertThat(sut.getCallsInProgress()).isZero();
+	}
+
+	private CompletableFuture<Map<String, Map<String, Double>>> fetch() {
+		return sut.fetchPricesAsync(Arrays.asList("BTC", "ETH"), Collections.singletonList("USD"));
+	}
+
+	private Throwable failureOf(CompletableFuture<?> call) throws Exception {
+		try {
+			call.get(5, TimeUnit.SECONDS);
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.hotovo.cws.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Local stand-in for the CryptoCompare API used by the tests. Prices are kept in USD, price of any pair is derived from the USD prices of both symbols.
+ * Latency and error responses can be injected to all requests, or latency to the next few requests only.
+ */
+public class StubCryptoCompareServer {
+
+	private static StubCryptoCompareServer shared;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, Double> usdPrices = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+	private final HttpServer server;
+	private final AtomicInteger delayedRequests = new AtomicInteger();
+	private volatile long latencyMillis;
+	private volatile long delayMillis;
+	private volatile int errorStatus;
+
+	private StubCryptoCompareServer() throws IOException {
+		usdPrices.put("USD", 1.0);
+		usdPrices.put("EUR", 1.1);
+		usdPrices.put("BTC", 9000.0);
+		usdPrices.put("ETH", 200.0);
+		usdPrices.put("LTC", 60.0);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "stub-crypto-compare");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		server.createContext("/data/price", exchange -> respond(exchange, this::price));
+		server.createContext("/data/pricemulti", exchange -> respond(exchange, this::priceMulti));
+		server.createContext("/data/all/coinlist", exchange -> respond(exchange, this::coinList));
+		server.start();
+	}
+
+	/**
+	 * @return server shared by all tests of the JVM
+	 */
+	public static synchronized StubCryptoCompareServer shared() {
+		if (shared == null) {
+			try {
+				shared = new StubCryptoCompareServer();
+			} catch (IOException e) {
+				throw new IllegalStateException("Stub CryptoCompare server can not be started", e);
+			}
+		}
+		return shared;
+	}
+
+	public String getBaseUrl() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	public void setPrice(String symbol, double usdPrice) {
+		usdPrices.put(symbol, usdPrice);
+	}
+
+	public void setLatency(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * Delay the next requests on top of the latency of all requests
+	 */
+	public void delayNextRequests(int requests, long delayMillis) {
+		this.delayMillis = delayMillis;
+		delayedRequests.set(requests);
+	}
+
+	/**
+	 * @param errorStatus - HTTP status returned for all requests, 0 for normal responses
+	 */
+	public void setErrorStatus(int errorStatus) {
+		this.errorStatus = errorStatus;
+	}
+
+	public int getRequestCount(String path) {
+		return requestCounts.getOrDefault(path, new AtomicInteger()).get();
+	}
+
+	private Object price(Map<String, String> params) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		Double from = usdPrices.get(params.getOrDefault("fsym", ""));
+		for (String tsym : params.getOrDefault("tsyms", "").split(",")) {
+			Double to = usdPrices.get(tsym);
+			if (from != null && to != null) {
+				response.put(tsym, from / to);
+			}
+		}
+		return response.isEmpty() ? error() : response;
+	}
+
+	private Object priceMulti(Map<String, String> params) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		for (String fsym : params.getOrDefault("fsyms", "").split(",")) {
+			Map<String, Object> quotes = new LinkedHashMap<>();
+			Double from = usdPrices.get(fsym);
+			for (String tsym : params.getOrDefault("tsyms", "").split(",")) {
+				Double to = usdPrices.get(tsym);
+				if (from != null && to != null) {
+					quotes.put(tsym, from / to);
+				}
+			}
+			if (!quotes.isEmpty()) {
+				response.put(fsym, quotes);
+			}
+		}
+		return response.isEmpty() ? error() : response;
+	}
+
+	private Object coinList(Map<String, String> params) {
+		Map<String, Object> coins = new HashMap<>();
+		usdPrices.keySet().forEach(symbol -> coins.put(symbol, new HashMap<>()));
+		Map<String, Object> response = new HashMap<>();
+		response.put("Response", "Success");
+		response.put("Data", coins);
+		return response;
+	}
+
+	private Object error() {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("Response", "Error");
+		response.put("Message", "There is no data for any of the requested symbols");
+		return response;
+	}
+
+	private void respond(HttpExchange exchange, Function<Map<String, String>, Object> handler) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+			if (delayedRequests.getAndUpdate(requests -> Math.max(0, requests - 1)) > 0) {
+				Thread.sleep(delayMillis);
+			}
+			if (errorStatus > 0) {
+				exchange.sendResponseHeaders(errorStatus, -1);
+				return;
+			}
+			byte[] body = objectMapper.writeValueAsBytes(handler.apply(queryParams(exchange)));
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream outputStream = exchange.getResponseBody()) {
+				outputStream.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private Map<String, String> queryParams(HttpExchange exchange) throws IOException {
+		Map<String, String> params = new HashMap<>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String param : query.split("&")) {
+				String[] keyValue = param.split("=", 2);
+				params.put(keyValue[0], keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8.name()).toUpperCase(Locale.ROOT) : "");
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Points the application context to the shared stub server
+	 */
+	public static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+		@Override
+		public void initialize(ConfigurableApplicationContext applicationContext) {
+			TestPropertyValues.of("crypto-compare.base-url=" + shared().getBaseUrl()).applyTo(applicationContext);
+		}
+	}
+}
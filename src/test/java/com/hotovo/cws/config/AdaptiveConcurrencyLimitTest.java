@@ -0,0 +1,66 @@
+package com.hotovo.cws.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+	private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final AdaptiveConcurrencyLimit sut = new AdaptiveConcurrencyLimit(20, 10, 100);
+
+	@Test
+	@DisplayName("given all places taken when request arrives then request not admitted")
+	void over_limit_rejected() {
+		for (int i = 0; i < 20; i++) {
+			assertThat(sut.tryAcquire()).isTrue();
+		}
+
+		assertThat(sut.tryAcquire()).isFalse();
+		assertThat(sut.getInFlight()).isEqualTo(20);
+	}
+
+	@Test
+	@DisplayName("given fully used limit when latency stays the same then limit grows up to the maximum, when latency grows then limit shrinks")
+	void limit_follows_latency() {
+		saturate(RTT, 200);
+		assertThat(sut.getLimit()).isEqualTo(100);
+
+		saturate(RTT * 4, 20);
+		int reduced = sut.getLimit();
+		assertThat(reduced).isLessThan(30);
+
+		saturate(RTT * 4, 200);
+		assertThat(sut.getLimit()).isGreaterThan(reduced);
+	}
+
+	@Test
+	@DisplayName("given idle service when requests complete then limit does not grow")
+	void idle_limit_kept() {
+		for (int i = 0; i < 100; i++) {
+			sut.tryAcquire();
+			sut.release(RTT);
+		}
+
+		assertThat(sut.getLimit()).isEqualTo(20);
+		assertThat(sut.getInFlight()).isZero();
+	}
+
+	/**
+	 * Take every place of the limit and release them all with the same latency, repeatedly
+	 */
+	private void saturate(long rttNanos, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int admitted = 0;
+			while (sut.tryAcquire()) {
+				admitted++;
+			}
+			for (int i = 0; i < admitted; i++) {
+				sut.release(rttNanos);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.hotovo.cws.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.metrics.MetricsRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@SpringBootTest(classes = {AdmissionControlFilter.class, MetricsRegistry.class}, webEnvironment = WebEnvironment.NONE, properties = {
+		"wallet.admission.enabled=true",
+		"wallet.admission.priced.initial-limit=2",
+		"wallet.admission.priced.min-limit=2",
+		"wallet.admission.priced.max-limit=2"})
+class AdmissionControlFilterTest {
+
+	@Autowired
+	private AdmissionControlFilter sut;
+
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+
+	@Test
+	@DisplayName("given wallet API requests when classified then currency and bulk endpoints separated from the local ones")
+	void requests_classified() {
+		assertThat(sut.classify(request("GET", "/api/wallet/1"))).isEqualTo(AdmissionControlFilter.EndpointClass.LOCAL);
+		assertThat(sut.classify(request("GET", "/api/wallet/list"))).isEqualTo(AdmissionControlFilter.EndpointClass.LOCAL);
+		assertThat(sut.classify(request("POST", "/api/wallet/1/currency-buy"))).isEqualTo(AdmissionControlFilter.EndpointClass.PRICED);
+		assertThat(sut.classify(request("POST", "/api/wallet/currency-transfer"))).isEqualTo(AdmissionControlFilter.EndpointClass.PRICED);
+		assertThat(sut.classify(request("GET", "/api/wallet/valuation"))).isEqualTo(AdmissionControlFilter.EndpointClass.PRICED);
+		assertThat(sut.classify(request("POST", "/api/wallet/currency-transfer/batch"))).isEqualTo(AdmissionControlFilter.EndpointClass.BULK);
+		assertThat(sut.classify(request("GET", "/api/wallet/export"))).isEqualTo(AdmissionControlFilter.EndpointClass.BULK);
+		assertThat(sut.classify(request("GET", "/actuator/prometheus"))).isNull();
+	}
+
+	@Test
+	@DisplayName("given priced endpoints at their limit when another priced request arrives then rejected with 503 while local requests pass")
+	void over_limit_rejected() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Future<?>[] running = new Future<?>[2];
+		for (int i = 0; i < 2; i++) {
+			running[i] = executor.submit(() -> {
+				sut.doFilter(request("POST", "/api/wallet/currency-transfer"), new MockHttpServletResponse(), (request, response) -> {
+					blocked.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+				return null;
+			});
+		}
+		assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		sut.doFilter(request("POST", "/api/wallet/1/currency-buy"), rejected, (request, response) -> {
+			throw new AssertionError("Request over the limit must not be processed");
+		});
+		MockHttpServletResponse local = new MockHttpServletResponse();
+		sut.doFilter(request("GET", "/api/wallet/1"), local, (request, response) -> ((MockHttpServletResponse) response).setStatus(200));
+
+		assertThat(rejected.getStatus()).isEqualTo(503);
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(local.getStatus()).isEqualTo(200);
+		release.countDown();
+		for (Future<?> future : running) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		StringBuilder metrics = new StringBuilder();
+		metricsRegistry.writeTo(metrics);
+		assertThat(metrics.toString())
+				.contains("admission_rejected_requests_total{endpoint_class=\"priced\"} 1\n")
+				.contains("admission_limit{endpoint_class=\"priced\"} 2")
+				.contains("admission_in_flight{endpoint_class=\"priced\"} 0");
+	}
+
+	private MockHttpServletRequest request(String method, String uri) {
+		return new MockHttpServletRequest(method, uri);
+	}
+}
@@ -0,0 +1,136 @@
+package com.hotovo.cws.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.CurrencyBuyRequest;
+import com.hotovo.cws.controller.dto.CurrencyTransferRequest;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.WalletService;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class BinaryFormatConfigurationTest {
+
+	private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+	private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletService walletService;
+
+	private final CloseableHttpClient client = HttpClients.createDefault();
+
+	@AfterEach
+	void tearDown() throws Exception {
+		client.close();
+	}
+
+	@Test
+	@DisplayName("given smile or cbor accepted when wallet requested then wallet returned in the binary format smaller than json")
+	void wallet_returned_in_binary_format() throws Exception {
+		Wallet wallet = walletService.createWallet(walletRequest("binary wallet"));
+		String uri = "http://localhost:" + port + "/api/wallet/" + wallet.getId();
+
+		byte[] json = execute(new HttpGet(uri), "application/json", "application/json");
+		byte[] smile = execute(new HttpGet(uri), BinaryFormatConfiguration.SMILE, BinaryFormatConfiguration.SMILE);
+		byte[] cbor = execute(new HttpGet(uri), BinaryFormatConfiguration.CBOR, BinaryFormatConfiguration.CBOR);
+
+		assertThat(SMILE_MAPPER.readValue(smile, Wallet.class)).isEqualTo(wallet);
+		assertThat(CBOR_MAPPER.readValue(cbor, Wallet.class)).isEqualTo(wallet);
+		assertThat(smile.length).isLessThan(json.length);
+		assertThat(cbor.length).isLessThan(json.length);
+	}
+
+	@Test
+	@DisplayName("given any format or no format accepted when wallet requested then wallet returned in json")
+	void json_returned_by_default() throws Exception {
+		Wallet wallet = walletService.createWallet(walletRequest("default format"));
+		String uri = "http://localhost:" + port + "/api/wallet/" + wallet.getId();
+		ObjectMapper jsonMapper = new ObjectMapper();
+
+		assertThat(jsonMapper.readValue(execute(new HttpGet(uri), "*/*", "application/json"), Wallet.class)).isEqualTo(wallet);
+		assertThat(jsonMapper.readValue(execute(new HttpGet(uri), null, "application/json"), Wallet.class)).isEqualTo(wallet);
+	}
+
+	@Test
+	@DisplayName("given binary request body when wallet created and currency transferred then request decoded and text message returned as text")
+	void binary_request_decoded() throws Exception {
+		HttpPost create = new HttpPost("http://localhost:" + port + "/api/wallet");
+		create.setEntity(new ByteArrayEntity(CBOR_MAPPER.writeValueAsBytes(walletRequest("binary request")), ContentType.create(BinaryFormatConfiguration.CBOR)));
+		Wallet created = CBOR_MAPPER.readValue(execute(create, BinaryFormatConfiguration.CBOR, BinaryFormatConfiguration.CBOR), Wallet.class);
+		assertThat(created.getName()).isEqualTo("binary request");
+		assertThat(walletService.getWalletInformation(created.getId()).getCurrencies()).containsExactly(new Currency(10.0, "BTC"));
+
+		Wallet destination = walletService.createWallet(walletRequest("binary destination"));
+		HttpPost transfer = new HttpPost("http://localhost:" + port + "/api/wallet/currency-transfer");
+		CurrencyTransferRequest request = new CurrencyTransferRequest(created.getId(), "BTC", 1.0, destination.getId(), "BTC");
+		transfer.setEntity(new ByteArrayEntity(SMILE_MAPPER.writeValueAsBytes(request), ContentType.create(BinaryFormatConfiguration.SMILE)));
+		assertThat(new String(execute(transfer, BinaryFormatConfiguration.SMILE, "text/plain"), "UTF-8")).isEqualTo("Currency transfer success");
+		assertThat(walletService.getWalletInformation(destination.getId()).getCurrencies()).containsExactly(new Currency(11.0, "BTC"));
+	}
+
+	@Test
+	@DisplayName("given idempotency key when currency bought with smile accepted then first and repeated response in smile, json for json clients")
+	void idempotent_buy_negotiated() throws Exception {
+		Wallet wallet = walletService.createWallet(walletRequest("binary idempotent"));
+		CurrencyBuyRequest request = new CurrencyBuyRequest(wallet.getId(), "BTC", 1.0, "BTC");
+
+		Wallet first = SMILE_MAPPER.readValue(execute(buy(request), BinaryFormatConfiguration.SMILE, BinaryFormatConfiguration.SMILE), Wallet.class);
+		Wallet repeated = SMILE_MAPPER.readValue(execute(buy(request), BinaryFormatConfiguration.SMILE, BinaryFormatConfiguration.SMILE), Wallet.class);
+		Wallet json = new ObjectMapper().readValue(execute(buy(request), "application/json", "application/json"), Wallet.class);
+
+		assertThat(first.getCurrencies()).containsExactly(new Currency(11.0, "BTC"));
+		assertThat(repeated).isEqualTo(first);
+		assertThat(json).isEqualTo(first);
+		assertThat(walletService.getWalletInformation(wallet.getId()).getCurrencies()).containsExactly(new Currency(11.0, "BTC"));
+	}
+
+	private HttpPost buy(CurrencyBuyRequest request) throws Exception {
+		HttpPost buy = new HttpPost("http://localhost:" + port + "/api/wallet/" + request.getId() + "/currency-buy");
+		buy.setHeader("Idempotency-Key", "binary-buy-" + request.getId());
+		buy.setEntity(new ByteArrayEntity(SMILE_MAPPER.writeValueAsBytes(request), ContentType.create(BinaryFormatConfiguration.SMILE)));
+		return buy;
+	}
+
+	private byte[] execute(HttpUriRequest request, String accept, String expectedContentType) throws Exception {
+		if (accept != null) {
+			request.setHeader("Accept", accept);
+		}
+		try (CloseableHttpResponse response = client.execute(request)) {
+			assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+			assertThat(response.getEntity().getContentType().getValue()).startsWith(expectedContentType);
+			return EntityUtils.toByteArray(response.getEntity());
+		}
+	}
+
+	private static WalletRequest walletRequest(String name) {
+		return new WalletRequest("private " + name, "public " + name, name, new LinkedHashSet<>(Arrays.asList(new Currency(10.0, "BTC"))));
+	}
+}
@@ -0,0 +1,55 @@
+package com.hotovo.cws.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+@SpringBootTest(classes = CacheConfiguration.class, webEnvironment = WebEnvironment.NONE,
+		properties = {"cache.specs.wallets=maximumSize=100", "cache.specs.other=maximumSize=5,expireAfterWrite=1m"})
+class CacheConfigurationTest {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Test
+	@DisplayName("given configured specs when caches requested then every cache bounded by own spec")
+	void caches_configured_by_spec() {
+		assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("wallets", "other");
+
+		Cache<Object, Object> wallets = nativeCache("wallets");
+		for (long id = 0; id < 10_000; id++) {
+			cacheManager.getCache("wallets").put(id, "wallet " + id);
+		}
+		wallets.cleanUp();
+
+		assertThat(wallets.estimatedSize()).isLessThanOrEqualTo(100);
+		assertThat(wallets.stats().evictionCount()).isGreaterThanOrEqualTo(9_900);
+		assertThat(nativeCache("other").policy().eviction().get().getMaximum()).isEqualTo(5);
+	}
+
+	@Test
+	@DisplayName("given cache reads when stats requested then hits and misses recorded")
+	void cache_stats_recorded() {
+		org.springframework.cache.Cache other = cacheManager.getCache("other");
+		other.put("key", "value");
+
+		assertThat(other.get("key").get()).isEqualTo("value");
+		assertThat(other.get("missing")).isNull();
+		assertThat(other.get("loaded", () -> "loaded value")).isEqualTo("loaded value");
+
+		assertThat(nativeCache("other").stats().hitCount()).isEqualTo(1);
+		assertThat(nativeCache("other").stats().missCount()).isEqualTo(2);
+		assertThat(nativeCache("other").stats().loadCount()).isEqualTo(1);
+	}
+
+	private Cache<Object, Object> nativeCache(String name) {
+		return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+	}
+}
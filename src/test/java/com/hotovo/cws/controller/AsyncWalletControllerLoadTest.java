@@ -0,0 +1,10 @@
+package com.hotovo.cws.controller;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.context.TestPropertySource;
+
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@TestPropertySource(properties = "wallet.execution-mode=async")
+class AsyncWalletControllerLoadTest extends WalletControllerLoadTest {
+
+}
@@ -0,0 +1,89 @@
+package com.hotovo.cws.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Million wallets holding fifty different currencies valued by one request. Run with <tt>-Dloadtest=true</tt>.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class PortfolioValuationLoadTest {
+
+	private static final int WALLETS = 1_000_000;
+	private static final int SYMBOLS = 50;
+	private static final int CURRENCIES_PER_WALLET = 3;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	@DisplayName("given million wallets when whole store valued then valued within seconds with few price requests")
+	void value_million_wallets() throws Exception {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		for (int i = 0; i < SYMBOLS; i++) {
+			server.setPrice(symbol(i), 1.0 + i);
+		}
+		for (int i = 0; i < WALLETS; i++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			for (int c = 0; c < CURRENCIES_PER_WALLET; c++) {
+				currencies.add(new Currency(1.0, symbol((i + c * 7) % SYMBOLS)));
+			}
+			long id = walletRepository.nextId();
+			walletRepository.insert(Wallet.builder().id(id).name("valued " + id).privateKey("private " + id).publicKey("public " + id)
+					.currencies(currencies).build());
+		}
+		int priceRequests = server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti");
+
+		try (CloseableHttpClient client = HttpClients.createDefault()) {
+			long start = System.nanoTime();
+			try (CloseableHttpResponse response = client.execute(new HttpGet("http://localhost:" + port + "/api/wallet/valuation?currency=USD"))) {
+				long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				JsonNode valuation = objectMapper.readTree(response.getEntity().getContent());
+				int requests = server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti") - priceRequests;
+				log.info("{} wallets valued in {} ms with {} price requests, total {}", valuation.get("walletCount").asLong(), millis, requests,
+						valuation.get("total").asDouble());
+
+				assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+				assertThat(valuation.get("walletCount").asLong()).isGreaterThanOrEqualTo(WALLETS);
+				assertThat(valuation.get("total").asDouble()).isGreaterThanOrEqualTo(WALLETS * CURRENCIES_PER_WALLET);
+				assertThat(requests).isLessThanOrEqualTo(4);
+				assertThat(millis).isLessThan(10_000);
+			}
+		}
+	}
+
+	private String symbol(int index) {
+		return String.format("PL%02d", index);
+	}
+}
@@ -0,0 +1,134 @@
+package com.hotovo.cws.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.WalletService;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Same number of transfers sent as single transfer requests and as one transfer batch. Run with <tt>-Dloadtest=true</tt>.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class TransferBatchLoadTest {
+
+	private static final int TRANSFERS = 10_000;
+	private static final int CONNECTIONS = 16;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletService walletService;
+
+	@Test
+	@DisplayName("given many transfers when sent as one batch then faster than single requests")
+	void batch_faster_than_single_requests() throws Exception {
+		Wallet source = walletService.createWallet(walletRequest("batch source", new Currency(1_000_000.0, "BTC")));
+		Wallet destination = walletService.createWallet(walletRequest("batch destination", new Currency(0.0, "ETH")));
+		String transfer = String.format("{\"srcId\":%d,\"srcCurrency\":\"BTC\",\"srcAmount\":0.001,\"destId\":%d,\"destCurrency\":\"ETH\"}",
+				source.getId(), destination.getId());
+		StringBuilder batch = new StringBuilder("[");
+		for (int i = 0; i < TRANSFERS; i++) {
+			batch.append(i == 0 ? "" : ",").append(transfer);
+		}
+		String batchBody = batch.append("]").toString();
+		sendSingle(TRANSFERS, transfer);
+		sendBatch(batchBody);
+
+		long start = System.nanoTime();
+		int singleApplied = sendSingle(TRANSFERS, transfer);
+		long singleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		start = System.nanoTime();
+		int batchApplied = sendBatch(batchBody);
+		long batchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		log.info("{} transfers as single requests in {} ms, as one batch in {} ms", TRANSFERS, singleMillis, batchMillis);
+
+		assertThat(singleApplied).isEqualTo(TRANSFERS);
+		assertThat(batchApplied).isEqualTo(TRANSFERS);
+		assertThat(batchMillis * 5).isLessThan(singleMillis);
+		assertThat(walletService.getWalletInformation(source.getId()).getCurrencies())
+				.containsExactly(new Currency(1_000_000.0 - 4 * TRANSFERS * 0.001, "BTC"));
+	}
+
+	private int sendBatch(String body) throws Exception {
+		try (CloseableHttpClient client = HttpClients.createDefault()) {
+			HttpPost request = new HttpPost("http://localhost:" + port + "/api/wallet/currency-transfer/batch?mode=PER_ITEM");
+			request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+			try (CloseableHttpResponse response = client.execute(request)) {
+				assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+				BufferedReader reader = new BufferedReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+				return (int) reader.lines().filter(line -> line.contains("\"APPLIED\"")).count();
+			}
+		}
+	}
+
+	private int sendSingle(int requests, String body) throws Exception {
+		AtomicInteger succeeded = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(requests);
+		try (CloseableHttpAsyncClient client = HttpAsyncClients.custom().setMaxConnTotal(CONNECTIONS).setMaxConnPerRoute(CONNECTIONS).build()) {
+			client.start();
+			for (int i = 0; i < requests; i++) {
+				HttpPost request = new HttpPost("http://localhost:" + port + "/api/wallet/currency-transfer");
+				request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+				client.execute(request, new FutureCallback<HttpResponse>() {
+					@Override
+					public void completed(HttpResponse response) {
+						if (response.getStatusLine().getStatusCode() == 200) {
+							succeeded.incrementAndGet();
+						}
+						done.countDown();
+					}
+
+					@Override
+					public void failed(Exception e) {
+						done.countDown();
+					}
+
+					@Override
+					public void cancelled() {
+						done.countDown();
+					}
+				});
+			}
+			assertThat(done.await(2, TimeUnit.MINUTES)).isTrue();
+		}
+		return succeeded.get();
+	}
+
+	private WalletRequest walletRequest(String name, Currency currency) {
+		return new WalletRequest(name, name, name, new HashSet<>(Arrays.asList(currency)));
+	}
+}
@@ -0,0 +1,86 @@
+package com.hotovo.cws.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.CurrencyBuyRequest;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.WalletService;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class WalletControllerIdempotencyTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletService walletService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final CloseableHttpClient client = HttpClients.createDefault();
+
+	@AfterEach
+	void tearDown() throws Exception {
+		client.close();
+	}
+
+	@Test
+	@DisplayName("given buy failed when repeated with the same idempotency key then buy executed again and its success remembered")
+	void failed_buy_retried() throws Exception {
+		long missingId = Wallet.getWalletId().get();
+		CurrencyBuyRequest request = new CurrencyBuyRequest(missingId, "BTC", 1.0, "BTC");
+
+		assertThat(buy(request, "retried-buy")).isEqualTo(404);
+
+		Wallet wallet = walletService.createWallet(new WalletRequest("private retried", "public retried", "retried",
+				new LinkedHashSet<>(Arrays.asList(new Currency(10.0, "BTC")))));
+		assertThat(wallet.getId()).isEqualTo(missingId);
+		assertThat(buy(request, "retried-buy")).isEqualTo(200);
+		assertThat(buy(request, "retried-buy")).isEqualTo(200);
+		assertThat(walletService.getWalletInformation(missingId).getCurrencies()).containsExactly(new Currency(11.0, "BTC"));
+	}
+
+	@Test
+	@DisplayName("given buy executed when other buy sent with the same idempotency key then rejected and not executed")
+	void different_buy_rejected() throws Exception {
+		Wallet wallet = walletService.createWallet(new WalletRequest("private rejected", "public rejected", "rejected",
+				new LinkedHashSet<>(Arrays.asList(new Currency(10.0, "BTC")))));
+
+		assertThat(buy(new CurrencyBuyRequest(wallet.getId(), "BTC", 1.0, "BTC"), "rejected-buy")).isEqualTo(200);
+		assertThat(buy(new CurrencyBuyRequest(wallet.getId(), "BTC", 2.0, "BTC"), "rejected-buy")).isEqualTo(422);
+		assertThat(walletService.getWalletInformation(wallet.getId()).getCurrencies()).containsExactly(new Currency(11.0, "BTC"));
+	}
+
+	private int buy(CurrencyBuyRequest request, String idempotencyKey) throws Exception {
+		HttpPost post = new HttpPost("http://localhost:" + port + "/api/wallet/" + request.getId() + "/currency-buy");
+		post.setHeader("Idempotency-Key", idempotencyKey);
+		post.setEntity(new ByteArrayEntity(objectMapper.writeValueAsBytes(request), ContentType.APPLICATION_JSON));
+		try (CloseableHttpResponse response = client.execute(post)) {
+			EntityUtils.consume(response.getEntity());
+			return response.getStatusLine().getStatusCode();
+		}
+	}
+}
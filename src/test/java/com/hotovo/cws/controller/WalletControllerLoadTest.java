@@ -0,0 +1,113 @@
+package com.hotovo.cws.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.WalletService;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Throughput of the currency transfer endpoint with many concurrent clients and slow price service. Every request needs to load the price, the servlet
+ * thread pool is small, so the blocking mode is limited by the number of servlet threads while the async mode is not. Run with <tt>-Dloadtest=true</tt>.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {"server.tomcat.max-threads=16", "server.tomcat.accept-count=1000", "crypto-compare.price-cache.ttl=1ms"})
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+abstract class WalletControllerLoadTest {
+
+	private static final int WARMUP_REQUESTS = 2000;
+	private static final int REQUESTS = 2000;
+	private static final int CONNECTIONS = 400;
+	private static final int PRICE_LATENCY_MILLIS = 100;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletService walletService;
+
+	@AfterEach
+	void tearDown() {
+		StubCryptoCompareServer.shared().setLatency(0);
+	}
+
+	@Test
+	@DisplayName("given slow price service when many concurrent transfers requested then all transfers succeed")
+	void concurrent_transfers() throws Exception {
+		Wallet source = walletService.createWallet(walletRequest("load source " + getClass().getSimpleName(), new Currency(1_000_000.0, "BTC")));
+		Wallet destination = walletService.createWallet(walletRequest("load destination " + getClass().getSimpleName(), new Currency(0.0, "ETH")));
+		String body = String.format("{\"srcId\":%d,\"srcCurrency\":\"BTC\",\"srcAmount\":0.001,\"destId\":%d,\"destCurrency\":\"ETH\"}",
+				source.getId(), destination.getId());
+		assertThat(send(WARMUP_REQUESTS, body)).isEqualTo(WARMUP_REQUESTS);
+		StubCryptoCompareServer.shared().setLatency(PRICE_LATENCY_MILLIS);
+
+		long start = System.nanoTime();
+		int succeeded = send(REQUESTS, body);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		log.info("{}: {} transfers in {} ms, {} requests/s", getClass().getSimpleName(), succeeded, elapsedMillis, succeeded * 1000L / Math.max(1, elapsedMillis));
+
+		assertThat(succeeded).isEqualTo(REQUESTS);
+		assertThat(walletService.getWalletInformation(source.getId()).getCurrencies())
+				.containsExactly(new Currency(1_000_000.0 - (WARMUP_REQUESTS + REQUESTS) * 0.001, "BTC"));
+	}
+
+	private int send(int requests, String body) throws Exception {
+		AtomicInteger succeeded = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(requests);
+		try (CloseableHttpAsyncClient client = HttpAsyncClients.custom().setMaxConnTotal(CONNECTIONS).setMaxConnPerRoute(CONNECTIONS).build()) {
+			client.start();
+			for (int i = 0; i < requests; i++) {
+				HttpPost request = new HttpPost("http://localhost:" + port + "/api/wallet/currency-transfer");
+				request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+				client.execute(request, new FutureCallback<HttpResponse>() {
+					@Override
+					public void completed(HttpResponse response) {
+						if (response.getStatusLine().getStatusCode() == 200) {
+							succeeded.incrementAndGet();
+						}
+						done.countDown();
+					}
+
+					@Override
+					public void failed(Exception e) {
+						done.countDown();
+					}
+
+					@Override
+					public void cancelled() {
+						done.countDown();
+					}
+				});
+			}
+			assertThat(done.await(2, TimeUnit.MINUTES)).isTrue();
+		}
+		return succeeded.get();
+	}
+
+	private WalletRequest walletRequest(String name, Currency currency) {
+		return new WalletRequest(name, name, name, new HashSet<>(Arrays.asList(currency)));
+	}
+}
@@ -0,0 +1,122 @@
+package com.hotovo.cws.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.repository.WalletRepository;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Million wallets imported from generated newline delimited JSON and exported back, neither side holds the whole body. Run with <tt>-Dloadtest=true</tt>.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class WalletExportImportLoadTest {
+
+	private static final int WALLETS = 1_000_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	@DisplayName("given million wallets when imported and exported then all wallets streamed")
+	void import_export_million_wallets() throws Exception {
+		long count = walletRepository.count();
+		try (CloseableHttpClient client = HttpClients.createDefault()) {
+			HttpPost importRequest = new HttpPost("http://localhost:" + port + "/api/wallet/import");
+			importRequest.setEntity(new InputStreamEntity(new GeneratedWallets(WALLETS), -1, ContentType.create("application/x-ndjson")));
+			long start = System.nanoTime();
+			try (CloseableHttpResponse response = client.execute(importRequest)) {
+				JsonNode result = objectMapper.readTree(response.getEntity().getContent());
+				assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+				assertThat(result.get("imported").asLong()).isEqualTo(WALLETS);
+			}
+			long importMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			start = System.nanoTime();
+			long lines;
+			try (CloseableHttpResponse response = client.execute(new HttpGet("http://localhost:" + port + "/api/wallet/export"))) {
+				assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+				BufferedReader reader = new BufferedReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+				lines = reader.lines().count();
+			}
+			long exportMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Runtime runtime = Runtime.getRuntime();
+			log.info("{} wallets imported in {} ms, exported in {} ms, heap used {} MB", WALLETS, importMillis, exportMillis,
+					(runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+			assertThat(lines).isEqualTo(count + WALLETS);
+		}
+	}
+
+	/**
+	 * Newline delimited wallets generated line by line while the request body is sent
+	 */
+	private static class GeneratedWallets extends InputStream {
+
+		private final int wallets;
+
+		private int next;
+
+		private byte[] line = new byte[0];
+
+		private int position;
+
+		GeneratedWallets(int wallets) {
+			this.wallets = wallets;
+		}
+
+		@Override
+		public int read() {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (position == line.length) {
+				if (next == wallets) {
+					return -1;
+				}
+				String name = "imported " + next++;
+				line = ("{\"privateKey\":\"" + name + "\",\"publicKey\":\"" + name + "\",\"name\":\"" + name
+						+ "\",\"currencies\":[{\"amount\":1.0,\"symbol\":\"BTC\"},{\"amount\":2.0,\"symbol\":\"ETH\"}]}\n").getBytes(StandardCharsets.UTF_8);
+				position = 0;
+			}
+			int read = Math.min(length, line.length - position);
+			System.arraycopy(line, position, buffer, offset, read);
+			position += read;
+			return read;
+		}
+	}
+}
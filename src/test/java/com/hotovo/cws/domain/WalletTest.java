@@ -0,0 +1,65 @@
+package com.hotovo.cws.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WalletTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	@DisplayName("given wallet with currencies when serialized then json contains currency list with amount and symbol")
+	void wallet_json_shape() throws Exception {
+		Wallet wallet = Wallet.builder()
+				.id(7L)
+				.name("wallet")
+				.privateKey("private")
+				.publicKey("public")
+				.currencies(new LinkedHashSet<>(Arrays.asList(new Currency(1.5, "BTC"), new Currency(28.0, "LTC"))))
+				.build();
+
+		JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(wallet));
+
+		assertThat(json.fieldNames()).toIterable().containsExactly("id", "privateKey", "publicKey", "name", "currencies");
+		assertThat(json.get("currencies").get(0).get("symbol").asText()).isEqualTo("BTC");
+		assertThat(json.get("currencies").get(0).get("amount").asDouble()).isEqualTo(1.5);
+		assertThat(json.get("currencies").get(1).get("symbol").asText()).isEqualTo("LTC");
+		assertThat(objectMapper.readValue(objectMapper.writeValueAsString(wallet), Wallet.class).getCurrencies())
+				.extracting(Currency::getAmount).containsExactlyInAnyOrder(1.5, 28.0);
+	}
+
+	@Test
+	@DisplayName("given currencies view when currency added or removed then balances changed")
+	void currencies_view() {
+		Wallet wallet = Wallet.builder().id(1L).build();
+
+		assertThat(wallet.getCurrencies().add(new Currency(25.0, "eth"))).isTrue();
+		assertThat(wallet.getCurrencies().add(new Currency(30.0, "ETH"))).isFalse();
+		assertThat(wallet.getBalances().get(SymbolTable.find("ETH"))).isEqualTo(25 * Balances.SCALE);
+		assertThat(wallet.getCurrencies()).containsExactly(new Currency(null, "ETH"));
+
+		assertThat(wallet.getCurrencies().remove(new Currency(null, "Eth"))).isTrue();
+		assertThat(wallet.getCurrencies()).isEmpty();
+	}
+
+	@Test
+	@DisplayName("given many small deposits then balance has no floating-point drift")
+	void balances_no_drift() {
+		Balances balances = new Balances();
+		int symbolId = SymbolTable.intern("BTC");
+		double naive = 0.0;
+		for (int i = 0; i < 1_000_000; i++) {
+			balances.add(symbolId, Balances.toUnits(0.1));
+			naive += 0.1;
+		}
+
+		assertThat(Balances.toAmount(balances.get(symbolId))).isEqualTo(100_000.0);
+		assertThat(naive).isNotEqualTo(100_000.0);
+	}
+}
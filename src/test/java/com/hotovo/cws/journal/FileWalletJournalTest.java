@@ -0,0 +1,268 @@
+package com.hotovo.cws.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.InMemoryWalletRepository;
+import com.hotovo.cws.service.LockingWalletExecutor;
+import com.hotovo.cws.service.TransferEngine;
+import com.hotovo.cws.service.WalletExecutor;
+import com.hotovo.cws.service.WalletLocks;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+class FileWalletJournalTest {
+
+	private static final int WALLETS = 20_000;
+	private static final int THREADS = 4;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("given_journaled_changes_when_journal_reopened_then_wallets_restored")
+	void replay_restores_wallets() throws Exception {
+		int btc = SymbolTable.intern("BTC");
+		int eth = SymbolTable.intern("ETH");
+		InMemoryWalletRepository repository = new InMemoryWalletRepository();
+		FileWalletJournal journal = journal(repository);
+		Wallet first = wallet(1L, "first", 10.0);
+		Wallet second = wallet(2L, "second", 5.0);
+		Wallet third = wallet(3L, "third", 1.0);
+		journal.created(first);
+		journal.created(second);
+		journal.created(third);
+		journal.credited(1L, eth, Balances.toUnits(2.5));
+		journal.transferred(1L, btc, Balances.toUnits(4.0), 2L, eth, Balances.toUnits(80.0));
+		first.setName("renamed");
+		journal.updated(first);
+		journal.awaitDurable(journal.deleted(3L));
+		journal.close();
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		FileWalletJournal reopened = journal(restored);
+		reopened.close();
+
+		assertThat(restored.count()).isEqualTo(2);
+		Wallet restoredFirst = restored.findById(1L).get();
+		assertThat(restoredFirst.getName()).isEqualTo("renamed");
+		assertThat(restoredFirst.getBalances().get(btc)).isEqualTo(Balances.toUnits(6.0));
+		assertThat(restoredFirst.getBalances().get(eth)).isEqualTo(Balances.toUnits(2.5));
+		Wallet restoredSecond = restored.findById(2L).get();
+		assertThat(restoredSecond.getBalances().get(btc)).isEqualTo(Balances.toUnits(5.0));
+		assertThat(restoredSecond.getBalances().get(eth)).isEqualTo(Balances.toUnits(80.0));
+		assertThat(restored.findById(3L)).isEmpty();
+		assertThat(Wallet.getWalletId().get()).isGreaterThan(2L);
+	}
+
+	@Test
+	@DisplayName("given_torn_last_event_when_journal_reopened_then_complete_events_restored")
+	void replay_ignores_torn_event() throws Exception {
+		int btc = SymbolTable.intern("BTC");
+		FileWalletJournal journal = journal(new InMemoryWalletRepository());
+		journal.created(wallet(1L, "first", 10.0));
+		journal.awaitDurable(journal.credited(1L, btc, Balances.toUnits(1.0)));
+		journal.close();
+		Path segment = segments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		FileWalletJournal reopened = journal(restored);
+		reopened.awaitDurable(reopened.credited(1L, btc, Balances.toUnits(2.0)));
+		reopened.close();
+		InMemoryWalletRepository restoredAgain = new InMemoryWalletRepository();
+		journal(restoredAgain).close();
+
+		assertThat(restored.findById(1L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(10.0));
+		assertThat(restoredAgain.findById(1L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(12.0));
+		assertThat(segments()).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("given_corrupted_event_when_journal_reopened_then_rest_of_segment_ignored")
+	void replay_ignores_corrupted_event() throws Exception {
+		int btc = SymbolTable.intern("BTC");
+		FileWalletJournal journal = journal(new InMemoryWalletRepository());
+		journal.created(wallet(1L, "first", 10.0));
+		journal.awaitDurable(journal.credited(1L, btc, Balances.toUnits(1.0)));
+		journal.close();
+		Path segment = segments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0x7f}), channel.size() - 1);
+		}
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		journal(restored).close();
+
+		assertThat(restored.findById(1L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(10.0));
+	}
+
+	@Test
+	@DisplayName("given_snapshot_and_newer_events_when_journal_reopened_then_wallets_restored")
+	void snapshot_and_newer_events_restored() throws Exception {
+		int btc = SymbolTable.intern("BTC");
+		InMemoryWalletRepository repository = new InMemoryWalletRepository();
+		FileWalletJournal journal = journal(repository);
+		for (long id = 1; id <= 3; id++) {
+			Wallet wallet = wallet(id, "wallet " + id, id);
+			repository.insert(wallet);
+			journal.created(wallet);
+		}
+		credit(repository, journal, 1L, btc, 1.0);
+		journal.snapshot();
+		credit(repository, journal, 2L, btc, 2.0);
+		repository.deleteById(3L);
+		journal.awaitDurable(journal.deleted(3L));
+		journal.snapshot();
+		credit(repository, journal, 1L, btc, 4.0);
+		journal.snapshot();
+		credit(repository, journal, 2L, btc, 8.0);
+		journal.close();
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		journal(restored).close();
+
+		assertThat(restored.count()).isEqualTo(2);
+		assertThat(restored.findById(1L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(6.0));
+		assertThat(restored.findById(2L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(12.0));
+		assertThat(files("snapshot-")).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("given_corrupted_latest_snapshot_when_journal_reopened_then_older_snapshot_and_events_restored")
+	void corrupted_snapshot_falls_back_to_older() throws Exception {
+		int btc = SymbolTable.intern("BTC");
+		InMemoryWalletRepository repository = new InMemoryWalletRepository();
+		FileWalletJournal journal = journal(repository);
+		Wallet wallet = wallet(1L, "first", 10.0);
+		repository.insert(wallet);
+		journal.created(wallet);
+		journal.snapshot();
+		credit(repository, journal, 1L, btc, 1.0);
+		journal.snapshot();
+		credit(repository, journal, 1L, btc, 2.0);
+		journal.close();
+		Path latest = files("snapshot-").get(1);
+		try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0x7f}), channel.size() / 2);
+		}
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		journal(restored).close();
+
+		assertThat(restored.findById(1L).get().getBalances().get(btc)).isEqualTo(Balances.toUnits(13.0));
+	}
+
+	@Test
+	@DisplayName("given_snapshot_during_concurrent_transfers_when_journal_reopened_then_balances_equal")
+	void snapshot_during_transfers_consistent() throws Exception {
+		InMemoryWalletRepository repository = new InMemoryWalletRepository();
+		WalletExecutor walletExecutor = new LockingWalletExecutor(new WalletLocks(16));
+		FileWalletJournal journal = new FileWalletJournal(repository, walletExecutor, directory.toString(), DataSize.ofMegabytes(1), false, 2);
+		journal.open();
+		TransferEngine transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", walletExecutor);
+		ReflectionTestUtils.setField(transferEngine, "walletJournal", journal);
+		Wallet[] wallets = new Wallet[WALLETS];
+		for (int i = 0; i < WALLETS; i++) {
+			wallets[i] = wallet(i + 1L, "wallet " + i, 1000.0);
+			repository.insert(wallets[i]);
+			journal.created(wallets[i]);
+		}
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> transfers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			transfers.add(executor.submit(() -> {
+				Random random = new Random();
+				int count = 0;
+				while (running.get() || count < 1000) {
+					Wallet source = wallets[random.nextInt(WALLETS)];
+					Wallet dest = wallets[random.nextInt(WALLETS)];
+					transferEngine.transfer(source, "BTC", 0.001, dest, random.nextBoolean() ? "BTC" : "ETH", 2.0);
+					count++;
+				}
+				return count;
+			}));
+		}
+		for (int i = 0; i < 3; i++) {
+			journal.snapshot();
+		}
+		running.set(false);
+		for (Future<Integer> transfer : transfers) {
+			transfer.get(1, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+		journal.close();
+
+		InMemoryWalletRepository restored = new InMemoryWalletRepository();
+		journal(restored).close();
+
+		int btc = SymbolTable.intern("BTC");
+		int eth = SymbolTable.intern("ETH");
+		for (Wallet wallet : wallets) {
+			Wallet restoredWallet = restored.findById(wallet.getId()).get();
+			assertThat(restoredWallet.getBalances().get(btc)).isEqualTo(wallet.getBalances().get(btc));
+			assertThat(restoredWallet.getBalances().get(eth)).isEqualTo(wallet.getBalances().get(eth));
+		}
+	}
+
+	private void credit(InMemoryWalletRepository repository, FileWalletJournal journal, long walletId, int symbolId, double amount) {
+		repository.findById(walletId).get().getBalances().add(symbolId, Balances.toUnits(amount));
+		journal.awaitDurable(journal.credited(walletId, symbolId, Balances.toUnits(amount)));
+	}
+
+	private List<Path> files(String prefix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith(prefix)).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private FileWalletJournal journal(InMemoryWalletRepository repository) throws IOException {
+		FileWalletJournal journal = new FileWalletJournal(repository, new LockingWalletExecutor(new WalletLocks(16)),
+				directory.toString(), DataSize.ofMegabytes(1), false, 2);
+		journal.open();
+		return journal;
+	}
+
+	private List<Path> segments() throws IOException {
+		return files("journal-");
+	}
+
+	private Wallet wallet(Long id, String name, double btc) {
+		return Wallet.builder()
+				.id(id)
+				.name(name)
+				.privateKey("private " + name)
+				.publicKey("public " + name)
+				.currencies(new LinkedHashSet<>(Collections.singletonList(new Currency(btc, "BTC"))))
+				.build();
+	}
+}
@@ -0,0 +1,67 @@
+package com.hotovo.cws.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+	private final MetricsRegistry sut = new MetricsRegistry();
+
+	@Test
+	@DisplayName("given counters and gauge when exported then written in prometheus text format ordered by name")
+	void counters_and_gauge_exported() throws Exception {
+		sut.counter("wallet_transfer_failures_total", "Failed transfers", "reason", "insufficient_balance").increment();
+		sut.counter("wallet_transfer_failures_total", "Failed transfers", "reason", "insufficient_balance").increment();
+		sut.counter("wallet_transfer_failures_total", "Failed transfers", "reason", "invalid \"price\"").increment();
+		sut.gauge("cache_hit_ratio", "Hit ratio", () -> 0.75, "cache", "wallets");
+
+		StringBuilder out = new StringBuilder();
+		sut.writeTo(out);
+
+		assertThat(out.toString()).isEqualTo("# HELP cache_hit_ratio Hit ratio\n"
+				+ "# TYPE cache_hit_ratio gauge\n"
+				+ "cache_hit_ratio{cache=\"wallets\"} 0.75\n"
+				+ "# HELP wallet_transfer_failures_total Failed transfers\n"
+				+ "# TYPE wallet_transfer_failures_total counter\n"
+				+ "wallet_transfer_failures_total{reason=\"insufficient_balance\"} 2\n"
+				+ "wallet_transfer_failures_total{reason=\"invalid \\\"price\\\"\"} 1\n");
+	}
+
+	@Test
+	@DisplayName("given recorded durations when timer exported then buckets are cumulative and sum in seconds")
+	void timer_exported_as_histogram() throws Exception {
+		Timer timer = sut.timer("crypto_compare_requests_seconds", "Latency", "endpoint", "pricemulti");
+		timer.record(TimeUnit.MICROSECONDS.toNanos(50));
+		timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+		timer.record(TimeUnit.MILLISECONDS.toNanos(300));
+		timer.record(TimeUnit.SECONDS.toNanos(20));
+
+		StringBuilder out = new StringBuilder();
+		sut.writeTo(out);
+
+		assertThat(timer.count()).isEqualTo(4);
+		assertThat(out.toString())
+				.contains("# TYPE crypto_compare_requests_seconds histogram\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"1.0E-4\"} 1\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"0.001\"} 2\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"0.25\"} 2\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"0.5\"} 3\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"10.0\"} 3\n")
+				.contains("crypto_compare_requests_seconds_bucket{endpoint=\"pricemulti\",le=\"+Inf\"} 4\n")
+				.contains("crypto_compare_requests_seconds_count{endpoint=\"pricemulti\"} 4\n")
+				.contains("crypto_compare_requests_seconds_sum{endpoint=\"pricemulti\"} 20.30105\n");
+	}
+
+	@Test
+	@DisplayName("given metric registered as counter when registered as timer then rejected")
+	void metric_type_conflict_rejected() {
+		sut.counter("requests_total", "Requests");
+
+		assertThatThrownBy(() -> sut.timer("requests_total", "Requests")).hasMessage("Metric requests_total is already registered as COUNTER");
+		assertThatThrownBy(() -> sut.counter("requests_total", "Requests", "method")).hasMessage("Metric tags must be pairs of name and value!");
+	}
+}
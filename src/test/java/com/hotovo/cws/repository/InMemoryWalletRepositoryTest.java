@@ -0,0 +1,86 @@
+package com.hotovo.cws.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import java.util.LinkedHashSet;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InMemoryWalletRepositoryTest {
+
+	private final InMemoryWalletRepository sut = new InMemoryWalletRepository();
+
+	@Test
+	@DisplayName("given_inserted_wallet_when_find_by_id_then_wallet_returned")
+	void insert_and_find() {
+		Wallet wallet = wallet(1L, "name");
+
+		assertThat(sut.insert(wallet)).isTrue();
+		assertThat(sut.findById(1L)).containsSame(wallet);
+		assertThat(sut.existsByIdentity("name", "private name", "public name")).isTrue();
+		assertThat(sut.count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("given_inserted_wallet_when_insert_same_identity_then_rejected")
+	void insert_duplicate() {
+		sut.insert(wallet(1L, "name"));
+
+		assertThat(sut.insert(wallet(2L, "name"))).isFalse();
+		assertThat(sut.insert(wallet(1L, "other"))).isFalse();
+		assertThat(sut.existsByIdentity("other", "private other", "public other")).isFalse();
+		assertThat(sut.count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("given_wallet_inserted_with_own_id_when_next_id_then_id_after_inserted_returned")
+	void insert_moves_next_id() {
+		long id = sut.nextId() + 1000;
+		assertThat(sut.insert(wallet(id, "imported"))).isTrue();
+
+		assertThat(sut.nextId()).isGreaterThan(id);
+	}
+
+	@Test
+	@DisplayName("given_inserted_wallets_when_update_identity_then_index_updated")
+	void update_identity() {
+		Wallet wallet = wallet(1L, "name");
+		sut.insert(wallet);
+		sut.insert(wallet(2L, "taken"));
+
+		assertThat(sut.updateIdentity(wallet, "taken", "private taken", "public taken")).isFalse();
+		assertThat(sut.updateIdentity(wallet, "renamed", "private renamed", "public renamed")).isTrue();
+		assertThat(wallet.getName()).isEqualTo("renamed");
+		assertThat(sut.existsByIdentity("name", "private name", "public name")).isFalse();
+		assertThat(sut.existsByIdentity("renamed", "private renamed", "public renamed")).isTrue();
+	}
+
+	@Test
+	@DisplayName("given_inserted_wallets_when_delete_then_removed_from_all_indexes")
+	void delete() {
+		sut.insert(wallet(2L, "second"));
+		sut.insert(wallet(1L, "first"));
+
+		assertThat(sut.findAll().map(Wallet::getId).collect(Collectors.toList())).containsExactly(1L, 2L);
+		assertThat(sut.deleteById(1L)).isPresent();
+		assertThat(sut.deleteById(1L)).isEmpty();
+		assertThat(sut.findById(1L)).isEmpty();
+		assertThat(sut.existsByIdentity("first", "private first", "public first")).isFalse();
+		assertThat(sut.findAll().map(Wallet::getId).collect(Collectors.toList())).containsExactly(2L);
+	}
+
+	private Wallet wallet(Long id, String name) {
+		LinkedHashSet<Currency> currencies = new LinkedHashSet<>();
+		currencies.add(new Currency(1.0, "BTC"));
+		return Wallet.builder()
+				.id(id)
+				.name(name)
+				.privateKey("private " + name)
+				.publicKey("public " + name)
+				.currencies(currencies)
+				.build();
+	}
+}
@@ -0,0 +1,91 @@
+package com.hotovo.cws.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ShardedWalletRepositoryTest {
+
+	private final ShardedWalletRepository sut = new ShardedWalletRepository(4);
+
+	@Test
+	@DisplayName("given_wallets_in_all_shards_when_find_all_then_ordered_by_id")
+	void find_all_ordered() {
+		for (long id : new long[]{7, 2, 12, 1, 4, 9, 3}) {
+			assertThat(sut.insert(wallet(id, "wallet " + id))).isTrue();
+		}
+
+		assertThat(sut.findAll().map(Wallet::getId).collect(Collectors.toList())).containsExactly(1L, 2L, 3L, 4L, 7L, 9L, 12L);
+		assertThat(sut.findAllAfter(4L).map(Wallet::getId).collect(Collectors.toList())).containsExactly(7L, 9L, 12L);
+		assertThat(sut.findAllAfter(12L).count()).isZero();
+		assertThat(sut.findById(9L).map(Wallet::getName)).contains("wallet 9");
+		assertThat(sut.count()).isEqualTo(7);
+	}
+
+	@Test
+	@DisplayName("given_wallet_in_one_shard_when_insert_same_identity_to_other_shard_then_rejected")
+	void identity_unique_across_shards() {
+		Wallet wallet = wallet(1L, "name");
+		sut.insert(wallet);
+		sut.insert(wallet(2L, "taken"));
+
+		assertThat(sut.insert(wallet(3L, "name"))).isFalse();
+		assertThat(sut.updateIdentity(wallet, "taken", "private taken", "public taken")).isFalse();
+		assertThat(sut.updateIdentity(wallet, "renamed", "private renamed", "public renamed")).isTrue();
+		assertThat(sut.insert(wallet(3L, "name"))).isTrue();
+		assertThat(sut.deleteById(2L)).isPresent();
+		assertThat(sut.existsByIdentity("taken", "private taken", "public taken")).isFalse();
+		assertThat(sut.count()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("given_restored_wallets_when_ids_allocated_concurrently_then_ids_unique_and_not_used")
+	void ids_allocated_concurrently() throws Exception {
+		LongStream.rangeClosed(1, 100).forEach(id -> sut.insert(wallet(id, "restored " + id)));
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					long id = sut.nextId();
+					assertThat(ids.add(id)).isTrue();
+					assertThat(sut.insert(wallet(id, "created " + id))).isTrue();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(ids).hasSize(40_000).allMatch(id -> id > 100);
+		assertThat(sut.count()).isEqualTo(40_100);
+		assertThat(sut.findAll().map(Wallet::getId).collect(Collectors.toList())).isSortedAccordingTo(Long::compare).hasSize(40_100);
+	}
+
+	private Wallet wallet(Long id, String name) {
+		LinkedHashSet<Currency> currencies = new LinkedHashSet<>();
+		currencies.add(new Currency(1.0, "BTC"));
+		return Wallet.builder()
+				.id(id)
+				.name(name)
+				.privateKey("private " + name)
+				.publicKey("public " + name)
+				.currencies(currencies)
+				.build();
+	}
+}
@@ -0,0 +1,56 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class CurrencyServiceAsyncTest {
+
+	@Autowired
+	private CurrencyService sut;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Test
+	@DisplayName("given price loaded asynchronously when currency bought and transferred then balances changed by the mutation threads")
+	void async_mutation_off_dispatcher() throws Exception {
+		StubCryptoCompareServer.shared().setPrice("AS1", 10.0);
+		StubCryptoCompareServer.shared().setPrice("AS2", 20.0);
+		Wallet source = wallet(new Currency(10.0, "AS1"));
+		Wallet destination = wallet();
+
+		String buyThread = sut.buyCurrencyAsync("AS1", 1.0, "AS2", source)
+				.thenApply(wallet -> Thread.currentThread().getName())
+				.get(5, TimeUnit.SECONDS);
+		String transferThread = sut.transferCurrencyAsync(source, "AS1", 2.0, destination, "AS2")
+				.thenApply(ignored -> Thread.currentThread().getName())
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(buyThread).startsWith("wallet-mutation-");
+		assertThat(transferThread).startsWith("wallet-mutation-");
+		assertThat(source.getCurrencies()).containsExactlyInAnyOrder(new Currency(8.0, "AS1"), new Currency(0.5, "AS2"));
+		assertThat(destination.getCurrencies()).containsExactly(new Currency(1.0, "AS2"));
+	}
+
+	private Wallet wallet(Currency... currencies) {
+		Wallet wallet = TestDataService.createWallet();
+		wallet.getCurrencies().clear();
+		wallet.getCurrencies().addAll(Arrays.asList(currencies));
+		walletRepository.insert(wallet);
+		return wallet;
+	}
+}
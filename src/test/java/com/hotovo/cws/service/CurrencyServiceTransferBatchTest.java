@@ -0,0 +1,114 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.CurrencyTransferRequest;
+import com.hotovo.cws.controller.dto.TransferBatchMode;
+import com.hotovo.cws.controller.dto.TransferResult;
+import com.hotovo.cws.controller.dto.TransferResult.Status;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class CurrencyServiceTransferBatchTest {
+
+	@Autowired
+	private CurrencyService sut;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Test
+	@DisplayName("given batch with failing transfers when applied per item then other transfers applied and each price loaded once")
+	void batch_per_item() {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		server.setPrice("PA1", 10.0);
+		server.setPrice("PB1", 20.0);
+		Wallet source = wallet(new Currency(100.0, "PA1"));
+		Wallet destination = wallet();
+		int priceRequests = server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti");
+		List<CurrencyTransferRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			requests.add(new CurrencyTransferRequest(source.getId(), "PA1", 1.0, destination.getId(), i % 2 == 0 ? "PB1" : "pa1"));
+		}
+		requests.add(new CurrencyTransferRequest(source.getId(), "PA1", 1000.0, destination.getId(), "PB1"));
+		requests.add(new CurrencyTransferRequest(-1L, "PA1", 1.0, destination.getId(), "PB1"));
+		requests.add(new CurrencyTransferRequest(source.getId(), "PA1", -1.0, destination.getId(), "PB1"));
+
+		List<TransferResult> results = transfer(requests, TransferBatchMode.PER_ITEM);
+
+		assertThat(results.stream().map(TransferResult::getIndex).collect(Collectors.toList())).isSortedAccordingTo(Integer::compare).hasSize(53);
+		assertThat(results.subList(0, 50)).allMatch(result -> result.getStatus() == Status.APPLIED);
+		assertThat(results.subList(50, 53)).allMatch(result -> result.getStatus() == Status.FAILED);
+		assertThat(results.get(50).getMessage()).isEqualTo("Source wallet has no such currency or balance is lower then requested amount!");
+		assertThat(results.get(51).getMessage()).isEqualTo("Wallet with requested id not found!");
+		assertThat(results.get(52).getMessage()).isEqualTo("amount must be positive value");
+		assertThat(source.getCurrencies()).containsExactly(new Currency(50.0, "PA1"));
+		assertThat(destination.getCurrencies()).containsExactlyInAnyOrder(new Currency(12.5, "PB1"), new Currency(25.0, "PA1"));
+		assertThat(server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti") - priceRequests).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("given batch with failing transfer when applied all or nothing then no transfer applied")
+	void batch_all_or_nothing_failed() {
+		Wallet source = wallet(new Currency(10.0, "BTC"));
+		Wallet destination = wallet(new Currency(1.0, "BTC"));
+		List<CurrencyTransferRequest> requests = Arrays.asList(
+				new CurrencyTransferRequest(source.getId(), "BTC", 4.0, destination.getId(), "BTC"),
+				new CurrencyTransferRequest(destination.getId(), "BTC", 5.0, source.getId(), "BTC"),
+				new CurrencyTransferRequest(source.getId(), "BTC", 4.0, destination.getId(), "BTC"),
+				new CurrencyTransferRequest(source.getId(), "BTC", 8.0, destination.getId(), "BTC"));
+
+		List<TransferResult> results = transfer(requests, TransferBatchMode.ALL_OR_NOTHING);
+
+		assertThat(results.stream().map(TransferResult::getStatus).collect(Collectors.toList()))
+				.containsExactly(Status.ABORTED, Status.ABORTED, Status.ABORTED, Status.FAILED);
+		assertThat(results.get(3).getMessage()).isEqualTo("Source wallet has no such currency or balance is lower then requested amount!");
+		assertThat(source.getCurrencies()).containsExactly(new Currency(10.0, "BTC"));
+		assertThat(destination.getCurrencies()).containsExactly(new Currency(1.0, "BTC"));
+	}
+
+	@Test
+	@DisplayName("given valid batch when applied all or nothing then all transfers applied")
+	void batch_all_or_nothing_applied() {
+		Wallet source = wallet(new Currency(10.0, "BTC"));
+		Wallet destination = wallet(new Currency(1.0, "BTC"));
+		List<CurrencyTransferRequest> requests = Arrays.asList(
+				new CurrencyTransferRequest(source.getId(), "BTC", 4.0, destination.getId(), "BTC"),
+				new CurrencyTransferRequest(destination.getId(), "BTC", 5.0, source.getId(), "BTC"),
+				new CurrencyTransferRequest(source.getId(), "BTC", 4.0, destination.getId(), "ETH"));
+
+		List<TransferResult> results = transfer(requests, TransferBatchMode.ALL_OR_NOTHING);
+
+		assertThat(results).allMatch(result -> result.getStatus() == Status.APPLIED);
+		assertThat(source.getCurrencies()).containsExactly(new Currency(7.0, "BTC"));
+		assertThat(destination.getCurrencies()).containsExactly(new Currency(0.0, "BTC"), new Currency(180.0, "ETH"));
+	}
+
+	private List<TransferResult> transfer(List<CurrencyTransferRequest> requests, TransferBatchMode mode) {
+		List<TransferResult> results = new ArrayList<>();
+		sut.transferCurrencies(requests, mode, results::add);
+		return results;
+	}
+
+	private Wallet wallet(Currency... currencies) {
+		Wallet wallet = TestDataService.createWallet();
+		wallet.getCurrencies().clear();
+		wallet.getCurrencies().addAll(Arrays.asList(currencies));
+		walletRepository.insert(wallet);
+		return wallet;
+	}
+}
@@ -0,0 +1,81 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyStoreTest {
+
+	private static final byte[] REQUEST = "request".getBytes(StandardCharsets.UTF_8);
+
+	private final IdempotencyStore sut = new IdempotencyStore(Duration.ofHours(1), 1_000_000, 4);
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@Test
+	@DisplayName("given executed key when repeated then outcome of the first execution returned without executing again")
+	void repeated_key_not_executed() throws Exception {
+		assertThat(execute("key-1", "request").get()).isEqualTo("outcome 1");
+		assertThat(execute("key-1", "request").get()).isEqualTo("outcome 1");
+		assertThat(execute("key-2", "request").get()).isEqualTo("outcome 2");
+
+		assertThat(executions).hasValue(2);
+		assertThat(sut.size()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("given running operation when repeated then repeated request waits for the same outcome")
+	void pending_outcome_shared() throws Exception {
+		CompletableFuture<String> running = new CompletableFuture<>();
+		CompletableFuture<String> first = sut.execute("pending", REQUEST, () -> running);
+		CompletableFuture<String> repeated = execute("pending", "request");
+
+		assertThat(repeated).isNotDone();
+		running.complete("done");
+		assertThat(repeated.get()).isEqualTo("done");
+		assertThat(first.get()).isEqualTo("done");
+		assertThat(executions).hasValue(0);
+	}
+
+	@Test
+	@DisplayName("given key used for different request or failed operation when repeated then rejected or executed again")
+	void different_request_rejected_and_failure_retried() throws Exception {
+		// same String hash code, different requests
+		execute("key", "Aa").get();
+		assertThatThrownBy(() -> execute("key", "BB").get()).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IdempotencyKeyException.class);
+
+		assertThatThrownBy(() -> sut.execute("failing", REQUEST, () -> {
+			throw new RuntimeException("Price for currency not found or not valid!");
+		}).get()).isInstanceOf(ExecutionException.class).hasMessageContaining("Price for currency not found or not valid!");
+		assertThat(execute("failing", "request").get()).isEqualTo("outcome 2");
+		assertThat(execute("failing", "request").get()).isEqualTo("outcome 2");
+	}
+
+	@Test
+	@DisplayName("given keys older than ttl or more keys than the bound when repeated then oldest keys executed again")
+	void keys_expired_and_bounded() throws Exception {
+		IdempotencyStore expiring = new IdempotencyStore(Duration.ofMillis(200), 1_000, 2);
+		expiring.execute("old", REQUEST, () -> CompletableFuture.completedFuture("first")).get();
+		Thread.sleep(450);
+		assertThat(expiring.execute("old", REQUEST, () -> CompletableFuture.completedFuture("second")).get()).isEqualTo("second");
+
+		IdempotencyStore bounded = new IdempotencyStore(Duration.ofHours(1), 4, 2);
+		for (int i = 0; i < 10; i++) {
+			bounded.execute("key " + i, REQUEST, () -> CompletableFuture.completedFuture("first")).get();
+		}
+		assertThat(bounded.size()).isLessThanOrEqualTo(4);
+		assertThat(bounded.execute("key 9", REQUEST, () -> CompletableFuture.completedFuture("second")).get()).isEqualTo("first");
+		assertThat(bounded.execute("key 0", REQUEST, () -> CompletableFuture.completedFuture("second")).get()).isEqualTo("second");
+	}
+
+	private CompletableFuture<String> execute(String key, String request) {
+		return sut.execute(key, request.getBytes(StandardCharsets.UTF_8), () -> CompletableFuture.completedFuture("outcome " + executions.incrementAndGet()));
+	}
+}
@@ -0,0 +1,91 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.PortfolioValuation;
+import com.hotovo.cws.controller.dto.WalletValuation;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class PortfolioServiceTest {
+
+	private static final Offset<Double> PRECISION = Offset.offset(1e-6);
+
+	@Autowired
+	private PortfolioService sut;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Test
+	@DisplayName("given wallets with many currencies when valued then every wallet valued and prices of all currencies loaded together")
+	void wallets_valued() {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		server.setPrice("PVA", 2.0);
+		server.setPrice("PVB", 5.0);
+		Wallet first = wallet(new Currency(1.0, "BTC"), new Currency(10.0, "PVA"));
+		Wallet second = wallet(new Currency(2.0, "ETH"), new Currency(4.0, "PVB"), new Currency(3.0, "USD"));
+		int priceRequests = server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti");
+
+		PortfolioValuation valuation = sut.valueWallets(Arrays.asList(first.getId(), second.getId(), first.getId()), "usd");
+
+		assertThat(valuation.getCurrency()).isEqualTo("USD");
+		assertThat(valuation.getWalletCount()).isEqualTo(2);
+		assertThat(valuation.getWallets()).extracting(WalletValuation::getWalletId).containsExactly(first.getId(), second.getId());
+		assertThat(valuation.getWallets().get(0).getValue()).isCloseTo(9020.0, PRECISION);
+		assertThat(valuation.getWallets().get(1).getValue()).isCloseTo(423.0, PRECISION);
+		assertThat(valuation.getTotal()).isCloseTo(9443.0, PRECISION);
+		assertThat(valuation.getUnpricedCurrencies()).isEmpty();
+		assertThat(server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti") - priceRequests).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("given currency without price when valued then currency reported and left out of the value")
+	void unpriced_currency_left_out() {
+		Wallet wallet = wallet(new Currency(1.0, "ETH"), new Currency(7.0, "PV-UNKNOWN"));
+
+		PortfolioValuation valuation = sut.valueWallets(Collections.singletonList(wallet.getId()), "EUR");
+
+		assertThat(valuation.getTotal()).isCloseTo(200.0 / 1.1, PRECISION);
+		assertThat(valuation.getUnpricedCurrencies()).containsExactly("PV-UNKNOWN");
+		assertThatThrownBy(() -> sut.valueWallets(Collections.singletonList(-1L), "EUR")).hasMessage("Wallet with requested id not found!");
+	}
+
+	@Test
+	@DisplayName("given stored wallets when whole store valued then total equals sum of the wallet values")
+	void store_valued() {
+		wallet(new Currency(0.5, "BTC"), new Currency(1.0, "LTC"));
+
+		PortfolioValuation all = sut.valueAll("USD");
+
+		Long[] ids = walletRepository.findAll().map(Wallet::getId).toArray(Long[]::new);
+		PortfolioValuation wallets = sut.valueWallets(Arrays.asList(ids), "USD");
+		assertThat(all.getWallets()).isNull();
+		assertThat(all.getWalletCount()).isEqualTo(ids.length);
+		assertThat(all.getTotal()).isCloseTo(wallets.getTotal(), PRECISION).isGreaterThanOrEqualTo(4560.0);
+	}
+
+	private Wallet wallet(Currency... currencies) {
+		Set<Currency> currencySet = new LinkedHashSet<>(Arrays.asList(currencies));
+		long id = walletRepository.nextId();
+		Wallet wallet = Wallet.builder().id(id).name("portfolio " + id).privateKey("private " + id).publicKey("public " + id).currencies(currencySet).build();
+		assertThat(walletRepository.insert(wallet)).isTrue();
+		return wallet;
+	}
+}
@@ -0,0 +1,140 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SequencedWalletExecutorTest {
+
+	private static final int WALLETS = 8;
+	private static final int THREADS = 8;
+	private static final int TRANSFERS_PER_THREAD = 20_000;
+
+	private SequencedWalletExecutor sut;
+
+	private TransferEngine transferEngine;
+
+	@BeforeEach
+	void setUp() {
+		sut = new SequencedWalletExecutor(64);
+		transferEngine = new TransferEngine();
+		ReflectionTestUtils.setField(transferEngine, "walletExecutor", sut);
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		sut.stop();
+	}
+
+	@Test
+	@DisplayName("given changes published from many threads when executed then executed one by one on the sequencer thread in publication order")
+	void changes_executed_in_order() throws Exception {
+		List<Integer> executed = new ArrayList<>();
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			int change = i;
+			futures.add(sut.submit(() -> {
+				assertThat(Thread.currentThread().getName()).isEqualTo("wallet-sequencer");
+				executed.add(change);
+				return change;
+			}));
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
+			assertThat(futures.get(i).get(10, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+		assertThat(executed).isSortedAccordingTo(Integer::compare).hasSize(1000);
+	}
+
+	@Test
+	@DisplayName("given failing change when executed then exception thrown to the caller and next changes executed")
+	void failing_change() {
+		assertThatThrownBy(() -> sut.execute(1L, () -> {
+			throw new RuntimeException("Wallet for update not found!");
+		})).isInstanceOf(RuntimeException.class).hasMessage("Wallet for update not found!");
+
+		assertThat(sut.execute(1L, 2L, () -> sut.execute(3L, () -> "nested"))).isEqualTo("nested");
+	}
+
+	@Test
+	@DisplayName("given many concurrent transfers on few hot wallets when sequenced then total balance is conserved")
+	void transfer_concurrent_balance_conserved() throws Exception {
+		List<Wallet> wallets = new ArrayList<>();
+		for (long id = 1; id <= WALLETS; id++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			currencies.add(new Currency(100.0, "BTC"));
+			wallets.add(Wallet.builder().id(id).name("wallet " + id).currencies(currencies).build());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			long seed = t;
+			futures.add(executor.submit(() -> {
+				Random random = new Random(seed);
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					Wallet source = wallets.get(random.nextInt(WALLETS));
+					Wallet destination = wallets.get(random.nextInt(WALLETS));
+					try {
+						transferEngine.transfer(source, "BTC", 1 + random.nextInt(50) / 10.0, destination, "BTC", 1.0);
+					} catch (RuntimeException e) {
+						assertThat(e).hasMessage("Source wallet has no such currency or balance is lower then requested amount!");
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		double total = wallets.stream().flatMap(wallet -> wallet.getCurrencies().stream()).mapToDouble(Currency::getAmount).sum();
+		assertThat(total).isEqualTo(100.0 * WALLETS);
+		assertThat(wallets).allMatch(wallet -> wallet.getCurrencies().iterator().next().getAmount() >= 0);
+	}
+
+	@Test
+	@DisplayName("given changes published while the sequencer stops when stopped then every caller returns with the result or the stop failure")
+	void stop_completes_every_change() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				int executed = 0;
+				try {
+					while (true) {
+						sut.execute(1L, () -> null);
+						executed++;
+					}
+				} catch (RuntimeException e) {
+					assertThat(e).hasMessage("Wallet sequencer is stopped!");
+				}
+				return executed;
+			}));
+		}
+		Thread.sleep(100);
+		sut.stop();
+
+		for (Future<Integer> future : futures) {
+			assertThat(future.get(10, TimeUnit.SECONDS)).isPositive();
+		}
+		executor.shutdown();
+		assertThatThrownBy(() -> sut.submit(() -> null)).hasMessage("Wallet sequencer is stopped!");
+	}
+}
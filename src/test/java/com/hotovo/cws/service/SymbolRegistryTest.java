@@ -0,0 +1,76 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hotovo.cws.client.CryptoCompareClient;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.MethodMode;
+
+@SpringBootTest(classes = SymbolRegistry.class, webEnvironment = WebEnvironment.NONE)
+class SymbolRegistryTest {
+
+	@MockBean
+	private CryptoCompareClient cryptoCompareClient;
+
+	@Autowired
+	private SymbolRegistry sut;
+
+	@BeforeEach
+	void setUp() {
+		reset(cryptoCompareClient);
+		when(cryptoCompareClient.fetchCoinSymbols()).thenReturn(new HashSet<>(Arrays.asList("BTC", "ETH", "LTC", "USD")));
+	}
+
+	@Test
+	@DisplayName("given loaded coin list when symbols validated then no further download")
+	void symbols_validated_from_memory() {
+		sut.refresh();
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(sut.isValid("BTC")).isTrue();
+			assertThat(sut.isValid("eth")).isTrue();
+			assertThat(sut.isValid("Ltc")).isTrue();
+			assertThat(sut.isValid("XXX")).isFalse();
+			assertThat(sut.isValid("")).isFalse();
+		}
+
+		verify(cryptoCompareClient, times(1)).fetchCoinSymbols();
+		assertThat(sut.size()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("given failing refresh when symbols validated then previous coin list used")
+	void refresh_failure_keeps_symbols() {
+		sut.refresh();
+		when(cryptoCompareClient.fetchCoinSymbols()).thenThrow(new RuntimeException("Response with error from external service"));
+
+		sut.refresh();
+
+		assertThat(sut.isValid("btc")).isTrue();
+		assertThat(sut.size()).isEqualTo(4);
+	}
+
+	@Test
+	@DirtiesContext(methodMode = MethodMode.BEFORE_METHOD)
+	@DisplayName("given no coin list when download fails then validation fails")
+	void coin_list_not_available() {
+		when(cryptoCompareClient.fetchCoinSymbols()).thenThrow(new RuntimeException("Response with error from external service"));
+
+		assertThatThrownBy(() -> sut.isValid("BTC")).isInstanceOf(RuntimeException.class);
+		assertThat(sut.size()).isZero();
+	}
+}
@@ -0,0 +1,139 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hotovo.cws.controller.dto.TransactionHistoryPage;
+import com.hotovo.cws.controller.dto.WalletTransaction;
+import com.hotovo.cws.controller.dto.WalletTransaction.Type;
+import com.hotovo.cws.domain.Balances;
+import com.hotovo.cws.domain.SymbolTable;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TransactionHistoryTest {
+
+	private static final int BTC = SymbolTable.intern("BTC");
+	private static final int ETH = SymbolTable.intern("ETH");
+	private static final int USD = SymbolTable.intern("USD");
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	@DisplayName("given transfer and buy when history read then both sides of the transfer and the buy returned newest first")
+	void transfer_and_buy_recorded(boolean offHeap) {
+		TransactionHistory sut = new TransactionHistory(100, Duration.ofDays(1), offHeap);
+		sut.transferred(1, BTC, Balances.toUnits(0.5), 2, ETH, Balances.toUnits(15.25), 30.5);
+		sut.bought(1, ETH, Balances.toUnits(2.0), USD, 250.0);
+
+		List<WalletTransaction> source = sut.find(1, null, null, null, 10).getContent();
+		assertThat(source).extracting(WalletTransaction::getType).containsExactly(Type.BUY, Type.DEBIT);
+		assertThat(source.get(0).getCurrency()).isEqualTo("ETH");
+		assertThat(source.get(0).getCounterCurrency()).isEqualTo("USD");
+		assertThat(source.get(0).getCounterpartyWalletId()).isNull();
+		assertThat(source.get(0).getAmount()).isEqualTo(2.0);
+		assertThat(source.get(1).getCurrency()).isEqualTo("BTC");
+		assertThat(source.get(1).getAmount()).isEqualTo(0.5);
+		assertThat(source.get(1).getCounterpartyWalletId()).isEqualTo(2L);
+
+		WalletTransaction credit = sut.find(2, null, null, null, 10).getContent().get(0);
+		assertThat(credit.getType()).isEqualTo(Type.CREDIT);
+		assertThat(credit.getCurrency()).isEqualTo("ETH");
+		assertThat(credit.getAmount()).isEqualTo(15.25);
+		assertThat(credit.getCounterCurrency()).isEqualTo("BTC");
+		assertThat(credit.getCounterpartyWalletId()).isEqualTo(1L);
+		assertThat(credit.getPrice()).isEqualTo(30.5);
+		assertThat(sut.size()).isEqualTo(2);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	@DisplayName("given more transactions than retained when history paged then only the latest transactions returned page by page")
+	void ring_grows_wraps_and_pages(boolean offHeap) {
+		TransactionHistory sut = new TransactionHistory(20, Duration.ofDays(1), offHeap);
+		for (int i = 1; i <= 50; i++) {
+			sut.bought(1, BTC, Balances.toUnits(i), USD, i);
+		}
+
+		List<Double> amounts = new ArrayList<>();
+		Long cursor = null;
+		int pages = 0;
+		do {
+			TransactionHistoryPage page = sut.find(1, null, null, cursor, 7);
+			amounts.addAll(page.getContent().stream().map(WalletTransaction::getAmount).collect(Collectors.toList()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		assertThat(amounts).hasSize(20);
+		assertThat(amounts.get(0)).isEqualTo(50.0);
+		assertThat(amounts.get(19)).isEqualTo(31.0);
+	}
+
+	@Test
+	@DisplayName("given grown ring can not be allocated when more transactions recorded then recording not failed and ring wraps at its capacity")
+	void ring_not_grown_wraps() {
+		TransactionHistory sut = new TransactionHistory(100, Duration.ofDays(1), size -> {
+			if (size > 8 * 41) {
+				throw new OutOfMemoryError("Direct buffer memory");
+			}
+			return ByteBuffer.allocate(size);
+		});
+		for (int i = 1; i <= 20; i++) {
+			sut.bought(1, BTC, Balances.toUnits(i), USD, i);
+		}
+		sut.transferred(1, BTC, Balances.toUnits(0.5), 2, ETH, Balances.toUnits(1.0), 2.0);
+
+		List<WalletTransaction> transactions = sut.find(1, null, null, null, 100).getContent();
+		assertThat(transactions).hasSize(8);
+		assertThat(transactions.get(0).getType()).isEqualTo(Type.DEBIT);
+		assertThat(transactions.get(1).getAmount()).isEqualTo(20.0);
+		assertThat(sut.find(2, null, null, null, 100).getContent()).extracting(WalletTransaction::getType).containsExactly(Type.CREDIT);
+	}
+
+	@Test
+	@DisplayName("given transactions recorded over time when time range requested then only transactions within the range returned")
+	void time_range_filtered() throws Exception {
+		TransactionHistory sut = new TransactionHistory(100, Duration.ofDays(1), false);
+		sut.bought(1, BTC, Balances.toUnits(1.0), USD, 1.0);
+		Thread.sleep(20);
+		Instant from = Instant.now();
+		sut.bought(1, BTC, Balances.toUnits(2.0), USD, 1.0);
+		sut.bought(1, BTC, Balances.toUnits(3.0), USD, 1.0);
+		Thread.sleep(20);
+		Instant to = Instant.now();
+		sut.bought(1, BTC, Balances.toUnits(4.0), USD, 1.0);
+
+		assertThat(sut.find(1, from, to, null, 10).getContent()).extracting(WalletTransaction::getAmount).containsExactly(3.0, 2.0);
+		assertThat(sut.find(1, from, null, null, 10).getContent()).extracting(WalletTransaction::getAmount).containsExactly(4.0, 3.0, 2.0);
+		assertThat(sut.find(1, null, from, null, 10).getContent()).extracting(WalletTransaction::getAmount).containsExactly(1.0);
+		assertThat(sut.find(1, from, to, null, 1).getNextCursor()).isNotNull();
+		assertThat(sut.find(1, from, to, null, 2).getNextCursor()).isNull();
+	}
+
+	@Test
+	@DisplayName("given expired, removed or disabled history when read then no transactions returned")
+	void expired_removed_and_disabled() throws Exception {
+		TransactionHistory expiring = new TransactionHistory(100, Duration.ofMillis(50), false);
+		expiring.bought(1, BTC, Balances.toUnits(1.0), USD, 1.0);
+		expiring.bought(2, BTC, Balances.toUnits(1.0), USD, 1.0);
+		expiring.remove(2);
+		assertThat(expiring.size()).isEqualTo(1);
+		Thread.sleep(100);
+		assertThat(expiring.find(1, null, null, null, 10).getContent()).isEmpty();
+		expiring.removeExpired();
+		assertThat(expiring.size()).isZero();
+
+		TransactionHistory.DISABLED.bought(1, BTC, Balances.toUnits(1.0), USD, 1.0);
+		assertThat(TransactionHistory.DISABLED.size()).isZero();
+		assertThatThrownBy(() -> expiring.find(1, null, null, null, 0)).hasMessage("Page size must not be less than one!");
+	}
+}
@@ -0,0 +1,128 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+
+@SpringBootTest(classes = {TransferEngine.class, LockingWalletExecutor.class, WalletLocks.class}, webEnvironment = WebEnvironment.NONE)
+class TransferEngineTest {
+
+	private static final int WALLETS = 64;
+	private static final int THREADS = 8;
+	private static final int TRANSFERS_PER_THREAD = 250_000;
+	private static final String[] SYMBOLS = {"BTC", "ETH"};
+
+	@Autowired
+	private TransferEngine sut;
+
+	@Test
+	@DisplayName("given wallets when transfer with invalid price then balances unchanged")
+	void transfer_invalid_price() {
+		Wallet sourceWallet = TestDataService.createWallet();
+		Wallet destinationWallet = TestDataService.createWallet();
+
+		assertThatThrownBy(() -> sut.transfer(sourceWallet, "BTC", 0.5, destinationWallet, "ETH", Double.NaN))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Price for currency not found or not valid!");
+
+		assertThat(balance(sourceWallet, "BTC")).isEqualTo(1.0);
+		assertThat(balance(destinationWallet, "ETH")).isEqualTo(0.0);
+	}
+
+	@Test
+	@DisplayName("given low balance when transfer to new currency then transfer failed and destination symbol not interned")
+	void transfer_failed_symbol_not_interned() {
+		Wallet sourceWallet = TestDataService.createWallet();
+		Wallet destinationWallet = TestDataService.createWallet();
+
+		assertThatThrownBy(() -> sut.transfer(sourceWallet, "BTC", 5.0, destinationWallet, "TEF1", 2.0))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Source wallet has no such currency or balance is lower then requested amount!");
+
+		assertThat(SymbolTable.find("TEF1")).isEqualTo(SymbolTable.UNKNOWN);
+		assertThat(balance(sourceWallet, "BTC")).isEqualTo(1.0);
+	}
+
+	@Test
+	@DisplayName("given wallet when transfer to itself then balance unchanged")
+	void transfer_same_wallet() {
+		Wallet wallet = TestDataService.createWallet();
+
+		sut.transfer(wallet, "BTC", 0.5, wallet, "BTC", 1.0);
+
+		assertThat(balance(wallet, "BTC")).isEqualTo(1.0);
+	}
+
+	@Test
+	@DisplayName("given many concurrent random transfers then total balance of every currency is conserved")
+	void transfer_concurrent_balance_conserved() throws Exception {
+		List<Wallet> wallets = new ArrayList<>();
+		for (long id = 1; id <= WALLETS; id++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			currencies.add(new Currency(1000.0, "BTC"));
+			if (id % 2 == 0) {
+				currencies.add(new Currency(1000.0, "ETH"));
+			}
+			wallets.add(Wallet.builder().id(id).name("wallet " + id).currencies(currencies).build());
+		}
+		double btcBefore = total(wallets, "BTC");
+		double ethBefore = total(wallets, "ETH");
+
+		AtomicLong rejected = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			long seed = t;
+			futures.add(executor.submit(() -> {
+				Random random = new Random(seed);
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					Wallet source = wallets.get(random.nextInt(WALLETS));
+					Wallet destination = wallets.get(random.nextInt(WALLETS));
+					String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+					try {
+						sut.transfer(source, symbol, (double) (1 + random.nextInt(50)), destination, symbol, 1.0);
+					} catch (RuntimeException e) {
+						rejected.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(total(wallets, "BTC")).isEqualTo(btcBefore);
+		assertThat(total(wallets, "ETH")).isEqualTo(ethBefore);
+		assertThat(rejected.get()).isLessThan((long) THREADS * TRANSFERS_PER_THREAD);
+		wallets.forEach(wallet -> assertThat(wallet.getCurrencies()).allMatch(currency -> currency.getAmount() >= 0));
+	}
+
+	private double total(List<Wallet> wallets, String symbol) {
+		return wallets.stream().mapToDouble(wallet -> balance(wallet, symbol)).sum();
+	}
+
+	private double balance(Wallet wallet, String symbol) {
+		return wallet.getCurrencies().stream()
+				.filter(currency -> currency.getSymbol().equals(symbol))
+				.mapToDouble(Currency::getAmount)
+				.sum();
+	}
+}
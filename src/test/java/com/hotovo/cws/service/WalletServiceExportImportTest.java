@@ -0,0 +1,121 @@
+package com.hotovo.cws.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.controller.dto.WalletImportResult;
+import com.hotovo.cws.controller.dto.WalletRequest;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.repository.WalletRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "wallet.import.batch-size=3")
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class WalletServiceExportImportTest {
+
+	@Autowired
+	private WalletService sut;
+
+	@Autowired
+	private WalletRepository walletRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	@DisplayName("given wallets when exported then every wallet written once in id order")
+	void export_wallets() {
+		Wallet wallet = sut.createWallet(walletRequest("export", new Currency(1.5, "BTC"), new Currency(2.0, "ETH")));
+		StringBuilder export = new StringBuilder();
+
+		sut.exportWallets(exported -> export.append(json(exported)).append('\n'));
+
+		List<Wallet> wallets = Arrays.stream(export.toString().split("\n")).map(this::wallet).collect(Collectors.toList());
+		assertThat(wallets).hasSize((int) walletRepository.count());
+		assertThat(wallets.stream().map(Wallet::getId).collect(Collectors.toList())).isSortedAccordingTo(Long::compare).doesNotHaveDuplicates();
+		Wallet exported = wallets.stream().filter(each -> each.getId().equals(wallet.getId())).findFirst().orElse(null);
+		assertThat(exported).isNotNull();
+		assertThat(exported.getName()).isEqualTo("export");
+		assertThat(exported.getCurrencies()).containsExactlyInAnyOrder(new Currency(1.5, "BTC"), new Currency(2.0, "ETH"));
+	}
+
+	@Test
+	@DisplayName("given exported wallets when imported in batches then new wallets created and existing, invalid wallets and currencies skipped")
+	void import_wallets() throws IOException {
+		sut.createWallet(walletRequest("import existing", new Currency(1.0, "BTC")));
+		List<WalletRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			requests.add(walletRequest("import " + i, new Currency(i + 1.0, "BTC"), new Currency(1.0, "XXX" + i)));
+		}
+		requests.add(walletRequest("import existing", new Currency(1.0, "BTC")));
+		requests.add(walletRequest("", new Currency(1.0, "BTC")));
+		StringBuilder input = new StringBuilder();
+		requests.forEach(request -> input.append(json(request)).append('\n'));
+		long count = walletRepository.count();
+
+		WalletImportResult result;
+		try (MappingIterator<WalletRequest> iterator = objectMapper.readerFor(WalletRequest.class).readValues(input.toString())) {
+			result = sut.importWallets(iterator);
+		}
+
+		assertThat(result.getImported()).isEqualTo(4);
+		assertThat(result.getDuplicates()).isEqualTo(1);
+		assertThat(result.getInvalid()).isEqualTo(1);
+		assertThat(result.getError()).isNull();
+		assertThat(walletRepository.count()).isEqualTo(count + 4);
+		Wallet imported = walletRepository.findAll().filter(wallet -> wallet.getName().equals("import 2")).findFirst().orElse(null);
+		assertThat(imported).isNotNull();
+		assertThat(imported.getCurrencies()).containsExactly(new Currency(3.0, "BTC"));
+	}
+
+	@Test
+	@DisplayName("given malformed line when imported then wallets before the line imported and import stopped")
+	void import_malformed_line() throws IOException {
+		String input = json(walletRequest("malformed 0")) + "\n" + json(walletRequest("malformed 1")) + "\n{\"name\": \n" + json(walletRequest("malformed 2"));
+
+		WalletImportResult result;
+		try (MappingIterator<WalletRequest> iterator = objectMapper.readerFor(WalletRequest.class).readValues(input)) {
+			result = sut.importWallets(iterator);
+		}
+
+		assertThat(result.getImported()).isEqualTo(2);
+		assertThat(result.getError()).startsWith("Import stopped after 2 wallets");
+		assertThat(walletRepository.existsByIdentity("malformed 1", "malformed 1", "malformed 1")).isTrue();
+		assertThat(walletRepository.existsByIdentity("malformed 2", "malformed 2", "malformed 2")).isFalse();
+	}
+
+	private String json(Object value) {
+		try {
+			return objectMapper.writeValueAsString(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Wallet wallet(String json) {
+		try {
+			return objectMapper.readValue(json, Wallet.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private WalletRequest walletRequest(String name, Currency... currencies) {
+		return new WalletRequest(name, name, name, new HashSet<>(Arrays.asList(currencies)));
+	}
+}
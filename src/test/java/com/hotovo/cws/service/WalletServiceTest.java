@@ -4,6 +4,7 @@ import static com.hotovo.cws.service.TestDataService.createWalletRequest;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.hotovo.cws.controller.dto.WalletCursorPage;
 import com.hotovo.cws.controller.dto.WalletRequest;
 import com.hotovo.cws.domain.Currency;
 import com.hotovo.cws.domain.Wallet;
@@ -43,6 +44,17 @@ class WalletServiceTest {
 				.hasMessageContaining("Wallet with requested name, private and public key already present! Won't be created");
 	}
 
+	@Test
+	@DisplayName("given_next_id_taken_when_wallet_create_then_wallet_created_with_other_id")
+	void create_wallet_id_taken() {
+		Wallet first = sut.createWallet(createWalletRequest());
+		Wallet.getWalletId().set(first.getId());
+
+		Wallet second = sut.createWallet(createWalletRequest());
+		assertThat(second.getId()).isGreaterThan(first.getId());
+		assertThat(sut.getWalletInformation(first.getId())).isSameAs(first);
+		assertThat(sut.getWalletInformation(second.getId())).isSameAs(second);
+	}
 
 	@Test
 	@DisplayName("given_existing_wallet_when_get_then_wallet_returned")
@@ -104,6 +116,22 @@ class WalletServiceTest {
 				.hasMessageContaining("Wallet for delete not found!");
 	}
 
+	@Test
+	@DisplayName("given_existing_wallets_when_fetch_after_cursor_then_pages_returned_in_id_order")
+	void fetch_wallets_after_cursor() {
+		Wallet first = sut.createWallet(createWalletRequest());
+		Wallet second = sut.createWallet(createWalletRequest());
+		Wallet third = sut.createWallet(createWalletRequest());
+
+		WalletCursorPage page = sut.fetchWalletsAfter(first.getId() - 1, 2);
+		assertThat(page.getContent()).extracting(Wallet::getId).containsExactly(first.getId(), second.getId());
+		assertThat(page.getNextCursor()).isEqualTo(second.getId());
+
+		WalletCursorPage lastPage = sut.fetchWalletsAfter(page.getNextCursor(), 2);
+		assertThat(lastPage.getContent()).extracting(Wallet::getId).containsExactly(third.getId());
+		assertThat(lastPage.getNextCursor()).isNull();
+	}
+
 	private void assertWallet(Wallet testedWallet, String name, String privateKey, String publicKey, Long id) {
 		assertThat(testedWallet.getId()).isEqualTo(id);
 		assertThat(testedWallet.getName()).isEqualTo(name);
@@ -0,0 +1,108 @@
+package com.hotovo.cws.service.price;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.hotovo.cws.client.CryptoCompareClient;
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.CurrencyService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE)
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class BatchingPriceLoaderTest {
+
+	private static final int SYMBOLS = 20;
+	private static final int WALLETS = 40;
+	private static final int TRANSFERS = 1000;
+
+	@Autowired
+	private CurrencyService currencyService;
+
+	@Test
+	@DisplayName("given burst of transfers across many symbols then prices loaded by few multi-symbol requests")
+	void transfer_burst_batched() throws Exception {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		List<String> symbols = new ArrayList<>();
+		for (int i = 0; i < SYMBOLS; i++) {
+			symbols.add(String.format("Q%02d", i));
+			server.setPrice(symbols.get(i), 10.0 + i);
+		}
+		List<Wallet> wallets = new ArrayList<>();
+		for (long id = 0; id < WALLETS; id++) {
+			Set<Currency> currencies = new LinkedHashSet<>();
+			symbols.forEach(symbol -> currencies.add(new Currency(1_000_000.0, symbol)));
+			wallets.add(Wallet.builder().id(-1000 - id).name("batch " + id).currencies(currencies).build());
+		}
+		int priceCalls = server.getRequestCount("/data/price");
+		int multiPriceCalls = server.getRequestCount("/data/pricemulti");
+
+		ExecutorService executor = Executors.newFixedThreadPool(32);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < TRANSFERS; i++) {
+			Random random = new Random(i);
+			futures.add(executor.submit(() -> currencyService.transferCurrency(
+					wallets.get(random.nextInt(WALLETS)), symbols.get(random.nextInt(SYMBOLS)), 1.0,
+					wallets.get(random.nextInt(WALLETS)), symbols.get(random.nextInt(SYMBOLS)))));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(server.getRequestCount("/data/price")).isEqualTo(priceCalls);
+		assertThat(server.getRequestCount("/data/pricemulti") - multiPriceCalls).isBetween(1, 8);
+	}
+
+	@Test
+	@DisplayName("given lookup of unknown symbol when later batches sent then only symbols priced by a response pad the request")
+	void unknown_symbol_not_padded() throws Exception {
+		CryptoCompareClient client = mock(CryptoCompareClient.class);
+		List<List<String>> requestedFsyms = new ArrayList<>();
+		when(client.fetchPricesAsync(anyCollection(), anyCollection())).thenAnswer(invocation -> {
+			Collection<String> fsyms = invocation.getArgument(0);
+			Collection<String> tsyms = invocation.getArgument(1);
+			requestedFsyms.add(new ArrayList<>(fsyms));
+			Map<String, Map<String, Double>> prices = new HashMap<>();
+			fsyms.stream().filter(fsym -> !fsym.startsWith("JUNK")).forEach(fsym -> tsyms.stream().filter(tsym -> !tsym.startsWith("JUNK"))
+					.forEach(tsym -> prices.computeIfAbsent(fsym, key -> new HashMap<>()).put(tsym, 1.0)));
+			return CompletableFuture.completedFuture(prices);
+		});
+		BatchingPriceLoader sut = new BatchingPriceLoader();
+		ReflectionTestUtils.setField(sut, "cryptoCompareClient", client);
+		ReflectionTestUtils.setField(sut, "window", Duration.ofMillis(1));
+		ReflectionTestUtils.setField(sut, "maxBatchSize", 1);
+
+		assertThat(sut.load("junk1", "junk2").get(5, TimeUnit.SECONDS)).isEmpty();
+		assertThat(sut.load("btc", "usd").get(5, TimeUnit.SECONDS)).containsKey("BTC");
+		sut.load("eth", "usd").get(5, TimeUnit.SECONDS);
+		sut.shutdown();
+
+		assertThat(requestedFsyms).containsExactly(Arrays.asList("JUNK1"), Arrays.asList("BTC"), Arrays.asList("ETH", "USD", "BTC"));
+	}
+}
@@ -0,0 +1,104 @@
+package com.hotovo.cws.service.price;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hotovo.cws.client.StubCryptoCompareServer;
+import com.hotovo.cws.domain.Currency;
+import com.hotovo.cws.domain.SymbolTable;
+import com.hotovo.cws.domain.Wallet;
+import com.hotovo.cws.service.CurrencyService;
+import com.hotovo.cws.service.SymbolRegistry;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE,
+		properties = {"crypto-compare.price-book.enabled=true", "crypto-compare.price-book.initial-delay=PT1H", "crypto-compare.price-book.max-age=1s"})
+@ContextConfiguration(initializers = StubCryptoCompareServer.Initializer.class)
+class PriceBookTest {
+
+	private static final Offset<Double> PRECISION = Offset.offset(1e-9);
+
+	@Autowired
+	private PriceBook sut;
+
+	@Autowired
+	private CurrencyService currencyService;
+
+	@Autowired
+	private SymbolRegistry symbolRegistry;
+
+	@Test
+	@DisplayName("given interned symbols when book refreshed then every pair of valid symbols derived from the pivot quotes")
+	void cross_rates_derived() {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		server.setPrice("PBA", 50.0);
+		server.setPrice("PBB", 200.0);
+		symbolRegistry.refresh();
+		server.setPrice("PBX", 10.0);
+		SymbolTable.intern("PBA");
+		SymbolTable.intern("PBB");
+		SymbolTable.intern("PBX");
+		int priceRequests = server.getRequestCount("/data/pricemulti");
+
+		sut.refresh();
+
+		assertThat(server.getRequestCount("/data/pricemulti") - priceRequests).isEqualTo(1);
+		assertThat(sut.getPrice("PBA", "PBB")).isCloseTo(0.25, PRECISION);
+		assertThat(sut.getPrice("pbb", "pba")).isCloseTo(4.0, PRECISION);
+		assertThat(sut.getPrice("PBB", "USD")).isCloseTo(200.0, PRECISION);
+		assertThat(sut.getPrice("USD", "PBA")).isCloseTo(0.02, PRECISION);
+		assertThat(sut.getPrice("PBA", "NOT-QUOTED")).isNaN();
+		assertThat(sut.getPrice("PBX", "USD")).isNaN();
+	}
+
+	@Test
+	@DisplayName("given prices in the book when currencies transferred then no price requested")
+	void transfer_priced_from_book() {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		Wallet source = wallet(1L, new Currency(100.0, "PBC"));
+		Wallet destination = wallet(2L, new Currency(1.0, "PBD"));
+		sut.publish(Collections.singletonMap("PBC", 10.0));
+		sut.publish(Collections.singletonMap("PBD", 40.0));
+		sut.publish(Collections.singletonMap("PB-NOT-INTERNED", 1.0));
+		int priceRequests = server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti");
+
+		currencyService.transferCurrency(source, "PBC", 8.0, destination, "PBD");
+		currencyService.buyCurrency("PBD", 1.0, "PBC", destination);
+
+		assertThat(source.getCurrencies()).containsExactly(new Currency(92.0, "PBC"));
+		assertThat(destination.getCurrencies()).containsExactlyInAnyOrder(new Currency(3.0, "PBD"), new Currency(4.0, "PBC"));
+		assertThat(server.getRequestCount("/data/price") + server.getRequestCount("/data/pricemulti") - priceRequests).isZero();
+		assertThat(SymbolTable.find("PB-NOT-INTERNED")).isEqualTo(SymbolTable.UNKNOWN);
+	}
+
+	@Test
+	@DisplayName("given quote older than max age when price requested then price loaded on demand")
+	void old_quote_loaded_on_demand() throws Exception {
+		StubCryptoCompareServer server = StubCryptoCompareServer.shared();
+		server.setPrice("PBE", 30.0);
+		SymbolTable.intern("PBE");
+		sut.publish(Collections.singletonMap("PBE", 20.0));
+		Wallet wallet = wallet(3L, new Currency(1.0, "USD"));
+
+		currencyService.buyCurrency("PBE", 1.0, "USD", wallet);
+		Thread.sleep(1100);
+		currencyService.buyCurrency("PBE", 1.0, "USD", wallet);
+
+		assertThat(sut.getPrice("PBE", "USD")).isNaN();
+		assertThat(wallet.getCurrencies()).containsExactly(new Currency(51.0, "USD"));
+	}
+
+	private Wallet wallet(Long id, Currency currency) {
+		Set<Currency> currencies = new LinkedHashSet<>();
+		currencies.add(currency);
+		return Wallet.builder().id(-2000 - id).name("price book " + id).currencies(currencies).build();
+	}
+}
@@ -0,0 +1,136 @@
+package com.hotovo.cws.service.price;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.hotovo.cws.client.CallNotPermittedException;
+import com.hotovo.cws.client.CryptoCompareClient;
+import com.hotovo.cws.domain.SymbolTable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+@SpringBootTest(classes = {PriceCache.class, BatchingPriceLoader.class}, webEnvironment = WebEnvironment.NONE,
+		properties = {"crypto-compare.price-cache.ttl=200ms", "crypto-compare.price-cache.max-staleness=2s"})
+class PriceCacheTest {
+
+	@MockBean
+	private CryptoCompareClient cryptoCompareClient;
+
+	@Autowired
+	private PriceCache sut;
+
+	@Test
+	@DisplayName("given fresh price when requested again then price served from cache")
+	void price_cached() {
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH1"), anyCollection())).thenReturn(quotes("CCH1", 10.0));
+
+		assertThat(sut.getPrice("CCH1", "USD")).isEqualTo(10.0);
+		assertThat(sut.getPrice("cch1", "usd")).isEqualTo(10.0);
+
+		verify(cryptoCompareClient, times(1)).fetchPricesAsync(requesting("CCH1"), anyCollection());
+	}
+
+	@Test
+	@DisplayName("given expired price when requested then price loaded again")
+	void price_expired() throws Exception {
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH2"), anyCollection())).thenReturn(quotes("CCH2", 10.0), quotes("CCH2", 11.0));
+
+		assertThat(sut.getPrice("CCH2", "USD")).isEqualTo(10.0);
+		Thread.sleep(300);
+		assertThat(sut.getPrice("CCH2", "USD")).isEqualTo(11.0);
+	}
+
+	@Test
+	@DisplayName("given expired price when load fails within max staleness then stale price served")
+	void price_stale_fallback() throws Exception {
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH3"), anyCollection()))
+				.thenReturn(quotes("CCH3", 10.0))
+				.thenThrow(new RuntimeException("Price for currency not found or not valid!"));
+
+		assertThat(sut.getPrice("CCH3", "USD")).isEqualTo(10.0);
+		Thread.sleep(300);
+		assertThat(sut.getPrice("CCH3", "USD")).isEqualTo(10.0);
+		Thread.sleep(2000);
+		assertThatThrownBy(() -> sut.getPrice("CCH3", "USD"))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Price for currency not found or not valid!");
+	}
+
+	@Test
+	@DisplayName("given price older than max staleness when call to CryptoCompare rejected then last known price served in degraded mode")
+	void price_degraded_fallback() throws Exception {
+		CompletableFuture<Map<String, Map<String, Double>>> rejected = new CompletableFuture<>();
+		rejected.completeExceptionally(new CallNotPermittedException("CryptoCompare is not available, circuit is open!"));
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH6"), anyCollection()))
+				.thenReturn(quotes("CCH6", 10.0), rejected)
+				.thenThrow(new RuntimeException("Price for currency not found or not valid!"));
+
+		assertThat(sut.getPrice("CCH6", "USD")).isEqualTo(10.0);
+		Thread.sleep(2100);
+		assertThat(sut.getPrice("CCH6", "USD")).isEqualTo(10.0);
+		assertThatThrownBy(() -> sut.getPrice("CCH6", "USD"))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Price for currency not found or not valid!");
+	}
+
+	@Test
+	@DisplayName("given concurrent misses of the same pair then only one upstream call")
+	void price_single_flight() throws Exception {
+		CompletableFuture<Map<String, Map<String, Double>>> response = new CompletableFuture<>();
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH4"), anyCollection())).thenReturn(response);
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<Double>> futures = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			futures.add(executor.submit(() -> sut.getPrice("CCH4", "USD")));
+		}
+		Thread.sleep(200);
+		response.complete(singletonMap("CCH4", singletonMap("USD", 10.0)));
+		for (Future<Double> future : futures) {
+			assertThat(future.get()).isEqualTo(10.0);
+		}
+		executor.shutdown();
+
+		verify(cryptoCompareClient, times(1)).fetchPricesAsync(requesting("CCH4"), anyCollection());
+		assertThat(sut.getStats().getLoads()).isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("given batch with unknown pair when requested then price not found and unknown symbol not interned")
+	void price_not_found() {
+		when(cryptoCompareClient.fetchPricesAsync(requesting("CCH5"), anyCollection())).thenReturn(completedFuture(emptyMap()));
+
+		assertThatThrownBy(() -> sut.getPrice("CCH5", "USD"))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("Price for currency not found or not valid!");
+		assertThat(SymbolTable.find("CCH5")).isEqualTo(SymbolTable.UNKNOWN);
+	}
+
+	private Collection<String> requesting(String symbol) {
+		return argThat(symbols -> symbols != null && symbols.contains(symbol));
+	}
+
+	private CompletableFuture<Map<String, Map<String, Double>>> quotes(String fsym, double usdPrice) {
+		return completedFuture(singletonMap(fsym, singletonMap("USD", usdPrice)));
+	}
+}